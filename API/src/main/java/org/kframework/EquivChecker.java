@@ -3,10 +3,17 @@
 package org.kframework;
 
 import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
 import org.kframework.backend.java.symbolic.SymbolicRewriter;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +34,29 @@ public class EquivChecker {
             SymbolicRewriter rewriter1,
             SymbolicRewriter rewriter2
     ) {
+        ExecutorService executor = newExecutor();
+        try {
+            return equiv(startSyncNodes1, startSyncNodes2, targetSyncNodes1, targetSyncNodes2, startEnsures,
+                    targetEnsures, trusted1, trusted2, rewriter1, rewriter2, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static boolean equiv(
+            java.util.List<ConstrainedTerm> startSyncNodes1,
+            java.util.List<ConstrainedTerm> startSyncNodes2,
+            java.util.List<ConstrainedTerm> targetSyncNodes1,
+            java.util.List<ConstrainedTerm> targetSyncNodes2,
+            java.util.List<ConjunctiveFormula> startEnsures,
+            java.util.List<ConjunctiveFormula> targetEnsures,
+            java.util.List<Boolean> trusted1,
+            java.util.List<Boolean> trusted2,
+            //
+            SymbolicRewriter rewriter1,
+            SymbolicRewriter rewriter2,
+            Executor executor
+    ) {
 
         assert startEnsures.size() == targetEnsures.size();
         assert targetSyncNodes1.size() == targetEnsures.size();
@@ -59,8 +89,12 @@ public class EquivChecker {
 
         while (!currSyncNodes1.isEmpty() && !currSyncNodes2.isEmpty()) {
 
-            java.util.List<Set<SyncNode>> nextSyncNodes1 = getNextSyncNodes(currSyncNodes1, targetSyncNodes1, rewriter1);
-            java.util.List<Set<SyncNode>> nextSyncNodes2 = getNextSyncNodes(currSyncNodes2, targetSyncNodes2, rewriter2);
+            /* both programs are explored at the same time, and so are their sync nodes */
+            AtomicBoolean cancelled = new AtomicBoolean();
+            java.util.List<CompletableFuture<java.util.List<Set<SyncNode>>>> explorations1 = exploreSyncNodes(currSyncNodes1, targetSyncNodes1, rewriter1, cancelled, executor);
+            java.util.List<CompletableFuture<java.util.List<Set<SyncNode>>>> explorations2 = exploreSyncNodes(currSyncNodes2, targetSyncNodes2, rewriter2, cancelled, executor);
+            java.util.List<Set<SyncNode>> nextSyncNodes1 = joinNextSyncNodes(explorations1, numSyncPoints, cancelled);
+            java.util.List<Set<SyncNode>> nextSyncNodes2 = nextSyncNodes1 != null ? joinNextSyncNodes(explorations2, numSyncPoints, cancelled) : null;
 
             // fail
             if (nextSyncNodes1 == null || nextSyncNodes2 == null) return false; // TODO: output more information for failure
@@ -68,7 +102,7 @@ public class EquivChecker {
             allSyncNodes1 = mergeListOfSets(allSyncNodes1, nextSyncNodes1);
             allSyncNodes2 = mergeListOfSets(allSyncNodes2, nextSyncNodes2);
 
-            matchSyncNodes(allSyncNodes1, allSyncNodes2, startEnsures, targetEnsures);
+            matchSyncNodes(allSyncNodes1, allSyncNodes2, startEnsures, targetEnsures, executor);
             validateSyncNodes(allSyncNodes1);
             validateSyncNodes(allSyncNodes2);
 
@@ -101,11 +135,82 @@ public class EquivChecker {
             //
             SymbolicRewriter rewriter
     ) {
-        int numSyncPoints = targetSyncNodes.size();
-        java.util.List<Set<SyncNode>> nextSyncNodes = newListOfSets(numSyncPoints);
+        ExecutorService executor = newExecutor();
+        try {
+            return getNextSyncNodes(currSyncNodes, targetSyncNodes, rewriter, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static java.util.List<Set<SyncNode>> getNextSyncNodes(
+            java.util.List<SyncNode> currSyncNodes,
+            java.util.List<ConstrainedTerm> targetSyncNodes,
+            //
+            SymbolicRewriter rewriter,
+            Executor executor
+    ) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        return joinNextSyncNodes(
+                exploreSyncNodes(currSyncNodes, targetSyncNodes, rewriter, cancelled, executor),
+                targetSyncNodes.size(),
+                cancelled);
+    }
+
+    /**
+     * The threads exploring the sync nodes and checking whether they match. Each thread rewrites with its own matcher
+     * (see {@link SymbolicRewriter}), which is dropped when the executor is shut down.
+     */
+    private static ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "equiv-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts exploring each of {@code currSyncNodes} asynchronously. The sync nodes are independent, so each one is
+     * explored in its own fork of the {@link TermContext} of its node. The forks share the fresh counter of the
+     * context, so the explorations running at the same time do not generate the same fresh constants.
+     */
+    private static java.util.List<CompletableFuture<java.util.List<Set<SyncNode>>>> exploreSyncNodes(
+            java.util.List<SyncNode> currSyncNodes,
+            java.util.List<ConstrainedTerm> targetSyncNodes,
+            SymbolicRewriter rewriter,
+            AtomicBoolean cancelled,
+            Executor executor
+    ) {
+        java.util.List<CompletableFuture<java.util.List<Set<SyncNode>>>> explorations = new ArrayList<>();
         for (SyncNode currSyncNode : currSyncNodes) {
-            java.util.List<Set<SyncNode>> nodes = getNextSyncNodes(currSyncNode, targetSyncNodes, rewriter);
-            if (nodes == null) return null; // failed // TODO: output more information for failure
+            TermContext context = currSyncNode.currSyncNode.termContext();
+            ConstrainedTerm start = new ConstrainedTerm(
+                    currSyncNode.currSyncNode.term(),
+                    currSyncNode.currSyncNode.constraint(),
+                    context.forkSharingFreshCounter());
+            explorations.add(CompletableFuture.supplyAsync(
+                    () -> getNextSyncNodes(currSyncNode, start, context, targetSyncNodes, rewriter, cancelled),
+                    executor));
+        }
+        return explorations;
+    }
+
+    /**
+     * Waits for the explorations in order and merges their results, or returns null as soon as one of them fails,
+     * in which case the remaining ones are cancelled.
+     */
+    private static java.util.List<Set<SyncNode>> joinNextSyncNodes(
+            java.util.List<CompletableFuture<java.util.List<Set<SyncNode>>>> explorations,
+            int numSyncPoints,
+            AtomicBoolean cancelled
+    ) {
+        java.util.List<Set<SyncNode>> nextSyncNodes = newListOfSets(numSyncPoints);
+        for (CompletableFuture<java.util.List<Set<SyncNode>>> exploration : explorations) {
+            java.util.List<Set<SyncNode>> nodes = join(exploration);
+            if (nodes == null) {
+                cancelled.set(true);
+                return null; // failed // TODO: output more information for failure
+            }
             nextSyncNodes = mergeListOfSets(nextSyncNodes, nodes);
         }
         return nextSyncNodes;
@@ -116,6 +221,24 @@ public class EquivChecker {
             java.util.List<ConstrainedTerm> targetSyncNodes,
             //
             SymbolicRewriter rewriter
+    ) {
+        return getNextSyncNodes(currSyncNode, currSyncNode.currSyncNode, currSyncNode.currSyncNode.termContext(),
+                targetSyncNodes, rewriter, new AtomicBoolean());
+    }
+
+    /**
+     * Explores from {@code start}, the term of {@code currSyncNode}, until the next sync points. The next sync nodes
+     * get {@code context}, the context {@code start} was forked from, so the next round forks from it again. Returns
+     * null if a final term is reached, or if {@code cancelled} is set in the meantime.
+     */
+    private static java.util.List<Set<SyncNode>> getNextSyncNodes(
+            SyncNode currSyncNode,
+            ConstrainedTerm start,
+            TermContext context,
+            java.util.List<ConstrainedTerm> targetSyncNodes,
+            //
+            SymbolicRewriter rewriter,
+            AtomicBoolean cancelled
     ) {
         int numSyncPoints = targetSyncNodes.size();
 
@@ -124,12 +247,19 @@ public class EquivChecker {
         java.util.List<ConstrainedTerm> queue = new ArrayList<>();
         java.util.List<ConstrainedTerm> nextQueue = new ArrayList<>();
 
-        queue.add(currSyncNode.currSyncNode);
+        queue.add(start);
+
+        /* the exploration may run at the same time as others using the same rewriter */
+        SymbolicRewriter.Superheated superheated = new SymbolicRewriter.Superheated();
 
         while (!queue.isEmpty()) {
+            superheated.nextStep();
             for (ConstrainedTerm curr : queue) {
+                if (cancelled.get()) {
+                    return null;
+                }
 
-                java.util.List<ConstrainedTerm> nexts = rewriter.fastComputeRewriteStep(curr, false, true, true);
+                java.util.List<ConstrainedTerm> nexts = rewriter.fastComputeRewriteStep(curr, false, true, true, superheated);
 
                 if (nexts.isEmpty()) {
                     /* final term */
@@ -141,7 +271,11 @@ public class EquivChecker {
                     for (int i = 0; i < numSyncPoints; i++) {
                         ConjunctiveFormula constraint = next.matchImplies(targetSyncNodes.get(i), true);
                         if (constraint != null) {
-                            SyncNode node = new SyncNode(currSyncNode.startSyncPoint, currSyncNode, next, constraint);
+                            SyncNode node = new SyncNode(
+                                    currSyncNode.startSyncPoint,
+                                    currSyncNode,
+                                    new ConstrainedTerm(next.term(), next.constraint(), context),
+                                    constraint);
                             nextSyncNodes.get(i).add(node);
                             continue loop;
                         }
@@ -166,30 +300,90 @@ public class EquivChecker {
             java.util.List<Set<SyncNode>> syncNodes2,
             java.util.List<ConjunctiveFormula> startEnsures,
             java.util.List<ConjunctiveFormula> targetEnsures) {
+        ExecutorService executor = newExecutor();
+        try {
+            matchSyncNodes(syncNodes1, syncNodes2, startEnsures, targetEnsures, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static void matchSyncNodes(
+            java.util.List<Set<SyncNode>> syncNodes1,
+            java.util.List<Set<SyncNode>> syncNodes2,
+            java.util.List<ConjunctiveFormula> startEnsures,
+            java.util.List<ConjunctiveFormula> targetEnsures,
+            Executor executor) {
 
         assert startEnsures.size() == targetEnsures.size();
         assert syncNodes1.size() == targetEnsures.size();
         assert syncNodes2.size() == targetEnsures.size();
 
-        int numSyncPoints = targetEnsures.size();
+        markSyncNodes(syncNodes1, syncNodes2, (i, ct1, ct2) -> matches(
+                ct1,
+                ct2,
+                ConjunctiveFormula.of(startEnsures.get(ct1.startSyncPoint)),
+                ConjunctiveFormula.of(targetEnsures.get(i))),
+                executor);
+    }
+
+    /**
+     * Marks the nodes of both programs which match a node of the other program at the same sync point.
+     * <p>
+     * Whether a pair of nodes matches does not depend on the marks of the other pairs, so the pairs are checked in a
+     * batch, on {@code executor}, and the nodes are marked afterwards. A pair which does not match is remembered, so
+     * it is not checked again in the next rounds.
+     */
+    static void markSyncNodes(
+            java.util.List<Set<SyncNode>> syncNodes1,
+            java.util.List<Set<SyncNode>> syncNodes2,
+            PairMatcher matcher,
+            Executor executor) {
 
+        assert syncNodes1.size() == syncNodes2.size();
+
+        int numSyncPoints = syncNodes1.size();
+
+        java.util.List<Query> queries = new ArrayList<>();
         for (int i = 0; i < numSyncPoints; i++) {
+            int syncPoint = i;
             for (SyncNode ct1 : syncNodes1.get(i)) {
                 for (SyncNode ct2 : syncNodes2.get(i)) {
                     if (ct1.startSyncPoint != ct2.startSyncPoint) continue;
                     if (ct1.mark == Mark.BLACK && ct2.mark == Mark.BLACK) continue;
-                    ConjunctiveFormula c1 = ConjunctiveFormula.of(ct1.constraint);
-                    ConjunctiveFormula c2 = ConjunctiveFormula.of(ct2.constraint);
-                    ConjunctiveFormula c0 = ConjunctiveFormula.of(startEnsures.get(ct1.startSyncPoint));
-                    ConjunctiveFormula e = ConjunctiveFormula.of(targetEnsures.get(i));
-                    ConjunctiveFormula c = c1.add(c2).add(c0).simplify(); // TODO: termContext ??
-                    if (!c.isFalse() && !c.checkUnsat() && c.smartImplies(e) /* c.implies(e, Collections.emptySet()) */) {
-                        ct1.mark = Mark.BLACK;
-                        ct2.mark = Mark.BLACK;
-                    }
+                    if (ct1.unmatched.contains(ct2)) continue;
+                    queries.add(new Query(ct1, ct2, CompletableFuture.supplyAsync(
+                            () -> matcher.matches(syncPoint, ct1, ct2), executor)));
                 }
             }
         }
+
+        for (Query query : queries) {
+            if (join(query.result)) {
+                query.ct1.mark = Mark.BLACK;
+                query.ct2.mark = Mark.BLACK;
+            } else {
+                query.ct1.unmatched.add(query.ct2);
+            }
+        }
+    }
+
+    private static boolean matches(SyncNode ct1, SyncNode ct2, ConjunctiveFormula c0, ConjunctiveFormula e) {
+        ConjunctiveFormula c1 = ConjunctiveFormula.of(ct1.constraint);
+        ConjunctiveFormula c2 = ConjunctiveFormula.of(ct2.constraint);
+        ConjunctiveFormula c = c1.add(c2).add(c0).simplify(); // TODO: termContext ??
+        return !c.isFalse() && !c.checkUnsat() && c.smartImplies(e) /* c.implies(e, Collections.emptySet()) */;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     public static void validateSyncNodes(java.util.List<Set<SyncNode>> syncNodes) {
@@ -246,12 +440,22 @@ public class EquivChecker {
         return to;
     }
 
-    private static class SyncNode {
+    /**
+     * Checks whether a node of the first program and a node of the second one, at target sync point
+     * {@code syncPoint}, match.
+     */
+    interface PairMatcher {
+        boolean matches(int syncPoint, SyncNode ct1, SyncNode ct2);
+    }
+
+    static class SyncNode {
         public int startSyncPoint;
         public SyncNode prevSyncNode;
         public ConstrainedTerm currSyncNode;
         public ConjunctiveFormula constraint;
         public Mark mark;
+        /* the nodes of the other program this node has been checked against without matching */
+        public Set<SyncNode> unmatched = new HashSet<>();
 
         public SyncNode(
                 int startSyncPoint,
@@ -267,7 +471,19 @@ public class EquivChecker {
         }
     }
 
-    private enum Mark {
+    private static class Query {
+        public SyncNode ct1;
+        public SyncNode ct2;
+        public CompletableFuture<Boolean> result;
+
+        public Query(SyncNode ct1, SyncNode ct2, CompletableFuture<Boolean> result) {
+            this.ct1 = ct1;
+            this.ct2 = ct2;
+            this.result = result;
+        }
+    }
+
+    enum Mark {
         RED,    // not matched yet
         BLACK,  // matched
         GREY    // invalid; its parent was matched later
@@ -238,7 +238,7 @@ public class Kapi {
         return;
     }
 
-    private static ConjunctiveFormula getConjunctiveFormula(ConjunctiveFormula e1, ConjunctiveFormula e2, GlobalContext global) {
+    static ConjunctiveFormula getConjunctiveFormula(ConjunctiveFormula e1, ConjunctiveFormula e2, GlobalContext global) {
 
         ConjunctiveFormula ensure = ConjunctiveFormula.of(global);
 
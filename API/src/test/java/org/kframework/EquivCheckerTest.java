@@ -0,0 +1,133 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kframework.EquivChecker.Mark;
+import org.kframework.EquivChecker.SyncNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EquivCheckerTest {
+
+    private static final int NUM_SYNC_POINTS = 3;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    /* two nodes of different programs match when they have the same value */
+    private final Map<SyncNode, Integer> values = new HashMap<>();
+    private final AtomicInteger checks = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private boolean matches(int syncPoint, SyncNode ct1, SyncNode ct2) {
+        checks.incrementAndGet();
+        return values.get(ct1).equals(values.get(ct2));
+    }
+
+    private SyncNode node(List<Set<SyncNode>> syncNodes, int syncPoint, int startSyncPoint, int value) {
+        SyncNode node = new SyncNode(startSyncPoint, null, null, null);
+        values.put(node, value);
+        syncNodes.get(syncPoint).add(node);
+        return node;
+    }
+
+    /**
+     * Adds the same random nodes to {@code syncNodes} and to {@code copy}, and returns them in order.
+     */
+    private List<SyncNode[]> randomNodes(Random random, List<Set<SyncNode>> syncNodes, List<Set<SyncNode>> copy) {
+        List<SyncNode[]> nodes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            int syncPoint = random.nextInt(NUM_SYNC_POINTS);
+            int startSyncPoint = random.nextInt(2);
+            int value = random.nextInt(20);
+            nodes.add(new SyncNode[] {
+                    node(syncNodes, syncPoint, startSyncPoint, value),
+                    node(copy, syncPoint, startSyncPoint, value) });
+        }
+        return nodes;
+    }
+
+    /**
+     * Marks the nodes the way the checker did before the pairs were checked in a batch.
+     */
+    private void markSequentially(List<Set<SyncNode>> syncNodes1, List<Set<SyncNode>> syncNodes2) {
+        for (int i = 0; i < NUM_SYNC_POINTS; i++) {
+            for (SyncNode ct1 : syncNodes1.get(i)) {
+                for (SyncNode ct2 : syncNodes2.get(i)) {
+                    if (ct1.startSyncPoint != ct2.startSyncPoint) continue;
+                    if (ct1.mark == Mark.BLACK && ct2.mark == Mark.BLACK) continue;
+                    if (matches(i, ct1, ct2)) {
+                        ct1.mark = Mark.BLACK;
+                        ct2.mark = Mark.BLACK;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMarksAreUnchanged() {
+        Random random = new Random(42);
+        List<Set<SyncNode>> syncNodes1 = EquivChecker.newListOfSets(NUM_SYNC_POINTS);
+        List<Set<SyncNode>> syncNodes2 = EquivChecker.newListOfSets(NUM_SYNC_POINTS);
+        List<Set<SyncNode>> expectedSyncNodes1 = EquivChecker.newListOfSets(NUM_SYNC_POINTS);
+        List<Set<SyncNode>> expectedSyncNodes2 = EquivChecker.newListOfSets(NUM_SYNC_POINTS);
+        List<SyncNode[]> nodes1 = randomNodes(random, syncNodes1, expectedSyncNodes1);
+        List<SyncNode[]> nodes2 = randomNodes(random, syncNodes2, expectedSyncNodes2);
+
+        markSequentially(expectedSyncNodes1, expectedSyncNodes2);
+        EquivChecker.markSyncNodes(syncNodes1, syncNodes2, this::matches, executor);
+
+        int black = 0;
+        for (SyncNode[] pair : nodes1) {
+            assertEquals(pair[1].mark, pair[0].mark);
+            black += pair[0].mark == Mark.BLACK ? 1 : 0;
+        }
+        for (SyncNode[] pair : nodes2) {
+            assertEquals(pair[1].mark, pair[0].mark);
+        }
+        assertTrue(black > 0 && black < nodes1.size());
+    }
+
+    @Test
+    public void testUnmatchedPairsAreNotCheckedAgain() {
+        List<Set<SyncNode>> syncNodes1 = EquivChecker.newListOfSets(1);
+        List<Set<SyncNode>> syncNodes2 = EquivChecker.newListOfSets(1);
+        SyncNode a1 = node(syncNodes1, 0, 0, 1);
+        SyncNode b1 = node(syncNodes1, 0, 0, 2);
+        SyncNode a2 = node(syncNodes2, 0, 0, 1);
+        SyncNode c2 = node(syncNodes2, 0, 0, 3);
+
+        EquivChecker.markSyncNodes(syncNodes1, syncNodes2, this::matches, executor);
+        assertEquals(4, checks.get());
+        assertEquals(Mark.BLACK, a1.mark);
+        assertEquals(Mark.BLACK, a2.mark);
+        assertEquals(Mark.RED, b1.mark);
+        assertEquals(Mark.RED, c2.mark);
+
+        checks.set(0);
+        EquivChecker.markSyncNodes(syncNodes1, syncNodes2, this::matches, executor);
+        assertEquals(0, checks.get());
+
+        SyncNode b2 = node(syncNodes2, 0, 0, 2);
+        EquivChecker.markSyncNodes(syncNodes1, syncNodes2, this::matches, executor);
+        assertEquals("only the pairs with the new node are checked", 2, checks.get());
+        assertEquals(Mark.BLACK, b1.mark);
+        assertEquals(Mark.BLACK, b2.mark);
+        assertEquals(Mark.RED, c2.mark);
+    }
+}
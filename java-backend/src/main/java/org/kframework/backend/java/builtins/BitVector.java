@@ -47,17 +47,16 @@ public abstract class BitVector<T extends Number> extends Token {
 
     /**
      * Returns a {@code BitVector} representation of the given big integer value on the given
-     * bit width.
+     * bit width. Bit vectors of at most 64 bits are backed by a java primitive.
      */
     public static BitVector of(BigInteger value, int bitwidth) {
         assert bitwidth > 0;
 
-        switch (bitwidth) {
-            case Integer.SIZE:
-                return Int32Token.of(value.intValue());
-            default:
-                return BigIntegerBitVector.of(value, bitwidth);
+        if (bitwidth > Long.SIZE) {
+            return BigIntegerBitVector.of(value, bitwidth);
         }
+        /* the last 64 bits of the value are enough */
+        return of(value.longValue(), bitwidth);
     }
 
     /**
@@ -70,6 +69,9 @@ public abstract class BitVector<T extends Number> extends Token {
             case Integer.SIZE:
                 return Int32Token.of(Long.valueOf(value).intValue());
             default:
+                if (bitwidth <= Long.SIZE) {
+                    return LongBitVector.of(value, bitwidth);
+                }
                 return BigIntegerBitVector.of(BigInteger.valueOf(value), bitwidth);
         }
     }
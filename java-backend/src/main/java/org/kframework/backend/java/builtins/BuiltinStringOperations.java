@@ -19,7 +19,7 @@ import org.kframework.utils.StringUtil;
 public class BuiltinStringOperations {
 
     public static StringToken add(StringToken term1, StringToken term2, TermContext context) {
-        return StringToken.of(term1.stringValue() + term2.stringValue());
+        return term1.concat(term2);
     }
 
     public static BoolToken eq(StringToken term1, StringToken term2, TermContext context) {
@@ -47,14 +47,14 @@ public class BuiltinStringOperations {
     }
 
     public static IntToken len(StringToken term, TermContext context) {
-        return IntToken.of(term.stringValue().codePointCount(0, term.stringValue().length()));
+        return IntToken.of(term.length());
     }
 
     public static IntToken ord(StringToken term, TermContext context) {
-        if (term.stringValue().codePointCount(0, term.stringValue().length()) != 1) {
+        if (term.length() != 1) {
             return null;
         }
-        return IntToken.of(term.stringValue().codePointAt(0));
+        return IntToken.of(term.codePointAt(0));
     }
 
     public static StringToken chr(IntToken term, TermContext context) {
@@ -70,10 +70,8 @@ public class BuiltinStringOperations {
     }
 
     public static StringToken substr(StringToken term, IntToken start, IntToken end, TermContext context) {
-        int beginOffset = term.stringValue().offsetByCodePoints(0, start.intValue());
-        int endOffset = term.stringValue().offsetByCodePoints(0, end.intValue());
         try {
-            return StringToken.of(term.stringValue().substring(beginOffset, endOffset));
+            return term.substring(start.intValue(), end.intValue());
         } catch (StringIndexOutOfBoundsException e) {
             return null;
         }
@@ -6,6 +6,7 @@ import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.backend.java.util.WeakInternTable;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Attribute;
 import org.kframework.kil.FloatBuiltin;
@@ -19,8 +20,8 @@ public class FloatToken extends Token {
 
     public static final Sort SORT = Sort.FLOAT;
 
-    /* Token cache */
-    private static final Map<Integer, Map<BigFloat, FloatToken>> cache = new ConcurrentHashMap<>();
+    /* Token cache; tokens are dropped from it once they are no longer reachable */
+    private static final Map<Integer, WeakInternTable<BigFloat, FloatToken>> cache = new ConcurrentHashMap<>();
 
     private final BigFloat value;
     private final int exponent;
@@ -37,8 +38,11 @@ public class FloatToken extends Token {
      * and {@code int} exponent return the same {@code FloatToken} object).
      */
     public static FloatToken of(BigFloat value, int exponent) {
-        Map<BigFloat, FloatToken> exponentCache = cache.computeIfAbsent(exponent, ConcurrentHashMap::new);
-        return exponentCache.computeIfAbsent(value, v -> new FloatToken(v, exponent));
+        return exponentCache(exponent).intern(value, v -> new FloatToken(v, exponent));
+    }
+
+    private static WeakInternTable<BigFloat, FloatToken> exponentCache(int exponent) {
+        return cache.computeIfAbsent(exponent, e -> new WeakInternTable<>());
     }
 
     public static FloatToken of(String value) {
@@ -131,8 +135,7 @@ public class FloatToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        Map<BigFloat, FloatToken> exponentCache = cache.computeIfAbsent(exponent, ConcurrentHashMap::new);
-        return exponentCache.computeIfAbsent(value, v -> this);
+        return exponentCache(exponent).intern(value, v -> this);
     }
 
 }
@@ -0,0 +1,302 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.kframework.backend.java.builtins.primitives.Longs;
+import org.kframework.backend.java.builtins.primitives.OverflowArithmeticResult;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.TermContext;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Implementation of a bit vector of at most 64 bits using java primitive long. The value is kept sign-extended
+ * from the bit width, so that the signed operations are the operations on {@code long}, and equal bit vectors
+ * have equal values.
+ */
+public final class LongBitVector extends BitVector<Long> {
+
+    private LongBitVector(long value, int bitwidth) {
+        super(value, bitwidth);
+    }
+
+    public static LongBitVector of(long value, int bitwidth) {
+        assert bitwidth > 0 && bitwidth <= Long.SIZE;
+
+        return new LongBitVector(Longs.signExtend(value, bitwidth), bitwidth);
+    }
+
+    private long unsignedLongValue() {
+        return Longs.zeroExtend(value, bitwidth);
+    }
+
+    @Override
+    public boolean isZero() {
+        return value == 0;
+    }
+
+    @Override
+    public BigInteger signedValue() {
+        return BigInteger.valueOf(value);
+    }
+
+    @Override
+    public BigInteger unsignedValue() {
+        BigInteger signedValue = BigInteger.valueOf(value);
+        return value >= 0 ? signedValue : signedValue.add(BigInteger.ONE.shiftLeft(bitwidth));
+    }
+
+    @Override
+    public LongBitVector add(BitVector<Long> bitVector) {
+        return LongBitVector.of(value + bitVector.value, bitwidth);
+    }
+
+    @Override
+    public LongBitVector sub(BitVector<Long> bitVector) {
+        return LongBitVector.of(value - bitVector.value, bitwidth);
+    }
+
+    @Override
+    public LongBitVector mul(BitVector<Long> bitVector) {
+        return LongBitVector.of(value * bitVector.value, bitwidth);
+    }
+
+    @Override
+    public BuiltinList sdiv(BitVector<Long> bitVector, TermContext context) {
+        if (bitVector.value != 0) {
+            return makeBuiltinListOfOverflowArithmeticResult(
+                    Longs.checkedDiv(value, bitVector.value, bitwidth),
+                    context);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public BuiltinList srem(BitVector<Long> bitVector, TermContext context) {
+        if (bitVector.value != 0) {
+            return makeBuiltinListOfOverflowArithmeticResult(
+                    Longs.checkedRem(value, bitVector.value, bitwidth),
+                    context);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public LongBitVector udiv(BitVector<Long> bitVector) {
+        if (bitVector.value != 0) {
+            return LongBitVector.of(
+                    Long.divideUnsigned(unsignedLongValue(), Longs.zeroExtend(bitVector.value, bitwidth)),
+                    bitwidth);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public LongBitVector urem(BitVector<Long> bitVector) {
+        if (bitVector.value != 0) {
+            return LongBitVector.of(
+                    Long.remainderUnsigned(unsignedLongValue(), Longs.zeroExtend(bitVector.value, bitwidth)),
+                    bitwidth);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public BuiltinList sadd(BitVector<Long> bitVector, TermContext context) {
+        return makeBuiltinListOfOverflowArithmeticResult(
+                Longs.checkedAdd(value, bitVector.value, bitwidth),
+                context);
+    }
+
+    @Override
+    public BuiltinList uadd(BitVector<Long> bitVector, TermContext context) {
+        return makeBuiltinListOfOverflowArithmeticResult(
+                Longs.checkedUnsignedAdd(value, bitVector.value, bitwidth),
+                context);
+    }
+
+    @Override
+    public BuiltinList ssub(BitVector<Long> bitVector, TermContext context) {
+        return makeBuiltinListOfOverflowArithmeticResult(
+                Longs.checkedSub(value, bitVector.value, bitwidth),
+                context);
+    }
+
+    @Override
+    public BuiltinList usub(BitVector<Long> bitVector, TermContext context) {
+        return makeBuiltinListOfOverflowArithmeticResult(
+                Longs.checkedUnsignedSub(value, bitVector.value, bitwidth),
+                context);
+    }
+
+    @Override
+    public BuiltinList smul(BitVector<Long> bitVector, TermContext context) {
+        return makeBuiltinListOfOverflowArithmeticResult(
+                Longs.checkedMul(value, bitVector.value, bitwidth),
+                context);
+    }
+
+    @Override
+    public BuiltinList umul(BitVector<Long> bitVector, TermContext context) {
+        return makeBuiltinListOfOverflowArithmeticResult(
+                Longs.checkedUnsignedMul(value, bitVector.value, bitwidth),
+                context);
+    }
+
+    @Override
+    public LongBitVector shl(IntToken intToken) {
+        return shift(intToken.intValue());
+    }
+
+    @Override
+    public LongBitVector ashr(IntToken intToken) {
+        return shift(-(long) intToken.intValue());
+    }
+
+    @Override
+    public LongBitVector lshr(IntToken intToken) {
+        int distance = intToken.intValue();
+        if (distance < 0) {
+            return shift(-(long) distance);
+        }
+        return LongBitVector.of(distance < Long.SIZE ? unsignedLongValue() >>> distance : 0, bitwidth);
+    }
+
+    /**
+     * Shifts this bit vector to the left by {@code distance}, or arithmetically to the right if {@code distance} is
+     * negative, as {@link BigInteger#shiftLeft} does. Shifts in java use only the last 6 bits of the distance, so
+     * larger distances are handled separately.
+     */
+    private LongBitVector shift(long distance) {
+        if (distance >= 0) {
+            return LongBitVector.of(distance < Long.SIZE ? value << distance : 0, bitwidth);
+        } else {
+            return LongBitVector.of(value >> (distance > -Long.SIZE ? -distance : Long.SIZE - 1), bitwidth);
+        }
+    }
+
+    @Override
+    public LongBitVector and(BitVector<Long> bitVector) {
+        return LongBitVector.of(value & bitVector.value, bitwidth);
+    }
+
+    @Override
+    public LongBitVector or(BitVector<Long> bitVector) {
+        return LongBitVector.of(value | bitVector.value, bitwidth);
+    }
+
+    @Override
+    public LongBitVector xor(BitVector<Long> bitVector) {
+        return LongBitVector.of(value ^ bitVector.value, bitwidth);
+    }
+
+    /*
+     * The unsigned comparisons compare the sign-extended values as unsigned longs, which orders them as their
+     * unsigned values of the bit width.
+     */
+
+    @Override
+    public BoolToken slt(BitVector<Long> bitVector) {
+        return BoolToken.of(value < bitVector.value);
+    }
+
+    @Override
+    public BoolToken ult(BitVector<Long> bitVector) {
+        return BoolToken.of(Long.compareUnsigned(value, bitVector.value) < 0);
+    }
+
+    @Override
+    public BoolToken sle(BitVector<Long> bitVector) {
+        return BoolToken.of(value <= bitVector.value);
+    }
+
+    @Override
+    public BoolToken ule(BitVector<Long> bitVector) {
+        return BoolToken.of(Long.compareUnsigned(value, bitVector.value) <= 0);
+    }
+
+    @Override
+    public BoolToken sgt(BitVector<Long> bitVector) {
+        return BoolToken.of(value > bitVector.value);
+    }
+
+    @Override
+    public BoolToken ugt(BitVector<Long> bitVector) {
+        return BoolToken.of(Long.compareUnsigned(value, bitVector.value) > 0);
+    }
+
+    @Override
+    public BoolToken sge(BitVector<Long> bitVector) {
+        return BoolToken.of(value >= bitVector.value);
+    }
+
+    @Override
+    public BoolToken uge(BitVector<Long> bitVector) {
+        return BoolToken.of(Long.compareUnsigned(value, bitVector.value) >= 0);
+    }
+
+    @Override
+    public BoolToken eq(BitVector<Long> bitVector) {
+        return BoolToken.of(value.equals(bitVector.value));
+    }
+
+    @Override
+    public BoolToken ne(BitVector<Long> bitVector) {
+        return BoolToken.of(!value.equals(bitVector.value));
+    }
+
+    @Override
+    public BitVector concatenate(BitVector bitVector) {
+        if (bitwidth + bitVector.bitwidth <= Long.SIZE) {
+            long lowBits = Longs.zeroExtend(((Number) bitVector.value).longValue(), bitVector.bitwidth);
+            return BitVector.of(
+                    unsignedLongValue() << bitVector.bitwidth | lowBits,
+                    bitwidth + bitVector.bitwidth);
+        }
+        return super.concatenate(bitVector);
+    }
+
+    @Override
+    public BitVector extract(int beginIndex, int endIndex) {
+        int resultBitwidth = endIndex - beginIndex;
+        return BitVector.of(
+                Longs.zeroExtend(unsignedLongValue() >>> (bitwidth - endIndex), resultBitwidth),
+                resultBitwidth);
+    }
+
+    @Override
+    public List<BitVector> toDigits(int digitBitWidth, int count) {
+        assert digitBitWidth > 0;
+        assert digitBitWidth * count <= bitwidth;
+
+        List<BitVector> digits = new ArrayList<>();
+        long unsignedValue = unsignedLongValue();
+        for (int i = 0, j = bitwidth - digitBitWidth; i < count;  ++i, j -= digitBitWidth) {
+            digits.add(BitVector.of(Longs.zeroExtend(unsignedValue >>> j, digitBitWidth), digitBitWidth));
+        }
+
+        return digits;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof LongBitVector
+                && value.equals(((LongBitVector) object).value)
+                && bitwidth == ((LongBitVector) object).bitwidth;
+    }
+
+    private BuiltinList makeBuiltinListOfOverflowArithmeticResult(
+            OverflowArithmeticResult<Long> result, TermContext context) {
+        return (BuiltinList) BuiltinList.builder(context.global())
+                .add(BuiltinListOperations.wrapListItem(LongBitVector.of(result.value, bitwidth), context))
+                .add(BuiltinListOperations.wrapListItem(BoolToken.of(result.overflow), context))
+                .build();
+    }
+
+}
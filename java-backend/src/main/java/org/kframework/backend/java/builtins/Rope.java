@@ -0,0 +1,202 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+/**
+ * An immutable sequence of unicode code points represented as a balanced binary tree of {@link String} chunks,
+ * used by {@link StringToken} so that concatenating and slicing long strings does not copy them.
+ * <p>
+ * The tree is kept balanced as an AVL tree, so {@link #concat} and {@link #substring} take time logarithmic in the
+ * number of chunks. Concatenations of short chunks are copied into a single chunk, so that building a string by
+ * repeatedly appending short strings does not create a chunk per append. Indices are code point indices, as in the
+ * builtin string operations.
+ */
+final class Rope {
+
+    /**
+     * Concatenations of at most this many chars are copied into a single chunk.
+     */
+    static final int CHUNK_SIZE = 512;
+
+    private final String chunk;
+    private final Rope left;
+    private final Rope right;
+
+    /**
+     * The length of this rope in chars (not code points).
+     */
+    final int length;
+    final int codePointCount;
+    private final int depth;
+
+    /**
+     * {@link String#hashCode} of the contents of this rope, and {@code 31^length}, so that the hash code of a
+     * concatenation is computed without looking at the chunks.
+     */
+    private final int hash;
+    private final int power;
+
+    private Rope(String chunk) {
+        this.chunk = chunk;
+        this.left = null;
+        this.right = null;
+        this.length = chunk.length();
+        this.codePointCount = chunk.codePointCount(0, chunk.length());
+        this.depth = 0;
+        this.hash = chunk.hashCode();
+        int power = 1;
+        for (int i = 0; i < length; i++) {
+            power *= 31;
+        }
+        this.power = power;
+    }
+
+    private Rope(Rope left, Rope right) {
+        this.chunk = null;
+        this.left = left;
+        this.right = right;
+        this.length = left.length + right.length;
+        this.codePointCount = left.codePointCount + right.codePointCount;
+        this.depth = Math.max(left.depth, right.depth) + 1;
+        this.hash = left.hash * right.power + right.hash;
+        this.power = left.power * right.power;
+    }
+
+    static Rope of(String string) {
+        return new Rope(string);
+    }
+
+    boolean isChunk() {
+        return chunk != null;
+    }
+
+    /**
+     * Returns a hash code equal to the {@link String#hashCode} of the contents of this rope.
+     */
+    int stringHashCode() {
+        return hash;
+    }
+
+    static Rope concat(Rope rope1, Rope rope2) {
+        if (rope1.length == 0) {
+            return rope2;
+        }
+        if (rope2.length == 0) {
+            return rope1;
+        }
+        if (rope1.length + rope2.length <= CHUNK_SIZE
+                || Character.isHighSurrogate(rope1.lastChar()) && Character.isLowSurrogate(rope2.firstChar())) {
+            // a surrogate pair split across chunks would count as two code points, so it is joined into one chunk
+            return new Rope(rope1.toString() + rope2.toString());
+        }
+        return join(rope1, rope2);
+    }
+
+    /**
+     * Returns the code points from {@code beginIndex} (inclusive) to {@code endIndex} (exclusive).
+     *
+     * @throws IndexOutOfBoundsException       if an index is negative or larger than the code point count
+     * @throws StringIndexOutOfBoundsException if {@code beginIndex} is larger than {@code endIndex}
+     */
+    Rope substring(int beginIndex, int endIndex) {
+        if (beginIndex < 0 || beginIndex > codePointCount || endIndex < 0 || endIndex > codePointCount) {
+            throw new IndexOutOfBoundsException("[" + beginIndex + ", " + endIndex + ") of " + codePointCount);
+        }
+        if (beginIndex > endIndex) {
+            throw new StringIndexOutOfBoundsException(endIndex - beginIndex);
+        }
+        if (beginIndex == 0 && endIndex == codePointCount) {
+            return this;
+        }
+        if (chunk != null) {
+            int beginOffset = chunk.offsetByCodePoints(0, beginIndex);
+            int endOffset = chunk.offsetByCodePoints(beginOffset, endIndex - beginIndex);
+            return new Rope(chunk.substring(beginOffset, endOffset));
+        }
+        int leftCount = left.codePointCount;
+        if (endIndex <= leftCount) {
+            return left.substring(beginIndex, endIndex);
+        } else if (beginIndex >= leftCount) {
+            return right.substring(beginIndex - leftCount, endIndex - leftCount);
+        } else {
+            return concat(left.substring(beginIndex, leftCount), right.substring(0, endIndex - leftCount));
+        }
+    }
+
+    /**
+     * Returns the code point at the given code point index.
+     */
+    int codePointAt(int index) {
+        if (chunk != null) {
+            return chunk.codePointAt(chunk.offsetByCodePoints(0, index));
+        }
+        return index < left.codePointCount ? left.codePointAt(index) : right.codePointAt(index - left.codePointCount);
+    }
+
+    private char firstChar() {
+        return chunk != null ? chunk.charAt(0) : left.firstChar();
+    }
+
+    private char lastChar() {
+        return chunk != null ? chunk.charAt(length - 1) : right.lastChar();
+    }
+
+    /**
+     * Joins two non-empty ropes, rebalancing the tree along the spine of the deeper one.
+     */
+    private static Rope join(Rope rope1, Rope rope2) {
+        if (rope1.chunk != null && rope2.chunk != null && rope1.length + rope2.length <= CHUNK_SIZE) {
+            return new Rope(rope1.chunk + rope2.chunk);
+        }
+        // merge a short chunk into the adjacent short subtree rather than adding a level for it
+        if (rope1.chunk == null && rope2.chunk != null && rope1.right.length + rope2.length <= CHUNK_SIZE) {
+            return join(rope1.left, new Rope(rope1.right.toString() + rope2.chunk));
+        }
+        if (rope1.chunk != null && rope2.chunk == null && rope1.length + rope2.left.length <= CHUNK_SIZE) {
+            return join(new Rope(rope1.chunk + rope2.left.toString()), rope2.right);
+        }
+        if (rope1.depth > rope2.depth + 1) {
+            return balance(rope1.left, join(rope1.right, rope2));
+        } else if (rope2.depth > rope1.depth + 1) {
+            return balance(join(rope1, rope2.left), rope2.right);
+        } else {
+            return new Rope(rope1, rope2);
+        }
+    }
+
+    private static Rope balance(Rope left, Rope right) {
+        if (left.depth > right.depth + 1) {
+            if (left.left.depth >= left.right.depth) {
+                return new Rope(left.left, new Rope(left.right, right));
+            } else {
+                return new Rope(new Rope(left.left, left.right.left), new Rope(left.right.right, right));
+            }
+        } else if (right.depth > left.depth + 1) {
+            if (right.right.depth >= right.left.depth) {
+                return new Rope(new Rope(left, right.left), right.right);
+            } else {
+                return new Rope(new Rope(left, right.left.left), new Rope(right.left.right, right.right));
+            }
+        } else {
+            return new Rope(left, right);
+        }
+    }
+
+    private void appendTo(StringBuilder sb) {
+        if (chunk != null) {
+            sb.append(chunk);
+        } else {
+            left.appendTo(sb);
+            right.appendTo(sb);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (chunk != null) {
+            return chunk;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        appendTo(sb);
+        return sb.toString();
+    }
+}
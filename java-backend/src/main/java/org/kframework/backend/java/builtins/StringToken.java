@@ -5,6 +5,7 @@ import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.backend.java.util.WeakInternTable;
 import org.kframework.kil.ASTNode;
 import org.kframework.utils.StringUtil;
 
@@ -14,13 +15,15 @@ import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A string token. String tokens represent a sequence of unicode code points.
  * In this regard they differ from the underlying String class they are built
  * off of in Java because Java Strings are a sequence of 16-bit UTF-16 characters.
+ * <p>
+ * Long strings resulting from {@link #concat} and {@link #substring} are represented by a {@link Rope} and are
+ * only flattened into a {@code String} when {@link #stringValue()} is called. Such tokens are not cached, so
+ * they are compared by contents rather than by identity.
  *
  * @author DwightG
  */
@@ -28,14 +31,25 @@ public final class StringToken extends Token {
 
     public static final Sort SORT = Sort.STRING;
 
-    /* StringToken cache */
-    private static final Map<String, StringToken> cache = new ConcurrentHashMap<>();
+    /* Number of recently used tokens kept alive by the cache, so that short-lived tokens are not re-created */
+    private static final int RETAINED_TOKENS = 1 << 12;
 
-    /* String value wrapped by this StringToken */
-    private final String value;
+    /* StringToken cache; tokens are dropped from it once they are no longer reachable */
+    private static final WeakInternTable<String, StringToken> cache = new WeakInternTable<>(RETAINED_TOKENS);
+
+    /* String value wrapped by this StringToken; computed lazily from the rope for rope-based tokens */
+    private volatile String value;
+
+    /* Rope representation of this StringToken, or null if it is a cached, flat token */
+    private final transient Rope rope;
 
     private StringToken(String value) {
         this.value = value;
+        this.rope = null;
+    }
+
+    private StringToken(Rope rope) {
+        this.rope = rope;
     }
 
     /**
@@ -46,7 +60,54 @@ public final class StringToken extends Token {
      * @param value A UTF-16 representation of this sequence of code points.
      */
     public static StringToken of(String value) {
-        return cache.computeIfAbsent(value, StringToken::new);
+        return cache.intern(value, StringToken::new);
+    }
+
+    private static StringToken of(Rope rope) {
+        return rope.isChunk() && rope.length <= Rope.CHUNK_SIZE ? of(rope.toString()) : new StringToken(rope);
+    }
+
+    private Rope rope() {
+        return rope != null ? rope : Rope.of(value);
+    }
+
+    /**
+     * Returns the concatenation of this string and {@code other}.
+     */
+    public StringToken concat(StringToken other) {
+        if (rope == null && other.rope == null && value.length() + other.value.length() <= Rope.CHUNK_SIZE) {
+            return of(value + other.value);
+        }
+        return of(Rope.concat(rope(), other.rope()));
+    }
+
+    /**
+     * Returns the code points of this string from {@code beginIndex} (inclusive) to {@code endIndex} (exclusive).
+     *
+     * @throws IndexOutOfBoundsException       if an index is negative or larger than {@link #length()}
+     * @throws StringIndexOutOfBoundsException if {@code beginIndex} is larger than {@code endIndex}
+     */
+    public StringToken substring(int beginIndex, int endIndex) {
+        if (rope == null) {
+            int beginOffset = value.offsetByCodePoints(0, beginIndex);
+            int endOffset = value.offsetByCodePoints(0, endIndex);
+            return of(value.substring(beginOffset, endOffset));
+        }
+        return of(rope.substring(beginIndex, endIndex));
+    }
+
+    /**
+     * Returns the number of code points in this string.
+     */
+    public int length() {
+        return rope != null ? rope.codePointCount : value.codePointCount(0, value.length());
+    }
+
+    /**
+     * Returns the code point at the given code point index.
+     */
+    public int codePointAt(int index) {
+        return rope != null ? rope.codePointAt(index) : value.codePointAt(value.offsetByCodePoints(0, index));
     }
 
     /**
@@ -69,6 +130,11 @@ public final class StringToken extends Token {
      * this StringToken.
      */
     public String stringValue() {
+        String value = this.value;
+        if (value == null) {
+            value = rope.toString();
+            this.value = value;
+        }
         return value;
     }
 
@@ -81,7 +147,7 @@ public final class StringToken extends Token {
         ByteBuffer buffer = Charset.forName("ISO-8859-1")
             .newEncoder()
             .onUnmappableCharacter(CodingErrorAction.REPORT)
-            .encode(CharBuffer.wrap(value));
+            .encode(CharBuffer.wrap(stringValue()));
         byte[] bytes = new byte[buffer.remaining()];
         buffer.get(bytes);
         return bytes;
@@ -97,18 +163,25 @@ public final class StringToken extends Token {
      */
     @Override
     public String value() {
-        return StringUtil.enquoteKString(value);
+        return StringUtil.enquoteKString(stringValue());
     }
 
     @Override
     protected int computeHash() {
-        return value.hashCode();
+        return rope != null ? rope.stringHashCode() : value.hashCode();
     }
 
     @Override
     public boolean equals(Object object) {
-        // cached
-        return this == object;
+        if (this == object) {
+            return true;
+        }
+        // cached, unless one of them is rope-based
+        if (!(object instanceof StringToken) || rope == null && ((StringToken) object).rope == null) {
+            return false;
+        }
+        StringToken stringToken = (StringToken) object;
+        return hashCode() == stringToken.hashCode() && stringValue().equals(stringToken.stringValue());
     }
 
     @Override
@@ -121,12 +194,19 @@ public final class StringToken extends Token {
         visitor.visit(this);
     }
 
+    /**
+     * Serializes rope-based tokens as flat tokens.
+     */
+    private Object writeReplace() {
+        return rope != null ? of(stringValue()) : this;
+    }
+
     /**
      * Returns the cached instance rather than the de-serialized instance if there is a cached
      * instance.
      */
     private Object readResolve() {
-        return cache.computeIfAbsent(value, v -> this);
+        return cache.intern(value, v -> this);
     }
 
 }
@@ -6,6 +6,7 @@ import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
+import org.kframework.backend.java.util.WeakInternTable;
 import org.kframework.kil.ASTNode;
 
 import java.util.Map;
@@ -20,8 +21,8 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class UninterpretedToken extends Token {
 
-    /* Token cache */
-    private static final Map<Sort, Map<String, UninterpretedToken>> cache = new ConcurrentHashMap<>();
+    /* Token cache; tokens are dropped from it once they are no longer reachable */
+    private static final Map<Sort, WeakInternTable<String, UninterpretedToken>> cache = new ConcurrentHashMap<>();
 
     private final Sort sort;
     private final String value;
@@ -37,8 +38,11 @@ public final class UninterpretedToken extends Token {
      * this method with the same sort and value return the same {@code UninterpretedToken} object).
      */
     public static UninterpretedToken of(Sort sort, String value) {
-        Map<String, UninterpretedToken> sortCache = cache.computeIfAbsent(sort, p -> new ConcurrentHashMap<>());
-        return sortCache.computeIfAbsent(value, v -> new UninterpretedToken(sort, v));
+        return sortCache(sort).intern(value, v -> new UninterpretedToken(sort, v));
+    }
+
+    private static WeakInternTable<String, UninterpretedToken> sortCache(Sort sort) {
+        return cache.computeIfAbsent(sort, s -> new WeakInternTable<>());
     }
 
     @Override
@@ -83,8 +87,7 @@ public final class UninterpretedToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        Map<String, UninterpretedToken> sortCache = cache.computeIfAbsent(sort, p -> new ConcurrentHashMap<>());
-        return sortCache.computeIfAbsent(value, v -> this);
+        return sortCache(sort).intern(value, v -> this);
     }
 
 }
@@ -0,0 +1,120 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins.primitives;
+
+/**
+ * Overflow-detecting arithmetic on integers of a fixed bit width of at most 64 bits, represented as {@code long}s
+ * sign-extended from that bit width.
+ */
+public final class Longs {
+
+    private Longs() { }
+
+    /**
+     * Returns {@code value} truncated to {@code bitwidth} bits and sign-extended back to 64 bits.
+     */
+    public static long signExtend(long value, int bitwidth) {
+        int shift = Long.SIZE - bitwidth;
+        return value << shift >> shift;
+    }
+
+    /**
+     * Returns the last {@code bitwidth} bits of {@code value}, zero-extended to 64 bits.
+     */
+    public static long zeroExtend(long value, int bitwidth) {
+        return bitwidth == Long.SIZE ? value : value & ((1L << bitwidth) - 1);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedAdd(long a, long b, int bitwidth) {
+        long result = a + b;
+        if (bitwidth == Long.SIZE) {
+            return new OverflowArithmeticResult<>(result, ((a ^ result) & (b ^ result)) < 0);
+        }
+        return signedResult(result, bitwidth);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedUnsignedAdd(long a, long b, int bitwidth) {
+        long unsignedA = zeroExtend(a, bitwidth);
+        long result = unsignedA + zeroExtend(b, bitwidth);
+        if (bitwidth == Long.SIZE) {
+            return new OverflowArithmeticResult<>(result, Long.compareUnsigned(result, unsignedA) < 0);
+        }
+        return unsignedResult(result, bitwidth);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedSub(long a, long b, int bitwidth) {
+        long result = a - b;
+        if (bitwidth == Long.SIZE) {
+            return new OverflowArithmeticResult<>(result, ((a ^ b) & (a ^ result)) < 0);
+        }
+        return signedResult(result, bitwidth);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedUnsignedSub(long a, long b, int bitwidth) {
+        return new OverflowArithmeticResult<>(
+                signExtend(a - b, bitwidth),
+                Long.compareUnsigned(zeroExtend(a, bitwidth), zeroExtend(b, bitwidth)) < 0);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedMul(long a, long b, int bitwidth) {
+        long result = a * b;
+        boolean overflow = multiplyHigh(a, b) != result >> (Long.SIZE - 1)
+                || result != signExtend(result, bitwidth);
+        return new OverflowArithmeticResult<>(signExtend(result, bitwidth), overflow);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedUnsignedMul(long a, long b, int bitwidth) {
+        long unsignedA = zeroExtend(a, bitwidth);
+        long unsignedB = zeroExtend(b, bitwidth);
+        long result = unsignedA * unsignedB;
+        boolean overflow = unsignedMultiplyHigh(unsignedA, unsignedB) != 0
+                || result != zeroExtend(result, bitwidth);
+        return new OverflowArithmeticResult<>(signExtend(result, bitwidth), overflow);
+    }
+
+    public static OverflowArithmeticResult<Long> checkedDiv(long a, long b, int bitwidth) {
+        return new OverflowArithmeticResult<>(signExtend(a / b, bitwidth), divisionOverflows(a, b, bitwidth));
+    }
+
+    public static OverflowArithmeticResult<Long> checkedRem(long a, long b, int bitwidth) {
+        /* the overflow flag for srem is set if the associated sdiv overflows */
+        return new OverflowArithmeticResult<>(a % b, divisionOverflows(a, b, bitwidth));
+    }
+
+    /**
+     * The only signed division which overflows is the minimum value divided by -1.
+     */
+    private static boolean divisionOverflows(long a, long b, int bitwidth) {
+        return b == -1 && a == signExtend(1L << (bitwidth - 1), bitwidth);
+    }
+
+    private static OverflowArithmeticResult<Long> signedResult(long result, int bitwidth) {
+        long truncated = signExtend(result, bitwidth);
+        return new OverflowArithmeticResult<>(truncated, truncated != result);
+    }
+
+    private static OverflowArithmeticResult<Long> unsignedResult(long result, int bitwidth) {
+        return new OverflowArithmeticResult<>(signExtend(result, bitwidth), result != zeroExtend(result, bitwidth));
+    }
+
+    /**
+     * Returns the most significant 64 bits of the 128-bit signed product of {@code a} and {@code b}.
+     */
+    static long multiplyHigh(long a, long b) {
+        long a1 = a >> 32;
+        long a2 = a & 0xFFFFFFFFL;
+        long b1 = b >> 32;
+        long b2 = b & 0xFFFFFFFFL;
+        long low = a2 * b2;
+        long t = a1 * b2 + (low >>> 32);
+        long middle = (t & 0xFFFFFFFFL) + a2 * b1;
+        return a1 * b1 + (t >> 32) + (middle >> 32);
+    }
+
+    /**
+     * Returns the most significant 64 bits of the 128-bit unsigned product of {@code a} and {@code b}.
+     */
+    static long unsignedMultiplyHigh(long a, long b) {
+        return multiplyHigh(a, b) + ((a >> (Long.SIZE - 1)) & b) + ((b >> (Long.SIZE - 1)) & a);
+    }
+
+}
@@ -241,7 +241,20 @@ public class KOREtoBackendKIL extends org.kframework.kore.AbstractConstructors<o
     @Override
     public <KK extends org.kframework.kore.K> Term KSequence(List<KK> items, Att att) {
         KSequence.Builder builder = KSequence.builder();
-        items.stream().map(this::convert).forEach(builder::concatenate);
+        for (org.kframework.kore.K item : items) {
+            builder.concatenate(convert(item));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Converts a KORE sequence by walking its items once, without materializing its nested {@code ~>} view.
+     */
+    private Term KSequence(org.kframework.kore.KSequence kseq) {
+        KSequence.Builder builder = KSequence.builder();
+        for (org.kframework.kore.K item : kseq.asIterable()) {
+            builder.concatenate(convert(item));
+        }
         return builder.build();
     }
 
@@ -290,7 +303,7 @@ public class KOREtoBackendKIL extends org.kframework.kore.AbstractConstructors<o
         else if (k instanceof org.kframework.kore.KApply) {
             return KApply1(((KApply) k).klabel(), ((KApply) k).klist(), k.att());
         } else if (k instanceof org.kframework.kore.KSequence)
-            return KSequence(((org.kframework.kore.KSequence) k).items(), k.att());
+            return KSequence((org.kframework.kore.KSequence) k);
         else if (k instanceof org.kframework.kore.KVariable)
             return KVariable(((org.kframework.kore.KVariable) k).name(), k.att());
         else if (k instanceof org.kframework.kore.InjectedKLabel)
@@ -172,9 +172,9 @@ public class ConstrainedTerm extends JavaSymbolicObject {
     /**
      * Unifies this constrained term with another constrained term. Returns a list of solutions for the unification problem.
      * Each solution is a triple of (1) the unification constraint, (2) whether the constraint is a matching of the variables of the argument constrainedTerm,
-     * and (3) the inner rewrites from the constrainedTerm.
+     * and (3) the inner rewrites from the constrainedTerm, ordered by {@link LocalRewriteTerm#PATH_ORDER}.
      */
-    public List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> unify(
+    public List<Triple<ConjunctiveFormula, Boolean, List<LocalRewriteTerm>>> unify(
             ConstrainedTerm constrainedTerm,
             Set<Variable> variables) {
         /* unify the subject term and the pattern term without considering those associated constraints */
@@ -195,7 +195,7 @@ public class ConstrainedTerm extends JavaSymbolicObject {
                 context);
     }
 
-    public static List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> evaluateConstraints(
+    public static List<Triple<ConjunctiveFormula, Boolean, List<LocalRewriteTerm>>> evaluateConstraints(
             ConjunctiveFormula constraint,
             ConjunctiveFormula subjectConstraint,
             ConjunctiveFormula patternConstraint,
@@ -212,11 +212,11 @@ public class ConstrainedTerm extends JavaSymbolicObject {
                 .filter(c -> !c.isFalse())
                 .collect(Collectors.toList());
 
-        List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> solutions = Lists.newArrayList();
+        List<Triple<ConjunctiveFormula, Boolean, List<LocalRewriteTerm>>> solutions = Lists.newArrayList();
         for (ConjunctiveFormula candidate : candidates) {
             candidate = candidate.orientSubstitution(variables);
 
-            Pair<Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>, ConjunctiveFormula> pair = ConstrainedTerm.splitRewrites(candidate);
+            Pair<List<LocalRewriteTerm>, ConjunctiveFormula> pair = ConstrainedTerm.splitRewrites(candidate);
 
             ConjunctiveFormula solution = pair.getRight().addAndSimplify(subjectConstraint, context);
             if (solution.isFalse()) {
@@ -243,13 +243,14 @@ public class ConstrainedTerm extends JavaSymbolicObject {
      * {@link FastRuleMatcher} encodes the information about the inner rewrites (path to rewrite and what to rewrite to) as a boolean predicate in the constraint.
      * This method method reverses the encoding.
      */
-    private static Pair<Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>, ConjunctiveFormula> splitRewrites(ConjunctiveFormula constraint) {
+    private static Pair<List<LocalRewriteTerm>, ConjunctiveFormula> splitRewrites(ConjunctiveFormula constraint) {
         Map<Boolean, List<Equality>> split = constraint.equalities().stream()
                 .collect(Collectors.partitioningBy(e -> e.leftHandSide() instanceof LocalRewriteTerm));
-        Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term> rewrites = split.get(true).stream()
+        List<LocalRewriteTerm> rewrites = split.get(true).stream()
                 .map(Equality::leftHandSide)
                 .map(LocalRewriteTerm.class::cast)
-                .collect(Collectors.toMap(e -> e.path, e -> e.rewriteRHS));
+                .sorted(LocalRewriteTerm.PATH_ORDER)
+                .collect(Collectors.toList());
         ConjunctiveFormula pureConstraint = ConjunctiveFormula.of(
                 constraint.substitution(),
                 PersistentUniqueList.from(split.get(false)),
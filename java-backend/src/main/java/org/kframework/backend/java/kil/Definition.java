@@ -93,6 +93,11 @@ public class Definition extends JavaSymbolicObject {
 
     private transient KExceptionManager kem;
 
+    /**
+     * the symbol table resolving the labels of this definition; rebuilt on first use after deserialization
+     */
+    private transient volatile SymbolTable symbolTable;
+
     // new indexing data
     /**
      * the automaton rule used by {@link org.kframework.backend.java.symbolic.FastRuleMatcher}
@@ -105,7 +110,7 @@ public class Definition extends JavaSymbolicObject {
 
     public final Map<Integer, Integer> reverseRuleTable = new HashMap<>();
 
-    private final Map<KItem.CacheTableColKey, KItem.CacheTableValue> sortCacheTable = new HashMap<>();
+    private transient SortCache sortCache = new SortCache();
 
     public Definition(org.kframework.definition.Module module, KExceptionManager kem) {
         kLabels = new HashSet<>();
@@ -439,16 +444,51 @@ public class Definition extends JavaSymbolicObject {
         throw new UnsupportedOperationException();
     }
 
-    public KItem.CacheTableValue getSortCacheValue(KItem.CacheTableColKey key) {
-        synchronized (sortCacheTable) {
-            return sortCacheTable.get(key);
+    KItem.CacheTableValue getSortCacheValue(int[] key) {
+        return sortCache().get(key);
+    }
+
+    void putSortCacheValue(int[] key, KItem.CacheTableValue value) {
+        sortCache().put(key, value);
+    }
+
+    private SortCache sortCache() {
+        // the cache is not serialized; racing threads may each create one, and all but one are dropped
+        if (sortCache == null) {
+            sortCache = new SortCache();
         }
+        return sortCache;
     }
 
-    public void putSortCacheValue(KItem.CacheTableColKey key, KItem.CacheTableValue value) {
-        synchronized (sortCacheTable) {
-            sortCacheTable.put(key, value);
+    /**
+     * Returns the symbol table of this definition, building it on first use from the labels declared in it.
+     * <p>
+     * This method is final, so that mocked definitions also get a symbol table, built from the labels their
+     * mocked {@link #declaredKLabels()} returns.
+     */
+    final SymbolTable symbolTable() {
+        SymbolTable symbolTable = this.symbolTable;
+        if (symbolTable == null) {
+            synchronized (this) {
+                symbolTable = this.symbolTable;
+                if (symbolTable == null) {
+                    symbolTable = new SymbolTable(declaredKLabels().stream()
+                            .map(label -> KLabelConstant.intern(label, this))
+                            .collect(Collectors.toList()));
+                    this.symbolTable = symbolTable;
+                }
+            }
         }
+        return symbolTable;
+    }
+
+    /**
+     * Returns the labels which have a signature or attributes in this definition.
+     */
+    Set<String> declaredKLabels() {
+        Set<String> labels = new HashSet<>(definitionData.signatures.keySet());
+        labels.addAll(definitionData.kLabelAttributes.keySet());
+        return labels;
     }
 
     // added from context
@@ -9,6 +9,8 @@ import org.kframework.backend.java.symbolic.Equality.EqualityOperations;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 import org.kframework.backend.java.symbolic.SMTOperations;
 import org.kframework.backend.java.symbolic.Stage;
+import org.kframework.backend.java.util.Coverage;
+import org.kframework.backend.java.util.RewriteMetrics;
 import org.kframework.backend.java.util.Z3Wrapper;
 import org.kframework.kast.Kast;
 import org.kframework.krun.KRunOptions;
@@ -35,6 +37,8 @@ public class GlobalContext implements Serializable {
     private final transient Map<String, MethodHandle> hookProvider;
     public final transient FileUtil files;
     public final transient GlobalOptions globalOptions;
+    public final transient RewriteMetrics metrics;
+    public final transient Coverage coverage;
 
     public GlobalContext(
             FileSystem fs,
@@ -52,8 +56,10 @@ public class GlobalContext implements Serializable {
         this.kem = kem;
         this.hookProvider = hookProvider;
         this.files = files;
+        this.metrics = RewriteMetrics.of(krunOptions);
+        this.coverage = Coverage.of(krunOptions);
         this.equalityOps = new EqualityOperations(() -> def);
-        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files));
+        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files), metrics);
         this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions);
         this.stage = stage;
     }
@@ -49,6 +49,16 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>> extend
     volatile transient Boolean isNormal = null;
     volatile transient Set<Term> userVariableSet = null;
 
+    /**
+     * A Bloom filter summary of {@link #variableSet()}: the bit {@link #variableMask(Variable)} is set for each
+     * variable of this object. It is much cheaper to compute and to combine than the precise set, and it is
+     * enough to rule out most substitutions which do not apply to this object.
+     * <p>
+     * {@code hasVariableMask} is written after {@code variableMask} and read before it.
+     */
+    transient long variableMask;
+    volatile transient boolean hasVariableMask = false;
+
     protected JavaSymbolicObject() {
         super();
     }
@@ -94,7 +104,15 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>> extend
      * Returns true if a call to {@link org.kframework.backend.java.kil.Term#substituteAndEvaluate(java.util.Map, TermContext)} may simplify this term.
      */
     public boolean canSubstituteAndEvaluate(Map<Variable, ? extends Term> substitution) {
-        return (!substitution.isEmpty() && !isGround()) || !isNormal();
+        return canSubstituteAndEvaluate(substitution, variableMask(substitution.keySet()));
+    }
+
+    /**
+     * Same as {@link #canSubstituteAndEvaluate(Map)}, with the {@link #variableMask(Iterable)} of the variables
+     * of {@code substitution} computed once by the caller.
+     */
+    public boolean canSubstituteAndEvaluate(Map<Variable, ? extends Term> substitution, long substitutionMask) {
+        return (!substitution.isEmpty() && (variableMask() & substitutionMask) != 0) || !isNormal();
     }
 
     /**
@@ -117,7 +135,9 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>> extend
      */
     public boolean isGround() {
         if (isGround == null) {
-            if (variableSet == null) {
+            if (hasVariableMask) {
+                isGround = variableMask == 0;
+            } else if (variableSet == null) {
                 new IsGroundFieldInitializer().visitNode(this);
             } else {
                 isGround = variableSet.isEmpty();
@@ -126,6 +146,42 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>> extend
         return isGround;
     }
 
+    /**
+     * Returns the {@link #variableMask(Variable)}s of the variables in this {@code JavaSymbolicObject} or'ed
+     * together. The mask is zero iff this object is ground.
+     */
+    public long variableMask() {
+        if (!hasVariableMask) {
+            if (isGround != null && isGround) {
+                setVariableMask(0);
+            } else {
+                new VariableMaskFieldInitializer().visitNode(this);
+            }
+        }
+        return variableMask;
+    }
+
+    void setVariableMask(long variableMask) {
+        this.variableMask = variableMask;
+        hasVariableMask = true;
+    }
+
+    /**
+     * Returns the bit representing {@code variable} in the variable masks. Equal variables have the same bit, but
+     * different variables may share one.
+     */
+    public static long variableMask(Variable variable) {
+        return 1L << ((variable.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - 6));
+    }
+
+    public static long variableMask(Iterable<Variable> variables) {
+        long mask = 0;
+        for (Variable variable : variables) {
+            mask |= variableMask(variable);
+        }
+        return mask;
+    }
+
     /**
      * Returns true if this {@code JavaSymbolicObject} has no functions or
      * patterns, false otherwise.
@@ -137,6 +193,52 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>> extend
         return isNormal;
     }
 
+    /**
+     * Initializes {@link #isGround()}, {@link #isNormal()} and {@link #variableMask()} of this newly built object from those of its
+     * immediate {@code children}, if they are already known to hold for all of them, so that a term built
+     * bottom-up from subterms of a previous term does not have to be traversed again to compute them. Flags
+     * which cannot be decided from the children are left to be computed lazily.
+     */
+    public void initializeFlagsFromChildren(Iterable<? extends Term> children) {
+        boolean isGround = this.isGround == null;
+        boolean isNormal = this.isNormal == null;
+        boolean hasVariableMask = !this.hasVariableMask;
+        long variableMask = 0;
+        for (Term child : children) {
+            isGround = isGround && isKnownGround(child);
+            isNormal = isNormal && isKnownNormal(child);
+            if (hasVariableMask) {
+                if (child instanceof Variable) {
+                    variableMask |= variableMask((Variable) child);
+                } else if (child.hasVariableMask) {
+                    variableMask |= child.variableMask;
+                } else if (!(child instanceof Token || child instanceof KLabelConstant)) {
+                    hasVariableMask = false;
+                }
+            }
+        }
+        if (hasVariableMask) {
+            setVariableMask(variableMask);
+            isGround = isGround || this.isGround == null && variableMask == 0;
+        }
+        if (isGround) {
+            this.isGround = true;
+        }
+        if (isNormal) {
+            this.isNormal = !(this instanceof KItemProjection)
+                    && !(this instanceof KItem && ((KItem) this).isSymbolic());
+        }
+    }
+
+    private static boolean isKnownGround(Term term) {
+        return term instanceof Token || term instanceof KLabelConstant || Boolean.TRUE.equals(term.isGround);
+    }
+
+    private static boolean isKnownNormal(Term term) {
+        return term instanceof Token || term instanceof KLabelConstant || term instanceof Variable
+                || Boolean.TRUE.equals(term.isNormal);
+    }
+
     /**
      * Returns a {@code Set} view of the user variables (ie terms of sort Variable) in this
      * {@code JavaSymbolicObject}.
@@ -10,7 +10,7 @@ import org.kframework.backend.java.builtins.MetaK;
 import org.kframework.backend.java.builtins.SortMembership;
 import org.kframework.backend.java.symbolic.*;
 import org.kframework.backend.java.util.ImpureFunctionException;
-import org.kframework.backend.java.util.Profiler;
+import org.kframework.backend.java.util.RewriteMetrics;
 import org.kframework.backend.java.util.RewriteEngineUtils;
 import org.kframework.backend.java.util.Subsorts;
 import org.kframework.backend.java.util.Constants;
@@ -25,7 +25,6 @@ import org.kframework.utils.errorsystem.KEMException;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -156,9 +155,9 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         }
 
         Definition definition = global.getDefinition();
+        int[] cacheKey = enableCache ? SortCache.key((KLabelConstant) kLabel, (KList) kList) : null;
         if (enableCache) {
-            CacheTableColKey cacheTabColKey = new CacheTableColKey((KLabelConstant) kLabel, (KList) kList);
-            CacheTableValue cacheTabVal = definition.getSortCacheValue(cacheTabColKey);
+            CacheTableValue cacheTabVal = definition.getSortCacheValue(cacheKey);
             if (cacheTabVal != null) {
                 sort = cacheTabVal.sort;
                 isExactSort = cacheTabVal.isExactSort;
@@ -263,7 +262,7 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         CacheTableValue cacheTabVal = new CacheTableValue(sort, isExactSort, possibleSorts);
 
         if (enableCache) {
-            definition.putSortCacheValue(new CacheTableColKey(kLabelConstant, kList), cacheTabVal);
+            definition.putSortCacheValue(cacheKey, cacheTabVal);
         }
     }
 
@@ -396,7 +395,8 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
             Definition definition = context.definition();
             KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
 
-            Profiler.startTimer(Profiler.getTimerForFunction(kLabelConstant));
+            RewriteMetrics metrics = context.global().metrics;
+            long start = metrics.startFunction(kLabelConstant);
 
             try {
                 KList kList = (KList) kItem.kList;
@@ -553,7 +553,7 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
                 }
                 return kItem;
             } finally {
-                Profiler.stopTimer(Profiler.getTimerForFunction(kLabelConstant));
+                metrics.stopFunction(kLabelConstant, start);
             }
         }
     }
@@ -569,6 +569,19 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         return anywhereApplicable;
     }
 
+    /**
+     * Returns true if this {@code KItem} is a sequence starting with {@code .K}, which evaluation normalizes.
+     */
+    public boolean isEmptyKSequenceHead() {
+        if (!(kLabel instanceof KLabelConstant && ((KLabelConstant) kLabel).name().equals(KLabels.KSEQ)
+                && kList instanceof KList && ((KList) kList).concreteSize() > 0)) {
+            return false;
+        }
+        Term head = ((KList) kList).get(0);
+        return head instanceof KItem && ((KItem) head).kLabel.toString().equals(KLabels.DOTK)
+                || head.equals(KSequence.EMPTY);
+    }
+
     /**
      * Apply [anywhere] associated with this {@code KItem}.
      *
@@ -577,9 +590,7 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
      */
     public Term applyAnywhereRules(TermContext context) {
         // apply a .K ~> K => K normalization
-        if ((kLabel instanceof KLabelConstant) && ((KLabelConstant) kLabel).name().equals(KLabels.KSEQ)
-                && kList instanceof KList
-                && (((KList) kList).get(0) instanceof KItem && ((KItem) ((KList) kList).get(0)).kLabel.toString().equals(KLabels.DOTK) || ((KList) kList).get(0).equals(KSequence.EMPTY))) {
+        if (isEmptyKSequenceHead()) {
             return ((KList) kList).get(1);
         }
 
@@ -722,62 +733,6 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         return ((KList) kList).getContents().subList(inputCount, ((KList) kList).getContents().size());
     }
 
-    /**
-     * The sort information of this {@code KItem}, namely {@link KItem#sort} and
-     * {@link KItem#isExactSort}, depends only on the {@code KLabelConstant} and
-     * the sorts of its children.
-     */
-    static final class CacheTableColKey {
-
-        final KLabelConstant kLabelConstant;
-        final Sort[] sorts;
-        final boolean[] bools;
-        final int hashCode;
-
-        public CacheTableColKey(KLabelConstant kLabelConstant, KList kList) {
-            this.kLabelConstant = kLabelConstant;
-            sorts = new Sort[kList.concreteSize()];
-            bools = new boolean[kList.concreteSize()];
-            int idx = 0;
-            for (Term term : kList) {
-                if (term instanceof KItem) {
-                    KItem kItem = (KItem) term;
-                    if (kItem.kLabel instanceof KLabelInjection) {
-                        term = ((KLabelInjection) kItem.kLabel).term();
-                    }
-                }
-                sorts[idx] = term.sort();
-                bools[idx] = term.isExactSort();
-                idx++;
-            }
-            hashCode = computeHash();
-        }
-
-        private int computeHash() {
-            int hashCode = 1;
-            hashCode = hashCode * Constants.HASH_PRIME + kLabelConstant.hashCode();
-            hashCode = hashCode * Constants.HASH_PRIME + Arrays.deepHashCode(sorts);
-            hashCode = hashCode * Constants.HASH_PRIME + Arrays.hashCode(bools);
-            return hashCode;
-        }
-
-        @Override
-        public int hashCode() {
-            return hashCode;
-        }
-
-        @Override
-        public boolean equals(Object object) {
-            if (!(object instanceof CacheTableColKey)) {
-                return false;
-            }
-            CacheTableColKey key = (CacheTableColKey) object;
-            return kLabelConstant.equals(key.kLabelConstant)
-                    && Arrays.deepEquals(sorts, key.sorts)
-                    && Arrays.equals(bools, key.bools);
-        }
-    }
-
     /**
      * When serializing a KItem, compute its sort so that we don't end up serializing the TermContext
      *
@@ -112,6 +112,20 @@ public class KLabelConstant extends KLabel implements org.kframework.kore.KLabel
      * @return AST term representation the the KLabel;
      */
     public static KLabelConstant of(String label, Definition definition) {
+        SymbolTable symbolTable = definition.symbolTable();
+        KLabelConstant kLabel = symbolTable.get(label);
+        if (kLabel == null) {
+            kLabel = intern(label, definition);
+            symbolTable.add(kLabel);
+        }
+        return kLabel;
+    }
+
+    /**
+     * Returns the unique {@code KLabelConstant} for label among the definitions sharing its signatures and
+     * attributes. Used to populate the {@link SymbolTable} of each definition.
+     */
+    static KLabelConstant intern(String label, Definition definition) {
         return cache.computeIfAbsent(Pair.of(definition.signaturesOf(label), definition.kLabelAttributesOf(label)), p -> new ConcurrentHashMap<>())
                 .computeIfAbsent(label, l -> new KLabelConstant(
                         l,
@@ -1,25 +1,56 @@
 // Copyright (c) 2015-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.kil;
 
-import org.apache.commons.lang3.tuple.Pair;
-import scala.collection.immutable.List;
-
+import java.util.Arrays;
+import java.util.Comparator;
 
 /**
  * {@link Term} representation of a local rewrite (path in the subject to the rewrite, and the right-hand-side of the rewrite).
  * It can be stored in a {@link org.kframework.backend.java.symbolic.ConjunctiveFormula}.
+ * <p>
+ * The path is stored from the top of the subject down. Each step is a position, or an interval of positions for
+ * associative operators, in the children of a term, packed into a {@code long} by {@link #step}.
  */
 public class LocalRewriteTerm extends SMTLibTerm {
 
-    public final scala.collection.immutable.List<Pair<Integer, Integer>> path;
+    /**
+     * Orders local rewrites lexicographically by path, so that rewrites under the same child are adjacent.
+     */
+    public static final Comparator<LocalRewriteTerm> PATH_ORDER = (rw1, rw2) -> {
+        int length = Math.min(rw1.path.length, rw2.path.length);
+        for (int i = 0; i < length; i++) {
+            int c = Long.compare(rw1.path[i], rw2.path[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(rw1.path.length, rw2.path.length);
+    };
+
+    public final long[] path;
     public final Term rewriteRHS;
 
-    public LocalRewriteTerm(List<Pair<Integer, Integer>> path, Term rewriteRHS) {
+    public LocalRewriteTerm(long[] path, Term rewriteRHS) {
         super(null);
         this.path = path;
         this.rewriteRHS = rewriteRHS;
     }
 
+    /**
+     * Returns the path step selecting the children in the interval [{@code begin}, {@code end}).
+     */
+    public static long step(int begin, int end) {
+        return (long) begin << 32 | end & 0xffffffffL;
+    }
+
+    public static int begin(long step) {
+        return (int) (step >>> 32);
+    }
+
+    public static int end(long step) {
+        return (int) step;
+    }
+
     @Override
     public boolean isExactSort() {
         return false;
@@ -42,14 +73,14 @@ public class LocalRewriteTerm extends SMTLibTerm {
 
         LocalRewriteTerm that = (LocalRewriteTerm) o;
 
-        if (!path.equals(that.path)) return false;
+        if (!Arrays.equals(path, that.path)) return false;
         return rewriteRHS.equals(that.rewriteRHS);
 
     }
 
     @Override
     public int computeHash() {
-        return path.hashCode();
+        return Arrays.hashCode(path);
     }
 
     @Override
@@ -0,0 +1,63 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free cache of the sort information of {@link KItem}s. The sort information of a {@code KItem}
+ * depends only on its {@code KLabelConstant} and on the sorts of its children, so entries are keyed by the
+ * ordinal of the label followed by the ordinal and exactness of the sort of each child.
+ * <p>
+ * The cache is direct-mapped: each key has a single slot, and a new entry replaces whatever entry occupied its
+ * slot. Entries are immutable, so readers never need to lock.
+ */
+final class SortCache {
+
+    private static final int CAPACITY = 1 << 16;
+
+    private static final class Entry {
+        final int[] key;
+        final KItem.CacheTableValue value;
+
+        Entry(int[] key, KItem.CacheTableValue value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(CAPACITY);
+
+    /**
+     * Returns the cache key of a {@code KItem} with the given label and children.
+     */
+    static int[] key(KLabelConstant kLabelConstant, KList kList) {
+        int[] key = new int[kList.concreteSize() + 1];
+        key[0] = kLabelConstant.ordinal();
+        int idx = 1;
+        for (Term term : kList) {
+            if (term instanceof KItem) {
+                KItem kItem = (KItem) term;
+                if (kItem.kLabel() instanceof KLabelInjection) {
+                    term = ((KLabelInjection) kItem.kLabel()).term();
+                }
+            }
+            key[idx++] = term.sort().ordinal() << 1 | (term.isExactSort() ? 1 : 0);
+        }
+        return key;
+    }
+
+    KItem.CacheTableValue get(int[] key) {
+        Entry entry = entries.get(index(key));
+        return entry != null && Arrays.equals(entry.key, key) ? entry.value : null;
+    }
+
+    void put(int[] key, KItem.CacheTableValue value) {
+        entries.lazySet(index(key), new Entry(key, value));
+    }
+
+    private static int index(int[] key) {
+        int h = Arrays.hashCode(key);
+        return (h ^ (h >>> 16)) & (CAPACITY - 1);
+    }
+}
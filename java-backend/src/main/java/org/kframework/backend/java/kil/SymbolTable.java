@@ -0,0 +1,86 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import java.util.Collection;
+
+/**
+ * The {@link KLabelConstant}s of a {@link Definition}, indexed by name in an open-addressing hash table.
+ * <p>
+ * The table is built when the first label of the definition is resolved, while the definition is loaded,
+ * so resolving a label declared in the definition is a single probe with no locking. Labels resolved later
+ * (e.g. labels not declared in the definition) are added in place, and the table doubles when it is half full.
+ * Readers racing with an addition may miss the added label; they then add it themselves, which finds it under the
+ * lock.
+ */
+final class SymbolTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /* written in place only under the lock; labels have final fields, so racy readers see them fully built */
+    private volatile KLabelConstant[] slots;
+    private int size;
+
+    SymbolTable(Collection<KLabelConstant> kLabels) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * kLabels.size()) {
+            capacity <<= 1;
+        }
+        KLabelConstant[] slots = new KLabelConstant[capacity];
+        for (KLabelConstant kLabel : kLabels) {
+            if (insert(slots, kLabel)) {
+                size++;
+            }
+        }
+        this.slots = slots;
+    }
+
+    /**
+     * Returns the {@link KLabelConstant} named {@code label}, or {@code null} if it is not in this table.
+     */
+    KLabelConstant get(String label) {
+        KLabelConstant[] slots = this.slots;
+        int mask = slots.length - 1;
+        KLabelConstant kLabel;
+        for (int i = index(label, mask); (kLabel = slots[i]) != null; i = (i + 1) & mask) {
+            if (kLabel.label() == label || kLabel.label().equals(label)) {
+                return kLabel;
+            }
+        }
+        return null;
+    }
+
+    synchronized void add(KLabelConstant kLabel) {
+        KLabelConstant[] current = slots;
+        if (2 * (size + 1) > current.length) {
+            KLabelConstant[] grown = new KLabelConstant[2 * current.length];
+            for (KLabelConstant existing : current) {
+                if (existing != null) {
+                    insert(grown, existing);
+                }
+            }
+            current = grown;
+        }
+        if (insert(current, kLabel)) {
+            size++;
+        }
+        slots = current;
+    }
+
+    private static boolean insert(KLabelConstant[] slots, KLabelConstant kLabel) {
+        int mask = slots.length - 1;
+        int i = index(kLabel.label(), mask);
+        while (slots[i] != null) {
+            if (slots[i].label().equals(kLabel.label())) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = kLabel;
+        return true;
+    }
+
+    private static int index(String label, int mask) {
+        int h = label.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
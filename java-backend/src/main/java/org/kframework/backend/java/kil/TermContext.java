@@ -22,8 +22,8 @@ public class TermContext extends JavaSymbolicObject {
     private final GlobalContext global;
 
     /**
-     * This class shall not be accessed by more than one thread,
-     * so it is made non-thread-safe intentionally.
+     * The forks of a {@link TermContext} which are explored at the same time share its counter (see
+     * {@link #forkSharingFreshCounter()}), so it is synchronized.
      */
     private static class FreshCounter implements Serializable {
         private BigInteger value;
@@ -32,10 +32,20 @@ public class TermContext extends JavaSymbolicObject {
             this.value = value;
         }
 
-        private BigInteger incrementAndGet() {
+        private synchronized BigInteger incrementAndGet() {
             value = value.add(BigInteger.ONE);
             return value;
         }
+
+        private synchronized BigInteger get() {
+            return value;
+        }
+
+        private synchronized void advanceTo(BigInteger value) {
+            if (value.compareTo(this.value) > 0) {
+                this.value = value;
+            }
+        }
     }
 
     private Term topTerm;
@@ -53,7 +63,40 @@ public class TermContext extends JavaSymbolicObject {
      * Forks an identical {@link TermContext}.
      */
     public TermContext fork() {
-        return counter != null ? new TermContext(global, new FreshCounter(counter.value)) : this;
+        return counter != null ? fork(new FreshCounter(counter.get())) : this;
+    }
+
+    /**
+     * Forks a {@link TermContext} which generates fresh constants from the same counter as this one, so that the
+     * forks explored at the same time never generate the same fresh constant.
+     */
+    public TermContext forkSharingFreshCounter() {
+        return counter != null ? fork(counter) : this;
+    }
+
+    private TermContext fork(FreshCounter counter) {
+        TermContext fork = new TermContext(global, counter);
+        fork.topTerm = topTerm;
+        fork.topConstraint = topConstraint;
+        fork.converter = converter;
+        return fork;
+    }
+
+    /**
+     * Advances the fresh counter of this {@link TermContext} past the fresh constants generated in a fork of it.
+     */
+    public void joinFreshCounter(TermContext fork) {
+        if (counter != null && fork.counter != null) {
+            counter.advanceTo(fork.counter.get());
+        }
+    }
+
+    /**
+     * Returns true if fresh constants were generated in {@code fork} since it was forked from this context, provided
+     * no fresh constant was generated in this context since.
+     */
+    public boolean generatedFreshConstants(TermContext fork) {
+        return counter != null && fork.counter != null && fork.counter.get().compareTo(counter.get()) > 0;
     }
 
     public BigInteger freshConstant() {
@@ -64,7 +107,7 @@ public class TermContext extends JavaSymbolicObject {
     }
 
     public BigInteger getCounterValue() {
-        return counter.value;
+        return counter.get();
     }
 
     public Definition definition() {
@@ -0,0 +1,32 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.kframework.backend.java.symbolic.BasicVisitor;
+
+
+public class VariableMaskFieldInitializer extends BasicVisitor {
+
+    private long variableMask = 0;
+
+    @Override
+    public final void visitNode(JavaSymbolicObject node) {
+        if (node.hasVariableMask) {
+            variableMask |= node.variableMask;
+            return;
+        }
+
+        long parentVariableMask = variableMask;
+        variableMask = 0;
+        if (!(node instanceof KLabelConstant || node instanceof Token)) {
+            super.visitNode(node);
+        }
+        node.setVariableMask(variableMask);
+        variableMask |= parentVariableMask;
+    }
+
+    @Override
+    public void visit(Variable variable) {
+        variableMask |= JavaSymbolicObject.variableMask(variable);
+    }
+
+}
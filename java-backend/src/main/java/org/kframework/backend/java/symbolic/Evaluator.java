@@ -1,8 +1,14 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.symbolic;
 
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.BuiltinSet;
 import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.kil.KItemProjection;
+import org.kframework.backend.java.kil.KLabelInjection;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.kil.ASTNode;
@@ -10,11 +16,19 @@ import org.kframework.kil.ASTNode;
 
 /**
  * Evaluates pending functions inside a term.
+ * <p>
+ * Subterms which are known to be normal (i.e. contain no functions or patterns) are not traversed, unless the
+ * definition has [anywhere] rules, which also rewrite normal subterms. The normality of a subterm is cached in it,
+ * so evaluating a term obtained by a rewrite step from an evaluated term only traverses the paths to the rewritten
+ * positions.
  */
 public class Evaluator extends CopyOnWriteTransformer {
 
+    private final boolean skipNormal;
+
     public Evaluator(TermContext context) {
         super(context);
+        this.skipNormal = context.definition().anywhereRules().isEmpty();
     }
 
     public static Term evaluate(Term term, TermContext context) {
@@ -22,11 +36,44 @@ public class Evaluator extends CopyOnWriteTransformer {
         return (Term) term.accept(evaluator);
     }
 
+    @Override
+    public ASTNode transform(BuiltinList builtinList) {
+        return skipNormal && builtinList.isNormal() ? builtinList : super.transform(builtinList);
+    }
+
+    @Override
+    public ASTNode transform(BuiltinMap builtinMap) {
+        return skipNormal && builtinMap.isNormal() ? builtinMap : super.transform(builtinMap);
+    }
+
+    @Override
+    public ASTNode transform(BuiltinSet builtinSet) {
+        return skipNormal && builtinSet.isNormal() ? builtinSet : super.transform(builtinSet);
+    }
+
     @Override
     public ASTNode transform(KItem kItem) {
+        if (skipNormal && kItem.isNormal() && !kItem.isEmptyKSequenceHead()) {
+            return kItem;
+        }
         return ((KItem) super.transform(kItem)).resolveFunctionAndAnywhere(context);
     }
 
+    @Override
+    public ASTNode transform(KLabelInjection kLabelInjection) {
+        return skipNormal && kLabelInjection.isNormal() ? kLabelInjection : super.transform(kLabelInjection);
+    }
+
+    @Override
+    public ASTNode transform(KList kList) {
+        return skipNormal && kList.isNormal() ? kList : super.transform(kList);
+    }
+
+    @Override
+    public ASTNode transform(KSequence kSequence) {
+        return skipNormal && kSequence.isNormal() ? kSequence : super.transform(kSequence);
+    }
+
     @Override
     public ASTNode transform(KItemProjection kItemProjection) {
         return ((KItemProjection) super.transform(kItemProjection)).evaluateProjection();
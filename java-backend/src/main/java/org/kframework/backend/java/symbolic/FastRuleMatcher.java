@@ -20,6 +20,7 @@ import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.RewriteMetrics;
 import org.kframework.builtin.KLabels;
 import org.kframework.kore.KApply;
 import org.kframework.utils.BitSet;
@@ -27,6 +28,7 @@ import org.kframework.utils.BitSet;
 import static org.kframework.Collections.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -71,6 +75,14 @@ public class FastRuleMatcher {
     private boolean continuousSimplification = true;
     private TermContext context;
 
+    /**
+     * The path from the top of the subject to the term being matched, as steps packed by
+     * {@link LocalRewriteTerm#step}. The stack is reused across matches, so descending into a term does not
+     * allocate; a copy is only made when a local rewrite is recorded.
+     */
+    private long[] path = new long[16];
+    private int pathLength = 0;
+
     public static ConjunctiveFormula unify(Term term, Term otherTerm, TermContext context) {
         return new FastRuleMatcher(context.global(), 1).unifyEquality(term, otherTerm, false, false, true, context);
     }
@@ -104,36 +116,70 @@ public class FastRuleMatcher {
         ruleMask.stream().forEach(i -> constraints[i] = ConjunctiveFormula.of(context.global()));
         empty = BitSet.apply(ruleCount);
 
-        BitSet theMatchingRules = match(subject.term(), pattern, ruleMask, List());
+        pathLength = 0;
+        BitSet theMatchingRules = match(subject.term(), pattern, ruleMask);
 
-        List<RuleMatchResult> structuralResults = new ArrayList<>();
-        List<RuleMatchResult> transitionResults = new ArrayList<>();
+        RewriteMetrics metrics = global.metrics;
+        List<Integer> candidates = new ArrayList<>();
         for (int i = theMatchingRules.nextSetBit(0); i >= 0; i = theMatchingRules.nextSetBit(i + 1)) {
             Rule rule = global.getDefinition().ruleTable.get(i);
             // skip over IO rules when in prove rules
             if (proveFlag && rule.containsAttribute("stream")) {
                 continue;
             }
+            metrics.recordRuleCandidate(i);
+            candidates.add(i);
+        }
+
+        List<List<RuleMatchResult>> candidateResults = new ArrayList<>();
+        if (!computeOne && candidates.size() > 1 && global.krunOptions != null
+                && global.krunOptions.experimental.parallelConstraints
+                && !RuleAuditing.isAudit()) {
+            /* the candidate rules are independent, so their constraints are evaluated in parallel, each in its own
+             * fork of the context. All forks start from the same fresh counter, so the result of a rule is only
+             * kept if it generated no fresh constant, or if no rule before it did; otherwise the rule is evaluated
+             * again in the context, after the rules before it. The results are the same as when evaluating the
+             * rules one after the other. Rule auditing keeps its state per thread, so it is done sequentially. */
+            TermContext origin = context.fork();
+            List<TermContext> forks = new ArrayList<>();
+            List<CompletableFuture<List<RuleMatchResult>>> futures = new ArrayList<>();
+            for (int i : candidates) {
+                TermContext fork = context.fork();
+                forks.add(fork);
+                futures.add(CompletableFuture.supplyAsync(() -> evaluateRuleConstraints(subject, pattern, i, computeOne, transitions, fork)));
+            }
+            boolean counterAdvanced = false;
+            for (int k = 0; k < candidates.size(); k++) {
+                List<RuleMatchResult> ruleResults;
+                try {
+                    ruleResults = futures.get(k).join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+                if (origin.generatedFreshConstants(forks.get(k))) {
+                    if (counterAdvanced) {
+                        ruleResults = evaluateRuleConstraints(subject, pattern, candidates.get(k), computeOne, transitions, context);
+                    } else {
+                        context.joinFreshCounter(forks.get(k));
+                        counterAdvanced = true;
+                    }
+                }
+                candidateResults.add(ruleResults);
+            }
+        } else {
+            for (int i : candidates) {
+                candidateResults.add(evaluateRuleConstraints(subject, pattern, i, computeOne, transitions, context));
+            }
+        }
 
-            // TODO(YilongL): remove TermContext from the signature once
-            // ConstrainedTerm doesn't hold a TermContext anymore
-            /* TODO(AndreiS): remove this hack for super strictness after strategies work */
-            ConjunctiveFormula patternConstraint = ConjunctiveFormula.of(rule.lookups());
-            if (!computeOne && rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute)) {
-                patternConstraint = patternConstraint.addAll(rule.requires().stream().filter(t -> !t.containsAttribute(Att.transition())).collect(Collectors.toList()));
-            } else {
-                patternConstraint = patternConstraint.addAll(rule.requires());
-            }
-            List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> ruleResults = ConstrainedTerm.evaluateConstraints(
-                    constraints[i],
-                    subject.constraint(),
-                    patternConstraint,
-                    Sets.union(getLeftHandSide(pattern, i).variableSet(), patternConstraint.variableSet()).stream()
-                            .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
-                            .collect(Collectors.toSet()),
-                    context);
-            for (Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> triple : ruleResults) {
-                RuleMatchResult result = new RuleMatchResult(triple.getLeft(), triple.getMiddle(), triple.getRight(), i);
+        List<RuleMatchResult> structuralResults = new ArrayList<>();
+        List<RuleMatchResult> transitionResults = new ArrayList<>();
+        for (List<RuleMatchResult> ruleResults : candidateResults) {
+            for (RuleMatchResult result : ruleResults) {
+                Rule rule = global.getDefinition().ruleTable.get(result.ruleIndex);
                 if (transitions.stream().anyMatch(rule::containsAttribute)) {
                     transitionResults.add(result);
                 } else {
@@ -151,21 +197,64 @@ public class FastRuleMatcher {
         }
     }
 
+    /**
+     * Evaluates the constraint of the rule {@code i} collected by the matching, together with the side conditions
+     * of the rule.
+     */
+    private List<RuleMatchResult> evaluateRuleConstraints(
+            ConstrainedTerm subject,
+            Term pattern,
+            int i,
+            boolean computeOne,
+            List<String> transitions,
+            TermContext context) {
+        Rule rule = global.getDefinition().ruleTable.get(i);
+        RewriteMetrics metrics = global.metrics;
+
+        // TODO(YilongL): remove TermContext from the signature once
+        // ConstrainedTerm doesn't hold a TermContext anymore
+        /* TODO(AndreiS): remove this hack for super strictness after strategies work */
+        ConjunctiveFormula patternConstraint = ConjunctiveFormula.of(rule.lookups());
+        if (!computeOne && rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute)) {
+            patternConstraint = patternConstraint.addAll(rule.requires().stream().filter(t -> !t.containsAttribute(Att.transition())).collect(Collectors.toList()));
+        } else {
+            patternConstraint = patternConstraint.addAll(rule.requires());
+        }
+        long constraintStart = metrics.isEnabled() ? System.nanoTime() : 0;
+        List<Triple<ConjunctiveFormula, Boolean, List<LocalRewriteTerm>>> ruleResults = ConstrainedTerm.evaluateConstraints(
+                constraints[i],
+                subject.constraint(),
+                patternConstraint,
+                Sets.union(getLeftHandSide(pattern, i).variableSet(), patternConstraint.variableSet()).stream()
+                        .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
+                        .collect(Collectors.toSet()),
+                context);
+        if (metrics.isEnabled()) {
+            metrics.recordRuleConstraints(i, System.nanoTime() - constraintStart, ruleResults.isEmpty());
+        }
+        List<RuleMatchResult> results = new ArrayList<>(ruleResults.size());
+        for (Triple<ConjunctiveFormula, Boolean, List<LocalRewriteTerm>> triple : ruleResults) {
+            results.add(new RuleMatchResult(triple.getLeft(), triple.getMiddle(), triple.getRight(), i));
+        }
+        return results;
+    }
+
     public static class RuleMatchResult {
         public final ConjunctiveFormula constraint;
         public final boolean isMatching;
         /**
-         * Stores the inner rewrites of a K rule as a map from paths in the subject to the terms in the right-hand-sides
-         * of the inner rewrites. The path is a list of pairs of integers as opposed to a list of integers because
-         * for associative operators the rule may substitute an interval of elements rather then only one element.
+         * Stores the inner rewrites of a K rule, i.e. the paths in the subject and the terms in the right-hand-sides
+         * of the inner rewrites, ordered by {@link LocalRewriteTerm#PATH_ORDER}. Each step of a path is an interval
+         * rather than a single position because for associative operators the rule may substitute an interval of
+         * elements rather then only one element.
          */
-        public final Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term> rewrites;
+        public final List<LocalRewriteTerm> rewrites;
         public final int ruleIndex;
 
         private RuleMatchResult(
                 ConjunctiveFormula constraint,
                 boolean isMatching,
-                Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term> rewrites,
+                List<LocalRewriteTerm> rewrites,
                 int ruleIndex) {
             this.constraint = constraint;
             this.isMatching = isMatching;
@@ -186,7 +275,8 @@ public class FastRuleMatcher {
         empty = BitSet.apply(ruleCount);
         BitSet one = BitSet.apply(1);
         one.makeOnes(1);
-        BitSet theMatchingRules = match(subject, pattern, one, List());
+        pathLength = 0;
+        BitSet theMatchingRules = match(subject, pattern, one);
         if (theMatchingRules.get(0)) {
             return constraints[0];
         } else {
@@ -202,7 +292,8 @@ public class FastRuleMatcher {
         empty = BitSet.apply(ruleCount);
         BitSet one = BitSet.apply(1);
         one.makeOnes(1);
-        BitSet theMatchingRules = match(subject, pattern, one, List());
+        pathLength = 0;
+        BitSet theMatchingRules = match(subject, pattern, one);
         if (theMatchingRules.get(0)) {
             return constraints[0].getDisjunctiveNormalForm().conjunctions().stream()
                     .map(c -> c.simplify(context))
@@ -216,7 +307,7 @@ public class FastRuleMatcher {
         }
     }
 
-    private BitSet match(Term subject, Term pattern, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+    private BitSet match(Term subject, Term pattern, BitSet ruleMask) {
         assert !ruleMask.isEmpty();
 
         // if the pattern is a variable, try to add its binding to the current solution
@@ -225,7 +316,7 @@ public class FastRuleMatcher {
         }
 
         if (subject.isSymbolic()) {
-            return addUnification(subject, pattern, ruleMask, path);
+            return addUnification(subject, pattern, ruleMask);
         }
 
         if (pattern instanceof RuleAutomatonDisjunction) {
@@ -244,13 +335,13 @@ public class FastRuleMatcher {
 
             // handle associative constructs with identity
             for (Pair<BuiltinList, BitSet> p : automatonDisjunction.assocDisjunctionArray[subject.sort().ordinal()]) {
-                matchInside(subject, ruleMask, path, returnSet, p);
+                matchInside(subject, ruleMask, returnSet, p);
             }
 
             if (subject instanceof KItem) {
                 // main match of KItem
-                matchInside(subject, ruleMask, path, returnSet, automatonDisjunction.getKItemPatternForKLabel((KLabelConstant) ((KItem) subject).kLabel()));
-                checkVarLabelPatterns(subject, ruleMask, path, automatonDisjunction, returnSet);
+                matchInside(subject, ruleMask, returnSet, automatonDisjunction.getKItemPatternForKLabel((KLabelConstant) ((KItem) subject).kLabel()));
+                checkVarLabelPatterns(subject, ruleMask, automatonDisjunction, returnSet);
             } else if (subject instanceof Token) {
                 // and matching Tokens
                 BitSet rules = automatonDisjunction.tokenDisjunctions.get(subject);
@@ -268,18 +359,18 @@ public class FastRuleMatcher {
         if (pattern instanceof KItem && ((KItem) pattern).kLabel().toString().equals(KLabels.KREWRITE)) {
             KApply rw = (KApply) pattern;
             InnerRHSRewrite innerRHSRewrite = (InnerRHSRewrite) rw.klist().items().get(1);
-            BitSet theNewMask = match(subject, (Term) rw.klist().items().get(0), ruleMask, path);
+            BitSet theNewMask = match(subject, (Term) rw.klist().items().get(0), ruleMask);
 
             for (int i = theNewMask.nextSetBit(0); i >= 0; i = theNewMask.nextSetBit(i + 1)) {
                 if (innerRHSRewrite.theRHS[i] != null) {
-                    constraints[i] = constraints[i].add(new LocalRewriteTerm(path.reverse(), innerRHSRewrite.theRHS[i]), BoolToken.TRUE);
+                    constraints[i] = constraints[i].add(new LocalRewriteTerm(currentPath(), innerRHSRewrite.theRHS[i]), BoolToken.TRUE);
                 }
             }
             return theNewMask;
         }
 
         if (pattern.isSymbolic()) {
-            return addUnification(subject, pattern, ruleMask, path);
+            return addUnification(subject, pattern, ruleMask);
         }
 
         // normalize associative representations
@@ -312,7 +403,7 @@ public class FastRuleMatcher {
                     continue;
                 }
 
-                ruleMask = match(subjectKList.get(i), patternKList.get(i), ruleMask, path.$colon$colon(Pair.of(i, i + 1)));
+                ruleMask = matchAt(subjectKList.get(i), patternKList.get(i), ruleMask, i, i + 1);
                 if (ruleMask.isEmpty()) {
                     return ruleMask;
                 }
@@ -320,9 +411,9 @@ public class FastRuleMatcher {
 
             return ruleMask;
         } else if (subject instanceof BuiltinList && pattern instanceof BuiltinList) {
-            return matchAssoc((BuiltinList) subject, 0, (BuiltinList) pattern, 0, ruleMask, path);
+            return matchAssoc((BuiltinList) subject, 0, (BuiltinList) pattern, 0, ruleMask);
         } else if (subject instanceof BuiltinMap && pattern instanceof BuiltinMap) {
-            return unifyMapModuloPatternFolding((BuiltinMap) subject, (BuiltinMap) pattern, ruleMask, path);
+            return unifyMapModuloPatternFolding((BuiltinMap) subject, (BuiltinMap) pattern, ruleMask);
         } else if (subject instanceof Token && pattern instanceof Token) {
             // TODO: make tokens unique?
             return subject.equals(pattern) ? ruleMask : empty;
@@ -333,21 +424,57 @@ public class FastRuleMatcher {
         }
     }
 
-    private void checkVarLabelPatterns(Term subject, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path, RuleAutomatonDisjunction automatonDisjunction, BitSet returnSet) {
+    /**
+     * Matches a child of the current term, selected by the interval [{@code begin}, {@code end}), against the
+     * pattern. A negative {@code begin} matches the child at the same path as the current term (e.g. the only
+     * element of a singleton list).
+     */
+    private BitSet matchAt(Term subject, Term pattern, BitSet ruleMask, int begin, int end) {
+        if (begin < 0) {
+            return match(subject, pattern, ruleMask);
+        }
+        pushPath(begin, end);
+        BitSet result = match(subject, pattern, ruleMask);
+        pathLength--;
+        return result;
+    }
+
+    private BitSet addUnificationAt(Term subject, Term pattern, BitSet ruleMask, int begin, int end) {
+        if (begin < 0) {
+            return addUnification(subject, pattern, ruleMask);
+        }
+        pushPath(begin, end);
+        BitSet result = addUnification(subject, pattern, ruleMask);
+        pathLength--;
+        return result;
+    }
+
+    private void pushPath(int begin, int end) {
+        if (pathLength == path.length) {
+            path = Arrays.copyOf(path, 2 * pathLength);
+        }
+        path[pathLength++] = LocalRewriteTerm.step(begin, end);
+    }
+
+    private long[] currentPath() {
+        return Arrays.copyOf(path, pathLength);
+    }
+
+    private void checkVarLabelPatterns(Term subject, BitSet ruleMask, RuleAutomatonDisjunction automatonDisjunction, BitSet returnSet) {
         List<Pair<KItem, BitSet>> varLabelPatterns = automatonDisjunction.getKItemPatternByArity(((KItem) subject).klist().size());
         if (!(varLabelPatterns == null)) {
             for (Pair<KItem, BitSet> p : varLabelPatterns) {
-                matchInside(subject, ruleMask, path, returnSet, p);
+                matchInside(subject, ruleMask, returnSet, p);
             }
         }
     }
 
-    private void matchInside(Term subject, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path, BitSet returnSet, Pair<? extends Term, BitSet> pSeq) {
+    private void matchInside(Term subject, BitSet ruleMask, BitSet returnSet, Pair<? extends Term, BitSet> pSeq) {
         if (pSeq != null) {
             if (ruleMask.intersects(pSeq.getRight())) {
                 BitSet localRuleMaskSeq = ((BitSet) ruleMask.clone());
                 localRuleMaskSeq.and(pSeq.getRight());
-                localRuleMaskSeq = match(subject, pSeq.getLeft(), localRuleMaskSeq, path);
+                localRuleMaskSeq = match(subject, pSeq.getLeft(), localRuleMaskSeq);
                 returnSet.or(localRuleMaskSeq);
             }
         }
@@ -360,7 +487,7 @@ public class FastRuleMatcher {
      * * klabel variables only stand for non-assoc klabels
      * * no klist variables
      */
-    private BitSet matchAssoc(BuiltinList subject, int subjectIndex, BuiltinList pattern, int patternIndex, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+    private BitSet matchAssoc(BuiltinList subject, int subjectIndex, BuiltinList pattern, int patternIndex, BitSet ruleMask) {
         assert subject.sort.equals(pattern.sort);
 
         /* match prefix of elements in subject and pattern */
@@ -380,11 +507,12 @@ public class FastRuleMatcher {
         of elements from the head of both the subject and the pattern, and creates an equality between the remaining
         tail of the subject and the pattern */
         if (subjectIndex < subject.size() && !subject.isElement(subjectIndex) && !ruleMask.subset(patternElementTailSplit.tailMask)) {
-            return addUnification(
+            return addUnificationAt(
                     subject.range(subjectIndex, subject.size()),
                     pattern.range(patternIndex, pattern.size()),
                     ruleMask,
-                    subject instanceof BuiltinList.SingletonBuiltinList ? path : path.$colon$colon(Pair.of(subjectIndex, subject.size())));
+                    subject instanceof BuiltinList.SingletonBuiltinList ? -1 : subjectIndex,
+                    subject.size());
         }
 
         if (ruleMask.subset(patternElementTailSplit.combinedMask)) {
@@ -397,9 +525,9 @@ public class FastRuleMatcher {
                 elementMask = patternElementTailSplit.elementMask.clone();
                 elementMask.and(ruleMask);
                 if (!elementMask.isEmpty()) {
-                    elementMask = match(subject.get(subjectIndex), patternElementTailSplit.element, elementMask, subject instanceof BuiltinList.SingletonBuiltinList ? path : path.$colon$colon(Pair.of(subjectIndex, subjectIndex + 1)));
+                    elementMask = matchAt(subject.get(subjectIndex), patternElementTailSplit.element, elementMask, subject instanceof BuiltinList.SingletonBuiltinList ? -1 : subjectIndex, subjectIndex + 1);
                     if (!elementMask.isEmpty()) {
-                        elementMask = matchAssoc(subject, subjectIndex + 1, pattern, patternIndex + 1, elementMask, path);
+                        elementMask = matchAssoc(subject, subjectIndex + 1, pattern, patternIndex + 1, elementMask);
                     }
                 }
             }
@@ -407,7 +535,7 @@ public class FastRuleMatcher {
             BitSet tailMask = patternElementTailSplit.tailMask.clone();
             tailMask.and(ruleMask);
             if (!tailMask.isEmpty()) {
-                tailMask = match(subject.range(subjectIndex, subject.size()), patternElementTailSplit.tail, tailMask, path.$colon$colon(Pair.of(subjectIndex, subject.size())));
+                tailMask = matchAt(subject.range(subjectIndex, subject.size()), patternElementTailSplit.tail, tailMask, subjectIndex, subject.size());
             }
 
             BitSet resultSet = elementMask.clone();
@@ -416,11 +544,12 @@ public class FastRuleMatcher {
         }
 
         if (!subject.isConcreteCollection()) {
-            return addUnification(
+            return addUnificationAt(
                     subject.range(subjectIndex, subject.size()),
                     pattern.range(patternIndex, pattern.size()),
                     ruleMask,
-                    subject instanceof BuiltinList.SingletonBuiltinList ? path : path.$colon$colon(Pair.of(subjectIndex, subject.size())));
+                    subject instanceof BuiltinList.SingletonBuiltinList ? -1 : subjectIndex,
+                    subject.size());
         }
 
         ListMultimap<Integer, ConjunctiveFormula> nestedConstraints = ArrayListMultimap.create();
@@ -435,10 +564,10 @@ public class FastRuleMatcher {
             this can only happen when the pattern contains a rewrite with a list pattern in the LHS,
             which means there are no deep-nested rewrites,
             which in turn means the inaccurate paths will never be used */
-            ruleMask = match(subject.range(subjectIndex, i), pattern.get(patternIndex), ruleMask, subject instanceof BuiltinList.SingletonBuiltinList ? path : path.$colon$colon(Pair.of(subjectIndex, i)));
+            ruleMask = matchAt(subject.range(subjectIndex, i), pattern.get(patternIndex), ruleMask, subject instanceof BuiltinList.SingletonBuiltinList ? -1 : subjectIndex, i);
 
             if (!ruleMask.isEmpty()) {
-                ruleMask = matchAssoc(subject, i, pattern, patternIndex + 1, ruleMask, path);
+                ruleMask = matchAssoc(subject, i, pattern, patternIndex + 1, ruleMask);
 
                 ruleMask.stream().forEach(j -> {
                     if (!constraints[j].isFalse()) {
@@ -498,7 +627,7 @@ public class FastRuleMatcher {
         return ruleMask;
     }
 
-    private BitSet addUnification(Term subject, Term pattern, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+    private BitSet addUnification(Term subject, Term pattern, BitSet ruleMask) {
         for (int i = ruleMask.nextSetBit(0); i >= 0; i = ruleMask.nextSetBit(i + 1)) {
             Term leftHandSide = getLeftHandSide(pattern, i);
             Term rightHandSide = getRightHandSide(pattern, i);
@@ -517,7 +646,7 @@ public class FastRuleMatcher {
             }
 
             if (rightHandSide != null) {
-                constraints[i] = constraints[i].add(new LocalRewriteTerm(path.reverse(), rightHandSide), BoolToken.TRUE);
+                constraints[i] = constraints[i].add(new LocalRewriteTerm(currentPath(), rightHandSide), BoolToken.TRUE);
             }
         }
 
@@ -580,9 +709,9 @@ public class FastRuleMatcher {
      * Unify maps modulo the rules defining recursive patterns. When these rules are oriented from right to left, they become non-deterministic.
      * This method explores all the possible ways of applying these rules.
      */
-    private BitSet unifyMapModuloPatternFolding(BuiltinMap map, BuiltinMap otherMap, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+    private BitSet unifyMapModuloPatternFolding(BuiltinMap map, BuiltinMap otherMap, BitSet ruleMask) {
         if (!patternFold) {
-            return unifyMap(map, otherMap, ruleMask, path);
+            return unifyMap(map, otherMap, ruleMask);
         }
 
         Set<BuiltinMap> foldedMaps = Sets.newLinkedHashSet();
@@ -618,32 +747,28 @@ public class FastRuleMatcher {
 
         /* no folding occurred */
         if (foldedMaps.size() == 1) {
-            return unifyMap(map, otherMap, ruleMask, path);
+            return unifyMap(map, otherMap, ruleMask);
         }
 
         /* made no progress */
-        return addUnification(map, otherMap, ruleMask, path);
+        return addUnification(map, otherMap, ruleMask);
     }
 
-    private BitSet unifyMap(BuiltinMap map, BuiltinMap otherMap, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+    private BitSet unifyMap(BuiltinMap map, BuiltinMap otherMap, BitSet ruleMask) {
         assert map.collectionFunctions().isEmpty() && otherMap.collectionFunctions().isEmpty();
 
         Map<Term, Term> entries = map.getEntries();
         Map<Term, Term> otherEntries = otherMap.getEntries();
-        Set<Term> commonKeys = Sets.intersection(map.getEntries().keySet(), otherEntries.keySet());
-        Map<Term, Term> remainingEntries = new HashMap<>();
-        Map<Term, Term> otherRemainingEntries = new HashMap<>();
-        for (Term key : commonKeys) {
-            match(entries.get(key), otherEntries.get(key), ruleMask, path);
-        }
-        for (Term key : entries.keySet()) {
-            if (!commonKeys.contains(key)) {
-                remainingEntries.put(key, entries.get(key));
-            }
-        }
-        for (Term key : otherEntries.keySet()) {
-            if (!commonKeys.contains(key)) {
-                otherRemainingEntries.put(key, otherEntries.get(key));
+        /* look up the keys of the smaller map in the larger one; the remainders are map differences */
+        Map<Term, Term> remainingEntries = new HashMap<>(entries);
+        Map<Term, Term> otherRemainingEntries = new HashMap<>(otherEntries);
+        for (Term key : entries.size() <= otherEntries.size() ? entries.keySet() : otherEntries.keySet()) {
+            Term value = entries.get(key);
+            Term otherValue = otherEntries.get(key);
+            if (value != null && otherValue != null) {
+                match(value, otherValue, ruleMask);
+                remainingEntries.remove(key);
+                otherRemainingEntries.remove(key);
             }
         }
 
@@ -660,7 +785,7 @@ public class FastRuleMatcher {
                     List<Term> patternOutput = pattern.getPatternOutput();
                     List<Term> otherPatternOutput = otherPattern.getPatternOutput();
                     for (int i = 0; i < patternOutput.size(); ++i) {
-                        match(patternOutput.get(i), otherPatternOutput.get(i), ruleMask, path);
+                        match(patternOutput.get(i), otherPatternOutput.get(i), ruleMask);
                     }
                     unifiedPatterns.add(pattern);
                     otherUnifiedPatterns.add(otherPattern);
@@ -715,11 +840,11 @@ public class FastRuleMatcher {
                 || !(otherRemainingMap instanceof BuiltinMap && ((BuiltinMap) otherRemainingMap).isEmpty())) {
             if (remainingMap instanceof Variable || otherRemainingMap instanceof Variable || partialSimplification) {
                 // map equality resolved or partial simplification enabled
-                return addUnification(remainingMap, otherRemainingMap, ruleMask, path);
+                return addUnification(remainingMap, otherRemainingMap, ruleMask);
             } else {
                 /* unable to dissolve the entire map equality; thus, we need to
                  * preserve the original map terms for pattern folding */
-                return addUnification(map, otherMap, ruleMask, path);
+                return addUnification(map, otherMap, ruleMask);
             }
         }
 
@@ -214,9 +214,19 @@ public class InitializeRewriter implements Function<Pair<Module, MiniKore.Defini
                     .collect(Collectors.toList());
         }
 
+        @Override
+        public void close() {
+            rewritingContext.coverage.close();
+        }
+
     }
 
 
+    /**
+     * Builds the backend {@link Definition} of a module, and keeps the definitions it built, so that the rewriters
+     * initialized with the same {@code InitializeDefinition} share them. A shared definition is bound to the
+     * {@link GlobalContext} of each rewriter with {@link GlobalContext#setDefinition}.
+     */
     public static class InitializeDefinition {
 
         private final Map<Module, Definition> cache = new LinkedHashMap<Module, Definition>() {
@@ -226,9 +236,18 @@ public class InitializeRewriter implements Function<Pair<Module, MiniKore.Defini
             }
         };
 
-        public Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
+        private final Map<MiniKore.Module, Definition> miniKoreCache = new LinkedHashMap<MiniKore.Module, Definition>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MiniKore.Module, Definition> eldest) {
+                return this.size() > 20;
+            }
+        };
+
+        public synchronized Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
             if (cache.containsKey(module)) {
-                return cache.get(module);
+                Definition definition = cache.get(module);
+                global.setDefinition(definition);
+                return definition;
             }
             Definition definition = new Definition(module, kem);
 
@@ -243,7 +262,12 @@ public class InitializeRewriter implements Function<Pair<Module, MiniKore.Defini
         }
 
 
-        public Definition invoke(KExceptionManager kem, GlobalContext global, MiniKore.Module miniKoreModule, MiniKore.Definition miniKoreDefinition) {
+        public synchronized Definition invoke(KExceptionManager kem, GlobalContext global, MiniKore.Module miniKoreModule, MiniKore.Definition miniKoreDefinition) {
+            if (miniKoreCache.containsKey(miniKoreModule)) {
+                Definition definition = miniKoreCache.get(miniKoreModule);
+                global.setDefinition(definition);
+                return definition;
+            }
             MiniKoreUtils.ModuleUtils moduleUtils = new MiniKoreUtils.ModuleUtils(miniKoreModule, miniKoreDefinition);
             Definition definition = new Definition(moduleUtils, kem);
 
@@ -258,6 +282,7 @@ public class InitializeRewriter implements Function<Pair<Module, MiniKore.Defini
 
             //TODO: Change add KoreRules and the converter to use MiniKore
             definition.addKoreRules(koreModule, global);
+            miniKoreCache.put(miniKoreModule, definition);
             return definition;
         }
 
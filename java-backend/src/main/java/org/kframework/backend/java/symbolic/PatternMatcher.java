@@ -12,9 +12,12 @@ import org.kframework.backend.java.util.RewriteEngineUtils;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -263,20 +266,20 @@ public class PatternMatcher extends AbstractUnifier {
                 ImmutableSet.<Term>of(),
                 ImmutableMapSubstitution.empty()));
 
-        /* match each entry from the pattern */
-        for (Map.Entry<Term, Term> patternEntry : patternBuiltinMap.getEntries().entrySet()) {
-            List<PartialSubstitution> stepSubstitutions = new ArrayList<>();
-            for (Map.Entry<Term, Term> entry : builtinMap.getEntries().entrySet()) {
-                PatternMatcher matcher = new PatternMatcher(matchOnFunctionSymbol, disjointVariables, termContext);
-                matcher.addUnificationTask(entry.getKey(), patternEntry.getKey());
-                matcher.addUnificationTask(entry.getValue(), patternEntry.getValue());
-                if (matcher.unify()) {
-                    stepSubstitutions.add(new PartialSubstitution(
-                            ImmutableSet.of(entry.getKey()),
-                            matcher.substitution()));
+        /* match each entry from the pattern, most selective keys first */
+        List<Map.Entry<Term, Term>> patternEntries = new ArrayList<>(patternBuiltinMap.getEntries().entrySet());
+        patternEntries.sort(Comparator.comparingInt(e -> keySelectivity(e.getKey())));
+        for (Map.Entry<Term, Term> patternEntry : patternEntries) {
+            Map<Term, Optional<PartialSubstitution>> entrySubstitutions = new HashMap<>();
+            Set<PartialSubstitution> nextPartialSubstitutions = new HashSet<>();
+            for (PartialSubstitution ps : partialSubstitutions) {
+                for (Term key : candidateKeys(builtinMap, patternEntry.getKey(), ps)) {
+                    entrySubstitutions.computeIfAbsent(key, k -> matchEntry(k, builtinMap.get(k), patternEntry))
+                            .flatMap(step -> merge(ps, step))
+                            .ifPresent(nextPartialSubstitutions::add);
                 }
             }
-            partialSubstitutions = getCrossProduct(partialSubstitutions, stepSubstitutions);
+            partialSubstitutions = nextPartialSubstitutions;
         }
 
         /* match each collection abstraction predicate from the pattern */
@@ -325,6 +328,44 @@ public class PatternMatcher extends AbstractUnifier {
         }
     }
 
+    /**
+     * Orders pattern keys by how many subject entries they may match: ground keys match at most the entry with
+     * the same key, variable keys match at most one entry once bound by a previously matched value, and
+     * other keys may match any entry.
+     */
+    private static int keySelectivity(Term patternKey) {
+        if (patternKey.isGround() && patternKey.isNormal()) {
+            return 0;
+        } else if (patternKey instanceof Variable) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    /**
+     * Returns the keys of the subject entries the pattern key may match under the partial substitution
+     * {@code ps}, looking the key up directly when it is ground or already bound.
+     */
+    private static Collection<Term> candidateKeys(BuiltinMap builtinMap, Term patternKey, PartialSubstitution ps) {
+        Term key = patternKey.isGround() && patternKey.isNormal() ? patternKey : ps.substitution.get(patternKey);
+        if (key == null) {
+            return builtinMap.getEntries().keySet();
+        }
+        return builtinMap.getEntries().containsKey(key) ? Collections.singleton(key) : Collections.emptySet();
+    }
+
+    private Optional<PartialSubstitution> matchEntry(Term key, Term value, Map.Entry<Term, Term> patternEntry) {
+        PatternMatcher matcher = new PatternMatcher(matchOnFunctionSymbol, disjointVariables, termContext);
+        matcher.addUnificationTask(key, patternEntry.getKey());
+        matcher.addUnificationTask(value, patternEntry.getValue());
+        if (matcher.unify()) {
+            return Optional.of(new PartialSubstitution(ImmutableSet.of(key), matcher.substitution()));
+        } else {
+            return Optional.empty();
+        }
+    }
+
     private static Substitution<Variable, Term> addFrameMatching(
             BuiltinMap builtinMap,
             BuiltinMap patternBuiltinMap,
@@ -336,11 +377,11 @@ public class PatternMatcher extends AbstractUnifier {
                 return null;
             }
 
+            /* the frame is the subject map minus the matched entries */
             BuiltinMap.Builder builder = BuiltinMap.builder(context.global());
-            for (Map.Entry<Term, Term> entry : builtinMap.getEntries().entrySet()) {
-                if (!ps.matched.contains(entry.getKey())) {
-                    builder.put(entry.getKey(), entry.getValue());
-                }
+            builder.putAll(builtinMap.getEntries());
+            for (Term key : ps.matched) {
+                builder.remove(key);
             }
             for (Term term : builtinMap.baseTerms()) {
                 if (!ps.matched.contains(term)) {
@@ -370,24 +411,33 @@ public class PatternMatcher extends AbstractUnifier {
         Set<PartialSubstitution> set = new HashSet<>();
         for (PartialSubstitution ps1 : set1) {
             for (PartialSubstitution ps2 : set2) {
-                MapDifference<Variable, Term> mapDifference = Maps.difference(
-                        ps1.substitution,
-                        ps2.substitution);
-                // TODO(AndreiS): this fail to match "list(x) list(x)" with "list(null) list(null)"
-                if (mapDifference.entriesDiffering().isEmpty()
-                        && Sets.intersection(ps1.matched, ps2.matched).isEmpty()) {
-                    set.add(new PartialSubstitution(
-                            ImmutableSet.<Term>builder()
-                                    .addAll(ps1.matched)
-                                    .addAll(ps2.matched)
-                                    .build(),
-                            ps1.substitution.plusAll(mapDifference.entriesOnlyOnRight())));
-                }
+                merge(ps1, ps2).ifPresent(set::add);
             }
         }
         return set;
     }
 
+    /**
+     * Combines two partial substitutions if they agree on their common variables and matched disjoint terms.
+     */
+    private static Optional<PartialSubstitution> merge(PartialSubstitution ps1, PartialSubstitution ps2) {
+        MapDifference<Variable, Term> mapDifference = Maps.difference(
+                ps1.substitution,
+                ps2.substitution);
+        // TODO(AndreiS): this fail to match "list(x) list(x)" with "list(null) list(null)"
+        if (mapDifference.entriesDiffering().isEmpty()
+                && Sets.intersection(ps1.matched, ps2.matched).isEmpty()) {
+            return Optional.of(new PartialSubstitution(
+                    ImmutableSet.<Term>builder()
+                            .addAll(ps1.matched)
+                            .addAll(ps2.matched)
+                            .build(),
+                    ps1.substitution.plusAll(mapDifference.entriesOnlyOnRight())));
+        } else {
+            return Optional.empty();
+        }
+    }
+
     @Override
     public void unify(BuiltinSet builtinSet, BuiltinSet patternSet) {
         if (!patternSet.isConcreteCollection() || patternSet.concreteSize() > 1) {
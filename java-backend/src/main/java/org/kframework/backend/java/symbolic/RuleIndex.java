@@ -0,0 +1,224 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.SortSignature;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.kil.Attribute;
+import org.kframework.utils.BitSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * An index of the rules of the {@link FastRuleMatcher} automaton by the {@link KLabelConstant} at the top of
+ * designated cells of the configuration. For a given subject, {@link #ruleMask} returns the rules that may match
+ * it, so that most rules are excluded before the matcher walks the automaton.
+ * <p>
+ * A rule whose pattern has a constructor at the top of an indexed cell can only match a subject with the same
+ * constructor at the top of that cell. Rules with anything else at the top of the cell (e.g. a variable or a
+ * function) may match any subject. The cells whose production has the {@link #INDEX_ATTRIBUTE} attribute are
+ * indexed; if there is none, the {@code <k>} cell is. The position of a cell is given by the cell productions of
+ * the configuration, so cells under a cell collection (e.g. the {@code <k>} cell of multiple threads) are not
+ * indexed.
+ */
+class RuleIndex {
+
+    public static final String INDEX_ATTRIBUTE = "index";
+    private static final String K_CELL = "<k>";
+
+    /**
+     * The rules indexed by the top of one cell. The cell is located by the labels and positions of the cells
+     * on the path from the top of the configuration to it.
+     */
+    private static class CellIndex {
+        final String[] pathLabels;
+        final int[] pathPositions;
+        final Map<KLabelConstant, BitSet> rulesByTop = new HashMap<>();
+        final BitSet anyTopRules;
+
+        CellIndex(List<String> pathLabels, List<Integer> pathPositions, BitSet anyTopRules) {
+            this.pathLabels = pathLabels.toArray(new String[pathLabels.size()]);
+            this.pathPositions = pathPositions.stream().mapToInt(Integer::intValue).toArray();
+            this.anyTopRules = anyTopRules;
+        }
+
+        /**
+         * Returns the contents of this cell in {@code term}, or {@code null} if {@code term} does not have the
+         * expected shape.
+         */
+        Term cellContents(Term term) {
+            for (int i = 0; i < pathLabels.length; i++) {
+                if (!(term instanceof KItem) || !((KItem) term).kLabel().toString().equals(pathLabels[i])) {
+                    return null;
+                }
+                KList kList = (KList) ((KItem) term).kList();
+                if (pathPositions[i] >= kList.size()) {
+                    return null;
+                }
+                term = kList.get(pathPositions[i]);
+            }
+            return term;
+        }
+    }
+
+    private final BitSet allRules;
+    private final List<CellIndex> cellIndexes = new ArrayList<>();
+
+    RuleIndex(Definition definition, BitSet allRules) {
+        this.allRules = allRules;
+        int ruleCount = definition.ruleTable.size();
+
+        Set<String> indexedCells = definition.kLabelAttributes().entrySet().stream()
+                .filter(e -> e.getValue().containsKey(Attribute.keyOf(INDEX_ATTRIBUTE)))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (indexedCells.isEmpty()) {
+            indexedCells.add(K_CELL);
+        }
+
+        Map<Sort, String> cellLabels = new HashMap<>();
+        definition.kLabelAttributes().forEach((label, attributes) -> {
+            Set<SortSignature> signatures = definition.signaturesOf(label);
+            if (attributes.containsKey(Attribute.keyOf(Attribute.CELL_KEY)) && signatures.size() == 1) {
+                cellLabels.put(signatures.iterator().next().result(), label);
+            }
+        });
+        Set<String> topCells = new TreeSet<>(cellLabels.values());
+        cellLabels.values().forEach(label -> signature(definition, label).parameters().stream()
+                .map(cellLabels::get)
+                .forEach(topCells::remove));
+
+        for (String cell : indexedCells) {
+            CellIndex cellIndex = null;
+            for (String topCell : topCells) {
+                List<String> pathLabels = new ArrayList<>();
+                List<Integer> pathPositions = new ArrayList<>();
+                if (findCell(definition, cellLabels, topCell, cell, pathLabels, pathPositions)) {
+                    cellIndex = new CellIndex(pathLabels, pathPositions, BitSet.apply(ruleCount));
+                    break;
+                }
+            }
+            if (cellIndex == null) {
+                continue;
+            }
+
+            Map<KLabelConstant, BitSet> rulesByTop = new HashMap<>();
+            for (Map.Entry<Integer, Rule> entry : definition.ruleTable.entrySet()) {
+                Term contents = cellIndex.cellContents(entry.getValue().leftHandSide());
+                KLabelConstant top = contents != null ? top(contents) : null;
+                if (top != null) {
+                    rulesByTop.computeIfAbsent(top, l -> BitSet.apply(ruleCount)).set(entry.getKey());
+                } else {
+                    cellIndex.anyTopRules.set(entry.getKey());
+                }
+            }
+            for (Map.Entry<KLabelConstant, BitSet> entry : rulesByTop.entrySet()) {
+                entry.getValue().or(cellIndex.anyTopRules);
+                cellIndex.rulesByTop.put(entry.getKey(), entry.getValue());
+            }
+            cellIndexes.add(cellIndex);
+        }
+    }
+
+    /**
+     * Returns the rules that may match {@code subject}. The returned {@code BitSet} must not be modified.
+     */
+    BitSet ruleMask(Term subject) {
+        BitSet ruleMask = allRules;
+        for (CellIndex cellIndex : cellIndexes) {
+            Term contents = cellIndex.cellContents(subject);
+            KLabelConstant top = contents != null ? top(contents) : null;
+            if (top == null) {
+                continue;
+            }
+            BitSet rules = cellIndex.rulesByTop.getOrDefault(top, cellIndex.anyTopRules);
+            if (ruleMask == allRules) {
+                ruleMask = rules;
+            } else {
+                ruleMask = ruleMask.clone();
+                ruleMask.and(rules);
+            }
+        }
+        return ruleMask;
+    }
+
+    /**
+     * Searches the configuration below the cell {@code label} for the cell {@code cell}, going down through the
+     * children of cell productions only, and records the path to it.
+     *
+     * @param cellLabels the labels of the cell productions, by sort
+     */
+    private static boolean findCell(
+            Definition definition,
+            Map<Sort, String> cellLabels,
+            String label,
+            String cell,
+            List<String> pathLabels,
+            List<Integer> pathPositions) {
+        List<Sort> children = signature(definition, label).parameters();
+        pathLabels.add(label);
+        if (label.equals(cell)) {
+            if (children.size() == 1) {
+                pathPositions.add(0);
+                return true;
+            }
+        } else {
+            for (int i = 0; i < children.size(); i++) {
+                String child = cellLabels.get(children.get(i));
+                if (child == null) {
+                    continue;
+                }
+                pathPositions.add(i);
+                if (findCell(definition, cellLabels, child, cell, pathLabels, pathPositions)) {
+                    return true;
+                }
+                pathPositions.remove(pathPositions.size() - 1);
+            }
+        }
+        pathLabels.remove(pathLabels.size() - 1);
+        return false;
+    }
+
+    private static SortSignature signature(Definition definition, String cellLabel) {
+        return definition.signaturesOf(cellLabel).iterator().next();
+    }
+
+    /**
+     * Returns the constructor at the top of the given cell contents, or {@code null} if the top of the contents
+     * is not a constructor.
+     */
+    private static KLabelConstant top(Term contents) {
+        Term top = contents;
+        if (contents instanceof KSequence) {
+            KSequence kSequence = (KSequence) contents;
+            if (kSequence.concreteSize() == 0) {
+                return null;
+            }
+            top = kSequence.get(0);
+        } else if (contents instanceof BuiltinList) {
+            BuiltinList list = (BuiltinList) contents;
+            if (list.size() == 0 || !list.isElement(0)) {
+                return null;
+            }
+            top = list.get(0);
+        }
+        if (!(top instanceof KItem) || top.isSymbolic() || !(((KItem) top).kLabel() instanceof KLabelConstant)) {
+            return null;
+        }
+        KLabelConstant kLabel = (KLabelConstant) ((KItem) top).kLabel();
+        return kLabel.isConstructor() && !kLabel.isPattern() ? kLabel : null;
+    }
+}
@@ -3,6 +3,7 @@ package org.kframework.backend.java.symbolic;
 
 import org.kframework.backend.java.kil.Definition;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.RewriteMetrics;
 import org.kframework.backend.java.util.Z3Wrapper;
 import org.kframework.utils.options.SMTOptions;
 import org.kframework.utils.options.SMTSolver;
@@ -15,13 +16,16 @@ public class SMTOperations {
 
     private final SMTOptions smtOptions;
     private final Z3Wrapper z3;
+    private final RewriteMetrics metrics;
 
     public SMTOperations(
             Provider<Definition> definitionProvider,
             SMTOptions smtOptions,
-            Z3Wrapper z3) {
+            Z3Wrapper z3,
+            RewriteMetrics metrics) {
         this.smtOptions = smtOptions;
         this.z3 = z3;
+        this.metrics = metrics;
     }
 
     public boolean checkUnsat(ConjunctiveFormula constraint) {
@@ -36,7 +40,7 @@ public class SMTOperations {
         boolean result = false;
         try {
             String query = KILtoSMTLib.translateConstraint(constraint);
-            result = z3.isUnsat(query, smtOptions.z3CnstrTimeout);
+            result = isUnsat(query, smtOptions.z3CnstrTimeout);
             if (result && RuleAuditing.isAuditBegun()) {
                 System.err.println("SMT query returned unsat: " + query);
             }
@@ -55,7 +59,7 @@ public class SMTOperations {
             Set<Variable> rightOnlyVariables) {
         if (smtOptions.smt == SMTSolver.Z3) {
             try {
-                return z3.isUnsat(
+                return isUnsat(
                         KILtoSMTLib.translateImplication(left, right, rightOnlyVariables),
                         smtOptions.z3ImplTimeout);
             } catch (UnsupportedOperationException e) {
@@ -66,4 +70,16 @@ public class SMTOperations {
         }
         return false;
     }
+
+    private boolean isUnsat(String query, int timeout) {
+        if (!metrics.isEnabled()) {
+            return z3.isUnsat(query, timeout);
+        }
+        long start = System.nanoTime();
+        try {
+            return z3.isUnsat(query, timeout);
+        } finally {
+            metrics.recordSMTQuery(System.nanoTime() - start);
+        }
+    }
 }
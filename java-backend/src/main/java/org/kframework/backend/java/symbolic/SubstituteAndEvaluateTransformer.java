@@ -26,6 +26,12 @@ public class SubstituteAndEvaluateTransformer extends CopyOnWriteTransformer {
 
     protected final Map<Variable, ? extends Term> substitution;
 
+    /**
+     * The {@link JavaSymbolicObject#variableMask(Iterable)} of the variables of {@link #substitution}, used to
+     * skip the subterms to which the substitution does not apply without traversing them.
+     */
+    private final long substitutionMask;
+
     /*
      * YilongL: it turns out that not doing variableSet update along with
      * substituteAndEvaluate costs significant overhead; not sure why but I am
@@ -35,10 +41,11 @@ public class SubstituteAndEvaluateTransformer extends CopyOnWriteTransformer {
     public SubstituteAndEvaluateTransformer(Map<Variable, ? extends Term> substitution, TermContext context) {
         super(context);
         this.substitution = substitution;
+        this.substitutionMask = JavaSymbolicObject.variableMask(substitution.keySet());
     }
 
     protected boolean proceed(JavaSymbolicObject object) {
-        return object.canSubstituteAndEvaluate(substitution);
+        return object.canSubstituteAndEvaluate(substitution, substitutionMask);
     }
 
     @Override
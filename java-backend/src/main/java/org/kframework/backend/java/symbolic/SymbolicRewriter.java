@@ -1,7 +1,7 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.symbolic;
 
-import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.tuple.Pair;
@@ -17,13 +17,16 @@ import org.kframework.backend.java.kil.GlobalContext;
 import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.LocalRewriteTerm;
 import org.kframework.backend.java.kil.Rule;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.strategies.TransitionCompositeStrategy;
+import org.kframework.backend.java.util.Coverage;
 import org.kframework.backend.java.util.JavaKRunState;
+import org.kframework.backend.java.util.RewriteMetrics;
 import org.kframework.builtin.KLabels;
 import org.kframework.kil.ASTNode;
 import org.kframework.kompile.KompileOptions;
@@ -52,15 +55,18 @@ public class SymbolicRewriter {
 
     private final TransitionCompositeStrategy strategy;
     private final List<String> transitions;
-    private final Stopwatch stopwatch = Stopwatch.createUnstarted();
     private final KOREtoBackendKIL constructor;
     private boolean transition;
-    private final Set<ConstrainedTerm> superheated = Sets.newHashSet();
-    private final Set<ConstrainedTerm> newSuperheated = Sets.newHashSet();
+    /* the superheated terms of the rewriting and search done by this rewriter itself */
+    private final Superheated superheated = new Superheated();
     private final KRunState.Counter counter;
-    private final FastRuleMatcher theFastMatcher;
+    /* the matcher keeps the state of the current match, so each thread rewriting with this rewriter gets its own */
+    private final ThreadLocal<FastRuleMatcher> theFastMatcher;
     private final Definition definition;
     private final BitSet allRuleBits;
+    private final RuleIndex ruleIndex;
+    private final RewriteMetrics metrics;
+    private final Coverage coverage;
 
     public SymbolicRewriter(GlobalContext global, List<String> transitions,
                             KRunState.Counter counter, KOREtoBackendKIL constructor) {
@@ -71,8 +77,13 @@ public class SymbolicRewriter {
         this.counter = counter;
         this.strategy = new TransitionCompositeStrategy(transitions);
         this.transitions = transitions;
-        this.theFastMatcher = new FastRuleMatcher(global, definition.ruleTable.size());
+        this.theFastMatcher = ThreadLocal.withInitial(() -> new FastRuleMatcher(global, definition.ruleTable.size()));
+        this.ruleIndex = new RuleIndex(definition, allRuleBits);
         this.transition = true;
+        this.metrics = global.metrics;
+        this.metrics.initRules(definition.ruleTable.size());
+        this.coverage = global.coverage;
+        this.coverage.init(definition);
     }
 
     public KOREtoBackendKIL getConstructor() {
@@ -80,27 +91,35 @@ public class SymbolicRewriter {
     }
 
     public KRunState rewrite(ConstrainedTerm constrainedTerm, int bound) {
-        stopwatch.start();
+        long start = System.nanoTime();
+        long allocationStart = metrics.currentThreadAllocatedBytes();
         int step = 0;
         List<ConstrainedTerm> results;
         while (step != bound && !(results = computeRewriteStep(constrainedTerm, step, true)).isEmpty()) {
             /* get the first solution */
             constrainedTerm = results.get(0);
             step++;
+            metrics.recordStep();
         }
 
         ConstrainedTerm afterVariableRename = new ConstrainedTerm(new RenameAnonymousVariables().apply(constrainedTerm.term()), constrainedTerm.termContext());
 
         KRunState finalState = new JavaKRunState(afterVariableRename, counter, Optional.of(step));
 
-        stopwatch.stop();
-        if (afterVariableRename.termContext().global().krunOptions.experimental.statistics) {
-            System.err.println("[" + step + ", " + stopwatch + " ]");
-        }
+        reportMetrics(afterVariableRename.termContext(), start, allocationStart);
 
         return finalState;
     }
 
+    private void reportMetrics(TermContext context, long start, long allocationStart) {
+        coverage.flush();
+        if (metrics.isEnabled()) {
+            metrics.recordTotal(System.nanoTime() - start);
+            metrics.recordAllocation(allocationStart);
+            metrics.report(definition, context.global().krunOptions);
+        }
+    }
+
     private List<ConstrainedTerm> computeRewriteStep(ConstrainedTerm constrainedTerm, int step, boolean computeOne) {
         return fastComputeRewriteStep(constrainedTerm, computeOne, false, false);
     }
@@ -156,21 +175,55 @@ public class SymbolicRewriter {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * The terms superheated by a step of an exploration, and those superheated by the step before it. A term
+     * obtained by a heating rule is superheated, and a cooling rule does not apply to a term superheated by the
+     * previous step. Explorations which may run at the same time keep their own superheated terms.
+     */
+    public static class Superheated {
+        private Set<ConstrainedTerm> previous = Sets.newHashSet();
+        private Set<ConstrainedTerm> current = Sets.newHashSet();
+
+        /**
+         * Moves on to the next step of the exploration.
+         */
+        public void nextStep() {
+            previous = current;
+            current = Sets.newHashSet();
+        }
+    }
+
     public List<ConstrainedTerm> fastComputeRewriteStep(ConstrainedTerm subject, boolean computeOne, boolean narrowing, boolean proofFlag) {
+        return fastComputeRewriteStep(subject, computeOne, narrowing, proofFlag, superheated);
+    }
+
+    public List<ConstrainedTerm> fastComputeRewriteStep(ConstrainedTerm subject, boolean computeOne, boolean narrowing, boolean proofFlag, Superheated superheated) {
         List<ConstrainedTerm> results = new ArrayList<>();
         if (definition.automaton == null) {
             return results;
         }
-        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.matchRulePattern(
-                subject,
-                definition.automaton.leftHandSide(),
-                allRuleBits,
-                narrowing,
-                computeOne,
-                transitions,
-                proofFlag,
-                subject.termContext());
+        BitSet ruleMask = ruleIndex.ruleMask(subject.term());
+        List<FastRuleMatcher.RuleMatchResult> matches;
+        if (ruleMask.isEmpty()) {
+            /* no rule can apply, but the configuration may still be marked as stuck below */
+            matches = Collections.emptyList();
+        } else {
+            long matchStart = metrics.isEnabled() ? System.nanoTime() : 0;
+            matches = theFastMatcher.get().matchRulePattern(
+                    subject,
+                    definition.automaton.leftHandSide(),
+                    ruleMask.clone(),
+                    narrowing,
+                    computeOne,
+                    transitions,
+                    proofFlag,
+                    subject.termContext());
+            if (metrics.isEnabled()) {
+                metrics.recordPhase(RewriteMetrics.Phase.MATCH, System.nanoTime() - matchStart);
+            }
+        }
         for (FastRuleMatcher.RuleMatchResult matchResult : matches) {
+            long constructStart = metrics.isEnabled() ? System.nanoTime() : 0;
             Rule rule = definition.ruleTable.get(matchResult.ruleIndex);
             Substitution<Variable, Term> substitution =
                     rule.containsAttribute(Att.refers_THIS_CONFIGURATION()) ?
@@ -178,17 +231,15 @@ public class SymbolicRewriter {
                             matchResult.constraint.substitution();
             // start the optimized substitution
 
-            // get a map from AST paths to (fine-grained, inner) rewrite RHSs
+            // get the AST paths to the (fine-grained, inner) rewrite RHSs
             assert (matchResult.rewrites.size() > 0);
             Term theNew;
             if (matchResult.rewrites.size() == 1)
             // use the more efficient implementation if we only have one rewrite
             {
-                theNew = buildRHS(subject.term(), substitution, matchResult.rewrites.keySet().iterator().next(),
-                        matchResult.rewrites.values().iterator().next(), subject.termContext());
+                theNew = buildRHS(subject.term(), substitution, matchResult.rewrites.get(0), 0, subject.termContext());
             } else {
-                theNew = buildRHS(subject.term(), substitution,
-                        matchResult.rewrites.entrySet().stream().map(e -> Pair.of(e.getKey(), e.getValue())).collect(Collectors.toList()),
+                theNew = buildRHS(subject.term(), substitution, matchResult.rewrites, 0, matchResult.rewrites.size(), 0,
                         subject.termContext());
             }
 
@@ -197,6 +248,9 @@ public class SymbolicRewriter {
             }
 
             theNew = restoreConfigurationIfNecessary(subject, rule, theNew);
+            if (metrics.isEnabled()) {
+                metrics.recordPhase(RewriteMetrics.Phase.CONSTRUCT, System.nanoTime() - constructStart);
+            }
 
             /* eliminate bindings of the substituted variables */
             ConjunctiveFormula constraint = matchResult.constraint;
@@ -220,12 +274,14 @@ public class SymbolicRewriter {
 
             /* TODO(AndreiS): remove this hack for super strictness after strategies work */
             if (rule.containsAttribute(Att.heat()) && transitions.stream().anyMatch(rule::containsAttribute)) {
-                newSuperheated.add(result);
-            } else if (rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute) && superheated.contains(subject)) {
+                superheated.current.add(result);
+            } else if (rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute) && superheated.previous.contains(subject)) {
                 continue;
             }
 
             results.add(result);
+            metrics.recordRuleApplication(matchResult.ruleIndex);
+            coverage.recordRule(matchResult.ruleIndex);
         }
 
         if (results.isEmpty()) {
@@ -291,73 +347,91 @@ public class SymbolicRewriter {
      * goes down the path on the subject to find the rewrite place, does the substitution, and reconstructs the term
      * on its way up
      */
-    private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, scala.collection.immutable.List<Pair<Integer, Integer>> path, Term rhs, TermContext context) {
-        if (path.isEmpty()) {
-            return rhs.substituteAndEvaluate(substitution, context);
+    static Term buildRHS(Term subject, Substitution<Variable, Term> substitution, LocalRewriteTerm rewrite, int depth, TermContext context) {
+        if (depth == rewrite.path.length) {
+            return rewrite.rewriteRHS.substituteAndEvaluate(substitution, context);
         } else {
-            if (subject instanceof KItem) {
-                KItem kItemSubject = (KItem) subject;
-                List<Term> newContents = new ArrayList<>(((KList) kItemSubject.kList()).getContents());
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
-                return KItem.of(kItemSubject.kLabel(), KList.concatenate(newContents), context.global()).applyAnywhereRules(context);
-            } else if (subject instanceof BuiltinList) {
-                BuiltinList builtinListSubject = (BuiltinList) subject;
-                List<Term> newContents = new ArrayList<>(builtinListSubject.children);
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
-                return BuiltinList
-                        .builder(builtinListSubject.sort, builtinListSubject.operatorKLabel, builtinListSubject.unitKLabel, builtinListSubject.globalContext())
-                        .addAll(newContents)
-                        .build();
-            } else {
-                throw new AssertionError("unexpected rewrite in subject: " + subject);
-            }
+            int index = LocalRewriteTerm.begin(rewrite.path[depth]);
+            List<Term> newContents = new ArrayList<>(children(subject));
+            newContents.set(index, buildRHS(newContents.get(index), substitution, rewrite, depth + 1, context));
+            return rebuild(subject, newContents, context);
         }
     }
 
     /**
      * goes down each of the the paths on the subject to find the rewrite place, does the substitution,
      * and reconstructs the term on its way up
+     *
+     * @param rewrites the rewrites ordered by {@link LocalRewriteTerm#PATH_ORDER}, of which those in the interval
+     *                 [{@code from}, {@code to}) share the first {@code depth} steps of their paths, which lead
+     *                 to {@code subject}
      */
-    private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> rewrites, TermContext context) {
-        if (rewrites.size() == 1 && rewrites.get(0).getLeft().isEmpty()) {
-            return rewrites.get(0).getRight().substituteAndEvaluate(substitution, context);
+    static Term buildRHS(Term subject, Substitution<Variable, Term> substitution, List<LocalRewriteTerm> rewrites, int from, int to, int depth, TermContext context) {
+        if (to - from == 1 && rewrites.get(from).path.length == depth) {
+            return rewrites.get(from).rewriteRHS.substituteAndEvaluate(substitution, context);
         }
 
-        Map<Pair<Integer, Integer>, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> commonPath = rewrites.stream().collect(Collectors.groupingBy(rw -> rw.getLeft().head()));
-
-        List<Term> contents;
-        if (subject instanceof KItem) {
-            contents = ((KList) ((KItem) subject).kList()).getContents();
-        } else if (subject instanceof BuiltinList) {
-            contents = ((BuiltinList) subject).children;
-        } else {
-            throw new AssertionError("unexpected rewrite in subject: " + subject);
-        }
-        List<Term> newContents = new ArrayList<>();
+        List<Term> contents = children(subject);
+        List<Term> newContents = new ArrayList<>(contents.size());
 
+        /* the rewrites under the same child are adjacent, and the children are in path order */
+        int next = from;
         for (int i = 0; i < contents.size(); i++) {
-            Pair<Integer, Integer> pair = Pair.of(i, i + 1);
-            if (commonPath.containsKey(pair)) {
-                List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> theInnerRewrites = commonPath.get(pair).stream().map(p -> Pair.of(
-                        (scala.collection.immutable.List<Pair<Integer, Integer>>) p.getLeft().tail(), p.getRight())).collect(Collectors.toList());
-                newContents.add(buildRHS(contents.get(i), substitution, theInnerRewrites, context));
+            long step = LocalRewriteTerm.step(i, i + 1);
+            while (next < to && rewrites.get(next).path[depth] < step) {
+                next++;
+            }
+            int begin = next;
+            while (next < to && rewrites.get(next).path[depth] == step) {
+                next++;
+            }
+            if (begin < next) {
+                newContents.add(buildRHS(contents.get(i), substitution, rewrites, begin, next, depth + 1, context));
             } else {
                 newContents.add(contents.get(i));
             }
         }
 
+        return rebuild(subject, newContents, context);
+    }
+
+    /**
+     * Returns the children of a node on the path to a rewrite.
+     */
+    private static List<Term> children(Term subject) {
         if (subject instanceof KItem) {
-            return KItem.of(((KItem) subject).kLabel(), KList.concatenate(newContents), context.global()).applyAnywhereRules(context);
+            return ((KList) ((KItem) subject).kList()).getContents();
         } else if (subject instanceof BuiltinList) {
-            return BuiltinList
-                    .builder(((BuiltinList) subject).sort, ((BuiltinList) subject).operatorKLabel, ((BuiltinList) subject).unitKLabel, ((BuiltinList) subject).globalContext())
-                    .addAll(newContents)
-                    .build();
+            return ((BuiltinList) subject).children;
         } else {
             throw new AssertionError("unexpected rewrite in subject: " + subject);
         }
     }
 
+    /**
+     * Rebuilds a node on the path to a rewrite with new children. Only the children on the paths to rewrites are
+     * new, and the others already know whether they are ground and normal, so the rebuilt node gets these flags
+     * from its children rather than by a later traversal of the whole new term.
+     */
+    private static Term rebuild(Term subject, List<Term> newContents, TermContext context) {
+        if (subject instanceof KItem) {
+            Term kLabel = ((KItem) subject).kLabel();
+            Term kList = KList.concatenate(newContents);
+            kList.initializeFlagsFromChildren(newContents);
+            KItem kItem = KItem.of(kLabel, kList, context.global());
+            kItem.initializeFlagsFromChildren(ImmutableList.of(kLabel, kList));
+            return kItem.applyAnywhereRules(context);
+        } else {
+            BuiltinList builtinList = (BuiltinList) subject;
+            Term result = BuiltinList
+                    .builder(builtinList.sort, builtinList.operatorKLabel, builtinList.unitKLabel, builtinList.globalContext())
+                    .addAll(newContents)
+                    .build();
+            result.initializeFlagsFromChildren(newContents);
+            return result;
+        }
+    }
+
     /**
      * Builds the result of rewrite based on the unification constraint.
      * It applies the unification constraint on the right-hand side of the rewrite rule,
@@ -464,7 +538,8 @@ public class SymbolicRewriter {
             SearchType searchType,
             TermContext context,
             boolean substitution) {
-        stopwatch.start();
+        long start = System.nanoTime();
+        long allocationStart = metrics.currentThreadAllocatedBytes();
 
         List<K> searchResults = new ArrayList<>();
         Set<ConstrainedTerm> visited = Sets.newHashSet();
@@ -476,9 +551,8 @@ public class SymbolicRewriter {
         // are handled in krun.Main when not doing search.
         if (depth == 0) {
             addSearchResult(searchResults, initCnstrTerm, pattern, bound, context, substitution);
-            stopwatch.stop();
-            if (context.global().krunOptions.experimental.statistics)
-                System.err.println("[" + visited.size() + "states, " + 0 + "steps, " + stopwatch + "]");
+            metrics.recordStates(visited.size());
+            reportMetrics(context, start, allocationStart);
             return disjunctResults(searchResults);
         }
 
@@ -494,9 +568,8 @@ public class SymbolicRewriter {
         }
         if (searchType == SearchType.STAR) {
             if (addSearchResult(searchResults, initCnstrTerm, pattern, bound, context, substitution)) {
-                stopwatch.stop();
-                if (context.global().krunOptions.experimental.statistics)
-                    System.err.println("[" + visited.size() + "states, " + 0 + "steps, " + stopwatch + "]");
+                metrics.recordStates(visited.size());
+                reportMetrics(context, start, allocationStart);
                 return disjunctResults(searchResults);
             }
         }
@@ -504,9 +577,7 @@ public class SymbolicRewriter {
         int step;
     label:
         for (step = 0; !queue.isEmpty(); ++step) {
-            superheated.clear();
-            superheated.addAll(newSuperheated);
-            newSuperheated.clear();
+            superheated.nextStep();
             for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
                 ConstrainedTerm term = entry.getKey();
                 Integer currentDepth = entry.getValue();
@@ -548,10 +619,9 @@ public class SymbolicRewriter {
             nextQueue.clear();
         }
 
-        stopwatch.stop();
-        if (context.global().krunOptions.experimental.statistics) {
-            System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
-        }
+        metrics.recordSteps(step);
+        metrics.recordStates(visited.size());
+        reportMetrics(context, start, allocationStart);
         return disjunctResults(searchResults);
     }
 
@@ -1,95 +1,295 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import org.kframework.backend.java.kil.*;
-import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.krun.KRunOptions;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-import static org.apache.commons.io.FileUtils.writeStringToFile;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * For measuring semantic coverage
+ * <p>
+ * Records the rules applied by the rewriter into the file given by {@code --coverage-file}. The indices of the
+ * applied rules (in {@link Definition#ruleTable}) are recorded into a small ring of preallocated buffers, and full
+ * buffers are written by a background thread, so recording a rule application does not touch the file system.
+ * <p>
+ * The file is binary. Each recorder appends a section to it, so the file accumulates the rules applied by
+ * successive runs until it is deleted. A section is a header with the source location of each rule of the
+ * definition, followed by the indices of the applied rules, in order. Use {@link #main} (or {@link #report}) to
+ * map the indices back to the locations of the rules. The recorder must be {@link #close closed} when the run is
+ * over, to release the file and the background thread.
  *
  * @author daejunpark
  */
 public class Coverage {
 
+    private static final int MAGIC = 0x4B434F56; // "KCOV"
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final int BUFFER_COUNT = 4;
+
+    private static final Coverage DISABLED = new Coverage(null);
+
+    private final File file;
+
+    private DataOutputStream out;
+    private ExecutorService writer;
+    private BlockingQueue<int[]> freeBuffers;
+    private int[] buffer;
+    private int position;
+    private volatile IOException writeError;
+
+    private Coverage(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the coverage recorder requested by {@code krunOptions}, or a shared disabled instance if no
+     * coverage file was requested (or {@code krunOptions} is {@code null}).
+     */
+    public static Coverage of(KRunOptions krunOptions) {
+        if (krunOptions == null || krunOptions.experimental.coverage == null) {
+            return DISABLED;
+        }
+        return new Coverage(krunOptions.experimental.coverage);
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Starts a section of the coverage file, creating it if needed, and writes the locations of the rules of
+     * {@code definition} into it. Subsequent calls do nothing until the recorder is closed.
+     */
+    public synchronized void init(Definition definition) {
+        if (!isEnabled() || out != null) {
+            return;
+        }
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(definition.ruleTable.size());
+            for (int i = 0; i < definition.ruleTable.size(); i++) {
+                out.writeUTF(getSourceLocation(definition.ruleTable.get(i)));
+            }
+        } catch (IOException e) {
+            throw KEMException.internalError("Could not write to " + file, e);
+        }
+        freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        for (int i = 1; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(new int[BUFFER_SIZE]);
+        }
+        buffer = new int[BUFFER_SIZE];
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "coverage-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     /**
-     * Print location information of {@code constrainedTerm} into {@code file}.
-     * - If {@code file} is null, then it does nothing.
-     * - If the location information is not available, then it does nothing.
-     *
-     * @param file could be null.
-     * @param constrainedTerm should not be null.
+     * Records an application of the rule {@code ruleIndex} of {@link Definition#ruleTable}. If the background
+     * thread falls behind by more than the capacity of the ring of buffers, waits for it.
      */
-    public static void print(File file, ConstrainedTerm constrainedTerm) {
-        if (file != null) {
-            print(file, getSourceLocation(constrainedTerm));
+    public void recordRule(int ruleIndex) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            if (out == null) {
+                return;
+            }
+            buffer[position++] = ruleIndex;
+            if (position == buffer.length) {
+                handOff();
+            }
         }
     }
 
     /**
-     * Print location information of {@code term} into {@code file}.
-     * - If {@code file} is {@code null}, then it does nothing.
-     * - If the location information is not available, then it does nothing.
-     *
-     * @param file could be null.
-     * @param term should not be null.
+     * Writes the rule applications recorded so far to the coverage file, and waits until they are written.
      */
-    public static void print(File file, Term term) {
-        if (file != null) {
-            print(file, getSourceLocation(term));
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        ExecutorService writer;
+        synchronized (this) {
+            if (out == null) {
+                return;
+            }
+            if (position > 0) {
+                handOff();
+            }
+            writer = this.writer;
+        }
+        try {
+            writer.submit(() -> {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    writeError = e;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw KEMException.internalError("Could not write to " + file, e);
+        }
+        if (writeError != null) {
+            throw KEMException.internalError("Could not write to " + file, writeError);
         }
     }
 
     /**
-     * Print location information of {@code rule} into {@code file}.
-     * - If {@code file} is {@code null}, then it does nothing.
-     * - If the location information is not available, then it does nothing.
-     *
-     * @param file could be null.
-     * @param rule should not be null.
+     * Writes the rule applications recorded so far to the coverage file, closes it and stops the background
+     * thread. The recorder can be initialized again afterwards, starting a new section of the file.
      */
-    public static void print(File file, Rule rule) {
-        if (file != null) {
-            print(file, getSourceLocation(rule));
+    public void close() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                if (out != null) {
+                    writer.shutdown();
+                    try {
+                        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        throw KEMException.internalError("Could not write to " + file, e);
+                    } finally {
+                        out = null;
+                        writer = null;
+                        freeBuffers = null;
+                        buffer = null;
+                        position = 0;
+                    }
+                }
+            }
         }
     }
 
-    private synchronized static void print(File file, String string) {
-        if (file != null && string != null) {
+    private void handOff() {
+        int[] full = buffer;
+        int length = position;
+        try {
+            buffer = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            buffer = new int[BUFFER_SIZE];
+        }
+        position = 0;
+        writer.execute(() -> {
             try {
-                writeStringToFile(file, string + "\n", true);
+                for (int i = 0; i < length; i++) {
+                    out.writeInt(full[i]);
+                }
             } catch (IOException e) {
-                throw KEMException.internalError("Could not write to " + file, e);
+                writeError = e;
             }
-        }
+            freeBuffers.offer(full);
+        });
     }
 
-    private static String getSourceLocation(ConstrainedTerm constrainedTerm) {
-        return getSourceLocation(constrainedTerm.term());
+    private static String getSourceLocation(Rule rule) {
+        // Return the empty string, if location information is not available.
+        if (rule == null || rule.getSource() == null || rule.getLocation() == null) {
+            return "";
+        }
+        return rule.getSource().toString() + ":" + rule.getLocation().toString();
     }
 
-    private static String getSourceLocation(Term term) {
-        String s = null; // Return null, if location information is not available.
-        Term t = term.getCellContentsByName("<k>").get(0);
-        if (t instanceof KSequence && ((KSequence) t).concreteSize() > 0) {
-            t = ((KSequence) t).get(0);
+    /**
+     * Reads the coverage file {@code file} and prints into {@code out} the location of each applied rule, one per
+     * line, in the order they were applied. If {@code aggregate} is true, prints instead the number of
+     * applications of each rule followed by its location, one rule per line, adding up the applications of a
+     * rule over all sections of the file.
+     */
+    public static void report(File file, PrintStream out, boolean aggregate) throws IOException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int next = in.readInt();
+            while (next == MAGIC) {
+                if (in.readInt() != VERSION) {
+                    throw KEMException.criticalError("Not a coverage file: " + file);
+                }
+                String[] locations = new String[in.readInt()];
+                for (int i = 0; i < locations.length; i++) {
+                    locations[i] = in.readUTF();
+                    if (aggregate && !locations[i].isEmpty()) {
+                        counts.putIfAbsent(locations[i], 0L);
+                    }
+                }
+                /* a rule index is smaller than the number of rules, so it cannot be the start of the next section */
+                try {
+                    while ((next = in.readInt()) != MAGIC) {
+                        if (next < 0 || next >= locations.length) {
+                            throw KEMException.criticalError("Not a coverage file: " + file);
+                        }
+                        if (locations[next].isEmpty()) {
+                            continue;
+                        }
+                        if (aggregate) {
+                            counts.merge(locations[next], 1L, Long::sum);
+                        } else {
+                            out.println(locations[next]);
+                        }
+                    }
+                } catch (EOFException e) {
+                    next = -1;
+                }
+            }
+            if (next != -1) {
+                throw KEMException.criticalError("Not a coverage file: " + file);
+            }
         }
-        if (t instanceof KItem) {
-            Source source = t.getSource();
-            s = source.toString() + ":" + t.getLocation().toString();
+        if (aggregate) {
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    out.println(entry.getValue() + " " + entry.getKey());
+                }
+            }
         }
-        return s;
     }
 
-    private static String getSourceLocation(Rule rule) {
-        String s; // Return null, if location information is not available.
-        Source source = rule.getSource();
-        s = source.toString() + ":" + rule.getLocation().toString();
-        return s;
+    /**
+     * Prints the contents of a coverage file. Usage: {@code Coverage [--counts] <coverage-file>}.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean aggregate = args.length == 2 && args[0].equals("--counts");
+        if (args.length != (aggregate ? 2 : 1)) {
+            System.err.println("usage: Coverage [--counts] <coverage-file>");
+            System.exit(1);
+        }
+        report(new File(args[args.length - 1]), System.out, aggregate);
     }
 }
@@ -29,6 +29,7 @@ import org.kframework.backend.java.symbolic.PatternMatcher;
 import org.kframework.backend.java.symbolic.RuleAuditing;
 import org.kframework.backend.java.symbolic.Substitution;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedList;
@@ -67,7 +68,6 @@ public class RewriteEngineUtils {
         }
 
         /* evaluate data structure lookups/choices and add bindings for them */
-        Profiler.startTimer(Profiler.EVALUATE_LOOKUP_CHOICE_TIMER);
         int i = 0;
         for (Equality equality : rule.lookups().equalities()) {
             Term lookupOrChoice = equality.leftHandSide();
@@ -129,11 +129,9 @@ public class RewriteEngineUtils {
             }
             ++i;
         }
-        Profiler.stopTimer(Profiler.EVALUATE_LOOKUP_CHOICE_TIMER);
 
 
         /* evaluate side conditions */
-        Profiler.startTimer(Profiler.EVALUATE_REQUIRES_TIMER);
         if (crntSubst != null) {
             i = 0;
             for (Term require : rule.requires()) {
@@ -157,7 +155,6 @@ public class RewriteEngineUtils {
                 i++;
             }
         }
-        Profiler.stopTimer(Profiler.EVALUATE_REQUIRES_TIMER);
 
         if (crntSubst != null) {
             ConjunctiveFormula substitutionAsFormula = ConjunctiveFormula.of(crntSubst, context.global())
@@ -208,6 +205,7 @@ public class RewriteEngineUtils {
         }
 
         Deque<Term> stack = new LinkedList<>();
+        List<Term> children = new ArrayList<>();
         for (RHSInstruction instruction : rhsInstructions) {
             switch (instruction.type()) {
             case PUSH:
@@ -216,67 +214,72 @@ public class RewriteEngineUtils {
                 break;
             case CONSTRUCT:
                 RHSInstruction.Constructor constructor = instruction.constructor();
+                children.clear();
+                Term constructed;
                 switch (constructor.type()) {
                 case BUILTIN_LIST:
                     BuiltinList.Builder builder = BuiltinList.builder(constructor.assocListSort, constructor.assocListOperator, constructor.assocListUnit, global);
                     for (int i = 0; i < constructor.size1(); i++) {
-                        builder.add(stack.pop());
+                        builder.add(pop(stack, children));
                     }
-                    stack.push(builder.build());
+                    constructed = builder.build();
                     break;
                 case BUILTIN_MAP:
                     BuiltinMap.Builder builder1 = BuiltinMap.builder(global);
                     for (int i = 0; i < constructor.size1(); i++) {
-                        Term key = stack.pop();
-                        Term value = stack.pop();
+                        Term key = pop(stack, children);
+                        Term value = pop(stack, children);
                         builder1.put(key, value);
                     }
                     for (int i = 0; i < constructor.size2(); i++) {
-                        builder1.concatenate(stack.pop());
+                        builder1.concatenate(pop(stack, children));
                     }
-                    stack.push(builder1.build());
+                    constructed = builder1.build();
                     break;
                 case BUILTIN_SET:
                     BuiltinSet.Builder builder2 = BuiltinSet.builder(global);
                     for (int i = 0; i < constructor.size1(); i++) {
-                        builder2.add(stack.pop());
+                        builder2.add(pop(stack, children));
                     }
                     for (int i = 0; i < constructor.size2(); i++) {
-                        builder2.concatenate(stack.pop());
+                        builder2.concatenate(pop(stack, children));
                     }
-                    stack.push(builder2.build());
+                    constructed = builder2.build();
                     break;
                 case KITEM:
-                    Term kLabel = stack.pop();
-                    Term kList = stack.pop();
-                    stack.push(KItem.of(kLabel, kList, global, constructor.getSource(), constructor.getLocation()));
+                    Term kLabel = pop(stack, children);
+                    Term kList = pop(stack, children);
+                    constructed = KItem.of(kLabel, kList, global, constructor.getSource(), constructor.getLocation());
                     break;
                 case KITEM_PROJECTION:
-                    stack.push(new KItemProjection(constructor.kind(), stack.pop()));
+                    constructed = new KItemProjection(constructor.kind(), pop(stack, children));
                     break;
                 case KLABEL_INJECTION:
-                    stack.push(new KLabelInjection(stack.pop()));
+                    constructed = new KLabelInjection(pop(stack, children));
                     break;
                 case INJECTED_KLABEL:
-                    stack.push(new InjectedKLabel(stack.pop()));
+                    constructed = new InjectedKLabel(pop(stack, children));
                     break;
                 case KLIST:
                     KList.Builder builder3 = KList.builder();
                     for (int i = 0; i < constructor.size1(); i++) {
-                        builder3.concatenate(stack.pop());
+                        builder3.concatenate(pop(stack, children));
                     }
-                    stack.push(builder3.build());
+                    constructed = builder3.build();
                     break;
                 case KSEQUENCE:
                     KSequence.Builder builder4 = KSequence.builder();
                     for (int i = 0; i < constructor.size1(); i++) {
-                        builder4.concatenate(stack.pop());
+                        builder4.concatenate(pop(stack, children));
                     }
-                    stack.push(builder4.build());
+                    constructed = builder4.build();
                     break;
                 default:
                     throw new AssertionError("unreachable");
                 }
+                /* the subterms taken from the subject already know whether they are ground and normal */
+                constructed.initializeFlagsFromChildren(children);
+                stack.push(constructed);
                 break;
             case SUBST:
                 Variable var = (Variable) instruction.term();
@@ -299,4 +302,10 @@ public class RewriteEngineUtils {
         assert stack.size() == 1;
         return stack.pop();
     }
+
+    private static Term pop(Deque<Term> stack, List<Term> children) {
+        Term term = stack.pop();
+        children.add(term);
+        return term;
+    }
 }
@@ -0,0 +1,509 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.krun.KRunOptions;
+import org.kframework.utils.errorsystem.KEMException;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+
+/**
+ * Low-overhead metrics of the rewrite engine: per-rule {@link RuleCounter}s, per-function call counts and
+ * (inclusive, but not counting recursive calls twice) time, time spent in each {@link Phase}, SMT query counts and latency, and an estimate of the
+ * bytes allocated by the rewriting threads.
+ * <p>
+ * The global counters are striped ({@link LongAdder}), so recording them is contention-free when rewriting in
+ * parallel. The per-rule counters are {@link AtomicLongArray}s, which are not striped: threads recording the same
+ * rule (or rules with neighbouring indices) at the same time contend. When metrics are disabled every recording
+ * method returns after a single field read; callers that need to measure time should guard on
+ * {@link #isEnabled()} before reading the clock.
+ * <p>
+ * The collected metrics are exported as JSON ({@code --metrics-file}), printed as a summary
+ * ({@code --statistics}), and/or exposed through JMX ({@code --metrics-jmx}).
+ */
+public class RewriteMetrics implements RewriteMetricsMXBean {
+
+    /**
+     * The phases of a rewrite step. Function evaluation happens both while matching (side conditions)
+     * and while constructing the right-hand side, so the phases are inclusive and may overlap.
+     */
+    public enum Phase {
+        MATCH, CONSTRUCT, EVALUATE
+    }
+
+    /**
+     * The per-rule counters, indexed by {@link Definition#ruleTable} index. A rule is a candidate if it
+     * survives the matching automaton; a candidate fails if
+     * {@link org.kframework.backend.java.kil.ConstrainedTerm#evaluateConstraints} returns no solution for it;
+     * {@code CONSTRAINT_NANOS} is the cumulative time spent evaluating its constraints.
+     */
+    public enum RuleCounter {
+        CANDIDATES, CONSTRAINT_FAILURES, CONSTRAINT_NANOS, APPLICATIONS
+    }
+
+    private static final RewriteMetrics DISABLED = new RewriteMetrics(false, null, false);
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final boolean enabled;
+    private final File exportFile;
+
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder states = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder[] phaseNanos = newAdders(Phase.values().length);
+    private final LongAdder[] phaseCounts = newAdders(Phase.values().length);
+    private final LongAdder smtQueries = new LongAdder();
+    private final LongAdder smtNanos = new LongAdder();
+
+    private volatile AtomicLongArray[] ruleCounters = newCounters(0);
+    private final ConcurrentMap<KLabelConstant, FunctionStats> functions = new ConcurrentHashMap<>();
+
+    /* the function evaluations in progress on each thread, so that only the outermost ones are timed */
+    private final ThreadLocal<FunctionDepths> functionDepths = ThreadLocal.withInitial(FunctionDepths::new);
+
+    private RewriteMetrics(boolean enabled, File exportFile, boolean jmx) {
+        this.enabled = enabled;
+        this.exportFile = exportFile;
+        if (jmx) {
+            registerMBean();
+        }
+    }
+
+    /**
+     * Returns the metrics requested by {@code krunOptions}, or a shared disabled instance if no metrics
+     * were requested (or {@code krunOptions} is {@code null}).
+     */
+    public static RewriteMetrics of(KRunOptions krunOptions) {
+        if (krunOptions == null) {
+            return DISABLED;
+        }
+        KRunOptions.Experimental options = krunOptions.experimental;
+        if (!options.statistics && options.metricsFile == null && !options.metricsJmx) {
+            return DISABLED;
+        }
+        return new RewriteMetrics(true, options.metricsFile, options.metricsJmx);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sizes the per-rule counters for the rules in {@link Definition#ruleTable}.
+     */
+    public void initRules(int ruleCount) {
+        if (!enabled || ruleCounters[0].length() >= ruleCount) {
+            return;
+        }
+        synchronized (this) {
+            AtomicLongArray[] old = ruleCounters;
+            if (old[0].length() < ruleCount) {
+                AtomicLongArray[] grown = newCounters(ruleCount);
+                for (int c = 0; c < old.length; c++) {
+                    for (int i = 0; i < old[c].length(); i++) {
+                        grown[c].set(i, old[c].get(i));
+                    }
+                }
+                ruleCounters = grown;
+            }
+        }
+    }
+
+    public void recordStep() {
+        if (enabled) {
+            steps.increment();
+        }
+    }
+
+    public void recordSteps(int count) {
+        if (enabled) {
+            steps.add(count);
+        }
+    }
+
+    /**
+     * Records the number of distinct states visited by a search.
+     */
+    public void recordStates(int count) {
+        if (enabled) {
+            states.add(count);
+        }
+    }
+
+    /**
+     * Records the wall-clock time of a complete rewrite or search.
+     */
+    public void recordTotal(long nanos) {
+        if (enabled) {
+            totalNanos.add(nanos);
+        }
+    }
+
+    public void recordRuleApplication(int ruleIndex) {
+        if (enabled) {
+            addToRule(RuleCounter.APPLICATIONS, ruleIndex, 1);
+        }
+    }
+
+    public void recordRuleCandidate(int ruleIndex) {
+        if (enabled) {
+            addToRule(RuleCounter.CANDIDATES, ruleIndex, 1);
+        }
+    }
+
+    /**
+     * Records one evaluation of the constraints of a candidate rule, which took {@code nanos} and
+     * failed if it produced no solution.
+     */
+    public void recordRuleConstraints(int ruleIndex, long nanos, boolean failed) {
+        if (enabled) {
+            addToRule(RuleCounter.CONSTRAINT_NANOS, ruleIndex, nanos);
+            if (failed) {
+                addToRule(RuleCounter.CONSTRAINT_FAILURES, ruleIndex, 1);
+            }
+        }
+    }
+
+    private void addToRule(RuleCounter counter, int ruleIndex, long delta) {
+        AtomicLongArray counts = ruleCounters[counter.ordinal()];
+        if (ruleIndex < counts.length()) {
+            counts.addAndGet(ruleIndex, delta);
+        }
+    }
+
+    /**
+     * Returns the value of {@code counter} for the rule at {@code ruleIndex}.
+     */
+    public long getRuleCounter(RuleCounter counter, int ruleIndex) {
+        AtomicLongArray counts = ruleCounters[counter.ordinal()];
+        return ruleIndex < counts.length() ? counts.get(ruleIndex) : 0;
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        if (enabled) {
+            phaseNanos[phase.ordinal()].add(nanos);
+            phaseCounts[phase.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records the start of an evaluation of the function {@code kLabel}, and returns the start time to pass to
+     * {@link #stopFunction}.
+     */
+    public long startFunction(KLabelConstant kLabel) {
+        if (!enabled) {
+            return 0;
+        }
+        FunctionDepths depths = functionDepths.get();
+        depths.total++;
+        depths.byLabel.computeIfAbsent(kLabel, l -> new int[1])[0]++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the end of an evaluation of the function {@code kLabel} started by {@link #startFunction}. Like the
+     * time of a reentrant stopwatch, the time of a function only includes its outermost calls, so recursive calls
+     * are not counted twice, and only the outermost function calls count towards {@link Phase#EVALUATE}.
+     */
+    public void stopFunction(KLabelConstant kLabel, long start) {
+        if (!enabled) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        FunctionDepths depths = functionDepths.get();
+        int[] depth = depths.byLabel.get(kLabel);
+        assert depth != null && depth[0] > 0 && depths.total > 0 : "Function " + kLabel + " stopped but not started";
+
+        FunctionStats stats = functions.get(kLabel);
+        if (stats == null) {
+            FunctionStats newStats = new FunctionStats();
+            stats = functions.putIfAbsent(kLabel, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        stats.calls.increment();
+        if (--depth[0] == 0) {
+            depths.byLabel.remove(kLabel);
+            stats.nanos.add(nanos);
+        }
+        if (--depths.total == 0) {
+            recordPhase(Phase.EVALUATE, nanos);
+        }
+    }
+
+    long functionCalls(KLabelConstant kLabel) {
+        FunctionStats stats = functions.get(kLabel);
+        return stats != null ? stats.calls.sum() : 0;
+    }
+
+    long functionNanos(KLabelConstant kLabel) {
+        FunctionStats stats = functions.get(kLabel);
+        return stats != null ? stats.nanos.sum() : 0;
+    }
+
+    long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    long phaseCount(Phase phase) {
+        return phaseCounts[phase.ordinal()].sum();
+    }
+
+    public void recordSMTQuery(long nanos) {
+        if (enabled) {
+            smtQueries.increment();
+            smtNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, or {@code -1} if the JVM
+     * does not support allocation accounting. Pass the result to {@link #recordAllocation(long)} to
+     * attribute the bytes allocated in between to the rewrite engine.
+     */
+    public long currentThreadAllocatedBytes() {
+        if (enabled && THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public void recordAllocation(long startBytes) {
+        if (enabled && startBytes >= 0) {
+            allocatedBytes.add(currentThreadAllocatedBytes() - startBytes);
+        }
+    }
+
+    @Override
+    public long getSteps() {
+        return steps.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public long getSMTQueries() {
+        return smtQueries.sum();
+    }
+
+    @Override
+    public long getSMTMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(smtNanos.sum());
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            result.put(phase.name(), TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()].sum()));
+        }
+        return result;
+    }
+
+    @Override
+    public String getJson() {
+        return toJson(null);
+    }
+
+    /**
+     * Renders the metrics as JSON. If {@code definition} is not {@code null}, rules are annotated with
+     * their source location.
+     */
+    public String toJson(Definition definition) {
+        JsonObject root = new JsonObject();
+        root.addProperty("steps", getSteps());
+        root.addProperty("states", states.sum());
+        root.addProperty("totalNanos", totalNanos.sum());
+        root.addProperty("allocatedBytes", getAllocatedBytes());
+
+        JsonObject phases = new JsonObject();
+        for (Phase phase : Phase.values()) {
+            JsonObject p = new JsonObject();
+            p.addProperty("count", phaseCounts[phase.ordinal()].sum());
+            p.addProperty("nanos", phaseNanos[phase.ordinal()].sum());
+            phases.add(phase.name().toLowerCase(), p);
+        }
+        root.add("phases", phases);
+
+        JsonObject smt = new JsonObject();
+        smt.addProperty("queries", getSMTQueries());
+        smt.addProperty("nanos", smtNanos.sum());
+        root.add("smt", smt);
+
+        JsonArray rules = new JsonArray();
+        AtomicLongArray[] counters = ruleCounters;
+        for (int i = 0; i < counters[0].length(); i++) {
+            if (counters[RuleCounter.CANDIDATES.ordinal()].get(i) == 0
+                    && counters[RuleCounter.APPLICATIONS.ordinal()].get(i) == 0) {
+                continue;
+            }
+            JsonObject r = new JsonObject();
+            r.addProperty("index", i);
+            String location = ruleLocation(definition, i);
+            if (location != null) {
+                r.addProperty("location", location);
+            }
+            for (RuleCounter counter : RuleCounter.values()) {
+                r.addProperty(counter.name().toLowerCase(), counters[counter.ordinal()].get(i));
+            }
+            rules.add(r);
+        }
+        root.add("rules", rules);
+
+        JsonArray functionArray = new JsonArray();
+        for (Map.Entry<KLabelConstant, FunctionStats> entry : sortedFunctions()) {
+            JsonObject f = new JsonObject();
+            f.addProperty("label", entry.getKey().label());
+            f.addProperty("calls", entry.getValue().calls.sum());
+            f.addProperty("nanos", entry.getValue().nanos.sum());
+            functionArray.add(f);
+        }
+        root.add("functions", functionArray);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(root);
+    }
+
+    /**
+     * Prints a human-readable summary to {@code System.err} if {@code --statistics} is set, and writes the
+     * JSON export if {@code --metrics-file} is set.
+     */
+    public void report(Definition definition, KRunOptions krunOptions) {
+        if (!enabled) {
+            return;
+        }
+        if (krunOptions.experimental.statistics) {
+            System.err.printf("[%d states, %d steps, %dms, match=%dms, construct=%dms, evaluate=%dms, smt=%d queries/%dms, alloc=%dMB]%n",
+                    states.sum(), getSteps(), TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.MATCH.ordinal()].sum()),
+                    TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.CONSTRUCT.ordinal()].sum()),
+                    TimeUnit.NANOSECONDS.toMillis(phaseNanos[Phase.EVALUATE.ordinal()].sum()),
+                    getSMTQueries(), getSMTMillis(), getAllocatedBytes() >> 20);
+            System.err.println("Top 10 rules by constraint evaluation time:");
+            for (int i : sortedRules(RuleCounter.CONSTRAINT_NANOS, 10)) {
+                String location = ruleLocation(definition, i);
+                System.err.printf("%s = %d candidates, %d failures, %d applications, %dms%n",
+                        location != null ? location : "rule " + i,
+                        getRuleCounter(RuleCounter.CANDIDATES, i),
+                        getRuleCounter(RuleCounter.CONSTRAINT_FAILURES, i),
+                        getRuleCounter(RuleCounter.APPLICATIONS, i),
+                        TimeUnit.NANOSECONDS.toMillis(getRuleCounter(RuleCounter.CONSTRAINT_NANOS, i)));
+            }
+            System.err.println("Top 10 most expensive functions:");
+            List<Map.Entry<KLabelConstant, FunctionStats>> sorted = sortedFunctions();
+            for (int i = 0; i < 10 && i < sorted.size(); i++) {
+                FunctionStats stats = sorted.get(i).getValue();
+                System.err.printf("%s = %d calls, %dms%n", sorted.get(i).getKey().label(),
+                        stats.calls.sum(), TimeUnit.NANOSECONDS.toMillis(stats.nanos.sum()));
+            }
+        }
+        if (exportFile != null) {
+            try {
+                writeStringToFile(exportFile, toJson(definition));
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not write metrics to " + exportFile, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of at most {@code limit} rules with a non-zero {@code counter}, in decreasing
+     * order of the counter.
+     */
+    private List<Integer> sortedRules(RuleCounter counter, int limit) {
+        AtomicLongArray counts = ruleCounters[counter.ordinal()];
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0) {
+                indices.add(i);
+            }
+        }
+        indices.sort(Comparator.comparingLong((Integer i) -> counts.get(i)).reversed());
+        return indices.subList(0, Math.min(limit, indices.size()));
+    }
+
+    private static String ruleLocation(Definition definition, int ruleIndex) {
+        Rule rule = definition != null ? definition.ruleTable.get(ruleIndex) : null;
+        if (rule == null || rule.getSource() == null || rule.getLocation() == null) {
+            return null;
+        }
+        return rule.getSource() + ":" + rule.getLocation();
+    }
+
+    private List<Map.Entry<KLabelConstant, FunctionStats>> sortedFunctions() {
+        List<Map.Entry<KLabelConstant, FunctionStats>> sorted = new ArrayList<>(functions.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<KLabelConstant, FunctionStats> e) -> e.getValue().nanos.sum()).reversed());
+        return sorted;
+    }
+
+    private void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("org.kframework:type=RewriteMetrics");
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // another rewriter registered concurrently; the most recent one wins next time
+        } catch (JMException e) {
+            throw KEMException.internalError("Could not register rewrite metrics with JMX", e);
+        }
+    }
+
+    private static AtomicLongArray[] newCounters(int ruleCount) {
+        AtomicLongArray[] counters = new AtomicLongArray[RuleCounter.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicLongArray(ruleCount);
+        }
+        return counters;
+    }
+
+    private static LongAdder[] newAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static class FunctionDepths {
+        int total;
+        final Map<KLabelConstant, int[]> byLabel = new HashMap<>();
+    }
+
+    private static class FunctionStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+}
@@ -0,0 +1,23 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RewriteMetrics}, registered as {@code org.kframework:type=RewriteMetrics}
+ * when krun is invoked with {@code --metrics-jmx}.
+ */
+public interface RewriteMetricsMXBean {
+
+    long getSteps();
+
+    long getAllocatedBytes();
+
+    long getSMTQueries();
+
+    long getSMTMillis();
+
+    Map<String, Long> getPhaseMillis();
+
+    String getJson();
+}
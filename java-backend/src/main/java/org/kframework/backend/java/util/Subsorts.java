@@ -1,27 +1,34 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import com.google.common.collect.ArrayTable;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
-import org.kframework.Collections;
 import org.kframework.backend.java.MiniKoreUtils;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.definition.Module;
 import org.kframework.kil.loader.Context;
-import org.kframework.minikore.implementation.MiniKore;
 import org.kframework.utils.errorsystem.KEMException;
 import scala.collection.JavaConversions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 
 /**
  * Subsort relation.
+ * <p>
+ * The relation is stored as one bit row per sort, indexed by {@link Sort#ordinal()}, so subsort checks and the
+ * computation of common bounds are a few word operations. Greatest lower bounds and least upper bounds of small
+ * sets of sorts are memoized.
  *
  * TODO(YilongL): delegates this to KORE/Context
  *
@@ -29,80 +36,98 @@ import java.util.stream.Collectors;
  */
 public class Subsorts implements Serializable {
 
+    /**
+     * bounds of sets of at most this many sorts are memoized
+     */
+    private static final int MAX_CACHED_SET_SIZE = 8;
+
     private final Set<Sort> sorts;
 
     /**
-     * {@code subsort[sort1][sort2] = true} iff {@code sort1} is bigger than
-     * {@code sort2}.
+     * {@code byOrdinal[sort.ordinal()] == sort} iff {@code sort} is defined
      */
-    private final Table<Sort, Sort, Boolean> subsort;
+    private final Sort[] byOrdinal;
 
-    public Subsorts(Context context) {
-        Set<org.kframework.kil.Sort> genericKILSorts = context.getAllSorts();
-        ImmutableSet.Builder<Sort> setBuilder = ImmutableSet.builder();
-        for (org.kframework.kil.Sort genericKILSort : genericKILSorts) {
-            /* ensure all sorts in context have Java-backend counterparts */
-            Sort sort = Sort.of(genericKILSort.getName());
-            setBuilder.add(sort);
-        }
-        this.sorts = setBuilder.build();
+    /**
+     * {@code subsorts[sort1.ordinal()].get(sort2.ordinal())} iff {@code sort1} is bigger than {@code sort2}
+     */
+    private final BitSet[] subsorts;
 
-        this.subsort = ArrayTable.create(sorts, sorts);
-        for (Sort sort1 : sorts) {
-            for (Sort sort2 : sorts) {
-                subsort.put(sort1, sort2, context
-                        .isSubsorted(sort1.toFrontEnd(), sort2.toFrontEnd()));
-            }
-        }
+    /**
+     * {@code supersorts[sort1.ordinal()].get(sort2.ordinal())} iff {@code sort1} is smaller than {@code sort2}
+     */
+    private final BitSet[] supersorts;
+
+    private transient Map<BitSet, Optional<Sort>> glbCache = new ConcurrentHashMap<>();
+    private transient Map<BitSet, Optional<Sort>> lubCache = new ConcurrentHashMap<>();
+
+    public Subsorts(Context context) {
+        this(context.getAllSorts().stream()
+                        /* ensure all sorts in context have Java-backend counterparts */
+                        .map(s -> Sort.of(s.getName()))
+                        .collect(Collectors.toMap(s -> s, Sort::toFrontEnd, (s1, s2) -> s1)),
+                context::isSubsorted);
     }
 
     // Minikore to Subsorts Constructor
     public Subsorts(MiniKoreUtils.ModuleUtils moduleUtils) {
-        sorts = JavaConversions.asJavaCollection(moduleUtils.definedSorts()).stream()
-                        .map(s -> Sort.of(s))
-                        .collect(Collectors.toSet());
-
-        this.subsort = ArrayTable.create(sorts, sorts);
-        for (String sort1 : Collections.iterable(moduleUtils.definedSorts())) {
-            for (String sort2 : Collections.iterable(moduleUtils.definedSorts())) {
-                subsort.put(
-                        Sort.of(sort1),
-                        Sort.of(sort2),
-                        moduleUtils.subsorts().$greater(sort1, sort2));
-            }
-        }
+        this(JavaConversions.asJavaCollection(moduleUtils.definedSorts()).stream()
+                        .collect(Collectors.toMap(s -> Sort.of(s), s -> s, (s1, s2) -> s1)),
+                (sort1, sort2) -> moduleUtils.subsorts().$greater(sort1, sort2));
     }
 
     public Subsorts(Module module) {
-        sorts = JavaConversions.asJavaCollection(module.definedSorts()).stream()
-                .map(s -> Sort.of(s.name()))
-                .collect(Collectors.toSet());
-
-        this.subsort = ArrayTable.create(sorts, sorts);
-        for (org.kframework.kore.Sort sort1 : Collections.iterable(module.definedSorts())) {
-            for (org.kframework.kore.Sort sort2 : Collections.iterable(module.definedSorts())) {
-                subsort.put(
-                        Sort.of(sort1.name()),
-                        Sort.of(sort2.name()),
-                        module.subsorts().$greater(sort1, sort2));
+        this(JavaConversions.asJavaCollection(module.definedSorts()).stream()
+                        .collect(Collectors.toMap(s -> Sort.of(s.name()), s -> s, (s1, s2) -> s1)),
+                (sort1, sort2) -> module.subsorts().$greater(sort1, sort2));
+    }
+
+    /**
+     * @param sorts       the defined sorts, mapped to their representation in the front end
+     * @param isSubsorted whether the first front-end sort is bigger than the second
+     */
+    private <T> Subsorts(Map<Sort, T> sorts, BiPredicate<T, T> isSubsorted) {
+        this.sorts = ImmutableSet.copyOf(sorts.keySet());
+
+        int size = sorts.keySet().stream().mapToInt(Sort::ordinal).max().orElse(-1) + 1;
+        byOrdinal = new Sort[size];
+        subsorts = new BitSet[size];
+        supersorts = new BitSet[size];
+        for (Sort sort : sorts.keySet()) {
+            byOrdinal[sort.ordinal()] = sort;
+            subsorts[sort.ordinal()] = new BitSet(size);
+            supersorts[sort.ordinal()] = new BitSet(size);
+        }
+        for (Map.Entry<Sort, T> sort1 : sorts.entrySet()) {
+            for (Map.Entry<Sort, T> sort2 : sorts.entrySet()) {
+                if (isSubsorted.test(sort1.getValue(), sort2.getValue())) {
+                    subsorts[sort1.getKey().ordinal()].set(sort2.getKey().ordinal());
+                    supersorts[sort2.getKey().ordinal()].set(sort1.getKey().ordinal());
+                }
             }
         }
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        glbCache = new ConcurrentHashMap<>();
+        lubCache = new ConcurrentHashMap<>();
+    }
+
     public Set<Sort> allSorts() {
         return sorts;
     }
 
-    public boolean isSubsorted(Sort bigSort, Sort smallSort) {
-        Boolean isSubsorted = subsort.get(bigSort, smallSort);
-        if (isSubsorted == null) {
-            if (subsort.containsRow(bigSort)) {
-                throw KEMException.criticalError("Sort " + smallSort.toString() + " is undefined.");
-            } else {
-                throw KEMException.criticalError("Sort " + bigSort.toString() + " is undefined.");
-            }
+    private int ordinal(Sort sort) {
+        int ordinal = sort.ordinal();
+        if (ordinal >= byOrdinal.length || byOrdinal[ordinal] != sort) {
+            throw KEMException.criticalError("Sort " + sort.toString() + " is undefined.");
         }
-        return isSubsorted;
+        return ordinal;
+    }
+
+    public boolean isSubsorted(Sort bigSort, Sort smallSort) {
+        return subsorts[ordinal(bigSort)].get(ordinal(smallSort));
     }
 
     public boolean isSubsortedEq(Sort bigSort, Sort smallSort) {
@@ -142,13 +167,38 @@ public class Subsorts implements Serializable {
     }
 
     public boolean hasCommonSubsort(Sort sort1, Sort sort2) {
-        Set<Sort> lowerBounds = getLowerBounds(sort1, sort2);
-        return !lowerBounds.isEmpty() &&
-                !(lowerBounds.size() == 1 && lowerBounds.iterator().next().equals(Sort.BOTTOM));
+        if (sort1 == sort2) {
+            return !sort1.equals(Sort.BOTTOM);
+        }
+        BitSet lowerBounds = bounds(sort1, true);
+        lowerBounds.and(bounds(sort2, true));
+        if (Sort.BOTTOM.ordinal() < byOrdinal.length && byOrdinal[Sort.BOTTOM.ordinal()] == Sort.BOTTOM) {
+            lowerBounds.clear(Sort.BOTTOM.ordinal());
+        }
+        return !lowerBounds.isEmpty();
+    }
+
+    /**
+     * Returns the ordinals of {@code sort} and of the sorts smaller ({@code direction == true}) or bigger
+     * ({@code direction == false}) than it, in a fresh bit set.
+     */
+    private BitSet bounds(Sort sort, boolean direction) {
+        int ordinal = ordinal(sort);
+        BitSet bounds = (BitSet) (direction ? subsorts : supersorts)[ordinal].clone();
+        bounds.set(ordinal);
+        return bounds;
     }
 
-    private boolean inRelation(Sort sort1, Sort sort2, boolean direction) {
-        return direction ? isSubsorted(sort2, sort1) : isSubsorted(sort1, sort2);
+    private BitSet bounds(Set<Sort> subset, boolean direction) {
+        BitSet bounds = null;
+        for (Sort sort : subset) {
+            if (bounds == null) {
+                bounds = bounds(sort, direction);
+            } else {
+                bounds.and(bounds(sort, direction));
+            }
+        }
+        return bounds;
     }
 
     private Set<Sort> getBounds(Set<Sort> subset, boolean direction) {
@@ -159,21 +209,12 @@ public class Subsorts implements Serializable {
             return java.util.Collections.singleton(subset.iterator().next());
         }
 
-        Set<Sort> bounds = new HashSet<>();
-        for (Sort candidate : sorts) {
-            boolean isBound = true;
-            for (Sort sort : subset) {
-                if (!(inRelation(candidate, sort, direction) || candidate.equals(sort))) {
-                    isBound = false;
-                    break;
-                }
-            }
-            if (isBound) {
-                bounds.add(candidate);
-            }
+        BitSet bounds = bounds(subset, direction);
+        Set<Sort> result = new HashSet<>();
+        for (int i = bounds.nextSetBit(0); i >= 0; i = bounds.nextSetBit(i + 1)) {
+            result.add(byOrdinal[i]);
         }
-
-        return bounds;
+        return result;
     }
 
     public Sort getTopSort(Set<Sort> subset, boolean direction) {
@@ -183,35 +224,35 @@ public class Subsorts implements Serializable {
         if (subset.size() == 1) {
             return subset.iterator().next();
         }
-
-        Set<Sort> bounds = getBounds(subset, direction);
-        if (bounds.size() == 0) {
-            return null;
+        if (subset.size() > MAX_CACHED_SET_SIZE) {
+            return computeTopSort(subset, direction);
         }
 
-        Sort candidate = null;
-        for (Sort bound : bounds) {
-            if (candidate == null) {
-                candidate = bound;
-            } else {
-                if (inRelation(candidate, bound, direction)) {
-                    candidate = bound;
-                } else if (!inRelation(bound, candidate, direction)) {
-                    /* no relation between bound and candidate; none of them is the top element */
-                    candidate = null;
-                }
-            }
+        BitSet key = new BitSet(byOrdinal.length);
+        for (Sort sort : subset) {
+            key.set(ordinal(sort));
         }
-        /* if there is a top element, it must be candidate */
-        if (candidate != null) {
-            for (Sort bound : bounds) {
-                if (bound != candidate && !inRelation(bound, candidate, direction)) {
-                    candidate = null;
-                    break;
-                }
+        return (direction ? glbCache : lubCache)
+                .computeIfAbsent(key, k -> Optional.ofNullable(computeTopSort(subset, direction)))
+                .orElse(null);
+    }
+
+    /**
+     * Returns the bound of {@code subset} which is bigger ({@code direction == true}) or smaller
+     * ({@code direction == false}) than all its other bounds, if any.
+     */
+    private Sort computeTopSort(Set<Sort> subset, boolean direction) {
+        BitSet bounds = bounds(subset, direction);
+        BitSet[] relation = direction ? subsorts : supersorts;
+        for (int candidate = bounds.nextSetBit(0); candidate >= 0; candidate = bounds.nextSetBit(candidate + 1)) {
+            BitSet others = (BitSet) bounds.clone();
+            others.andNot(relation[candidate]);
+            others.clear(candidate);
+            if (others.isEmpty()) {
+                return byOrdinal[candidate];
             }
         }
-        return candidate;
+        return null;
     }
 
 }
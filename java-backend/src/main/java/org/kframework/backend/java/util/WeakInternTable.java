@@ -0,0 +1,137 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A concurrent intern table which holds its values weakly, used to cache the instances of token classes which
+ * are compared by identity.
+ * <p>
+ * As long as a value returned by {@link #intern} is reachable, subsequent calls with an equal key return the same
+ * value, so the uniqueness guarantee of the cached classes is preserved; once a value is no longer reachable, it is
+ * collected and its entry is removed from the table. Optionally, the table keeps the most recently interned values
+ * strongly reachable in a bounded ring, so that values which are repeatedly created and dropped are not collected
+ * in between.
+ */
+public final class WeakInternTable<K, V> {
+
+    private static final class Entry<K, V> extends WeakReference<V> {
+        final K key;
+
+        Entry(K key, V value, ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+    private final AtomicReferenceArray<V> retained;
+    private final AtomicInteger retainedIndex = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collected = new LongAdder();
+
+    public WeakInternTable() {
+        this(0);
+    }
+
+    /**
+     * @param retainedCapacity the number of most recently interned values kept strongly reachable by the table
+     */
+    public WeakInternTable(int retainedCapacity) {
+        this.retained = retainedCapacity > 0 ? new AtomicReferenceArray<>(retainedCapacity) : null;
+    }
+
+    /**
+     * Returns the value associated with {@code key} if it is still reachable; otherwise, associates the value
+     * computed by {@code factory} with {@code key} and returns it. {@code factory} may be called and its result
+     * discarded if another thread interns a value for {@code key} at the same time.
+     */
+    public V intern(K key, Function<? super K, ? extends V> factory) {
+        expungeCollected();
+        Entry<K, V> entry = entries.get(key);
+        while (true) {
+            if (entry != null) {
+                V value = entry.get();
+                if (value != null) {
+                    hits.increment();
+                    retain(value);
+                    return value;
+                }
+            }
+
+            V value = factory.apply(key);
+            Entry<K, V> newEntry = new Entry<>(key, value, queue);
+            if (entry == null ? entries.putIfAbsent(key, newEntry) == null : entries.replace(key, entry, newEntry)) {
+                misses.increment();
+                retain(value);
+                return value;
+            }
+            entry = entries.get(key);
+        }
+    }
+
+    /**
+     * Returns the value associated with {@code key}, or {@code null} if there is none or it has been collected.
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        return entry != null ? entry.get() : null;
+    }
+
+    /**
+     * Returns the number of entries in the table, including entries whose value has been collected but which have
+     * not been removed yet.
+     */
+    public int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries removed because their value was collected.
+     */
+    public long collected() {
+        return collected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + size() + ", hits: " + hits() + ", misses: " + misses() + ", collected: " + collected();
+    }
+
+    private void retain(V value) {
+        if (retained != null) {
+            int index = retainedIndex.getAndIncrement() & Integer.MAX_VALUE;
+            retained.lazySet(index % retained.length(), value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expungeCollected() {
+        Entry<K, V> entry;
+        while ((entry = (Entry<K, V>) queue.poll()) != null) {
+            if (entries.remove(entry.key, entry)) {
+                collected.increment();
+            }
+        }
+    }
+}
@@ -33,6 +33,8 @@ public class Z3Wrapper {
     private final GlobalOptions globalOptions;
     private final KExceptionManager kem;
     private final FileUtil files;
+    /* each query gets its own Z3 context, but the library is still entered by one thread at a time */
+    private final Object libraryLock = new Object();
 
     public Z3Wrapper(
             SMTOptions options,
@@ -47,11 +49,17 @@ public class Z3Wrapper {
         SMT_PRELUDE = options.smtPrelude == null ? "" : files.loadFromWorkingDirectory(options.smtPrelude);
     }
 
-    public synchronized boolean isUnsat(String query, int timeout) {
+    /**
+     * Checks whether {@code query} is unsatisfiable. Queries sent to the Z3 executable run in their own processes, so
+     * they may be checked concurrently.
+     */
+    public boolean isUnsat(String query, int timeout) {
         if (options.z3Executable) {
             return checkQueryWithExternalProcess(query, timeout);
         } else {
-            return checkQueryWithLibrary(query, timeout);
+            synchronized (libraryLock) {
+                return checkQueryWithLibrary(query, timeout);
+            }
         }
     }
 
@@ -0,0 +1,133 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.junit.Test;
+import org.kframework.backend.java.builtins.primitives.Longs;
+import org.kframework.backend.java.builtins.primitives.OverflowArithmeticResult;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link LongBitVector} and {@link Longs} against the arbitrary precision implementation.
+ */
+public class LongBitVectorTest {
+
+    private static final int[] BITWIDTHS = {1, 7, 8, 16, 31, 33, 48, 63, 64};
+
+    private final Random random = new Random(0);
+
+    @Test
+    public void testOf() {
+        assertTrue(BitVector.of(BigInteger.ONE, 8) instanceof LongBitVector);
+        assertTrue(BitVector.of(1L, 64) instanceof LongBitVector);
+        assertTrue(BitVector.of(BigInteger.ONE, 32) instanceof Int32Token);
+        assertTrue(BitVector.of(BigInteger.ONE, 65) instanceof BigIntegerBitVector);
+        assertEquals(BitVector.of(255, 8), BitVector.of(-1, 8));
+        assertEquals(BigInteger.valueOf(255), BitVector.of(-1, 8).unsignedValue());
+        assertEquals(BigInteger.valueOf(-1), BitVector.of(255, 8).signedValue());
+    }
+
+    @Test
+    public void testCheckedArithmetic() {
+        for (int bitwidth : BITWIDTHS) {
+            for (int i = 0; i < 1000; i++) {
+                long a = sample(bitwidth);
+                long b = sample(bitwidth);
+                checkSigned(Longs.checkedAdd(a, b, bitwidth), BigInteger::add, a, b, bitwidth);
+                checkSigned(Longs.checkedSub(a, b, bitwidth), BigInteger::subtract, a, b, bitwidth);
+                checkSigned(Longs.checkedMul(a, b, bitwidth), BigInteger::multiply, a, b, bitwidth);
+                checkUnsigned(Longs.checkedUnsignedAdd(a, b, bitwidth), BigInteger::add, a, b, bitwidth);
+                checkUnsigned(Longs.checkedUnsignedSub(a, b, bitwidth), BigInteger::subtract, a, b, bitwidth);
+                checkUnsigned(Longs.checkedUnsignedMul(a, b, bitwidth), BigInteger::multiply, a, b, bitwidth);
+                if (b != 0) {
+                    checkSigned(Longs.checkedDiv(a, b, bitwidth), BigInteger::divide, a, b, bitwidth);
+                    assertEquals(
+                            BigInteger.valueOf(a).remainder(BigInteger.valueOf(b)).longValue(),
+                            (long) Longs.checkedRem(a, b, bitwidth).value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDivisionOverflow() {
+        assertTrue(Longs.checkedDiv(Long.MIN_VALUE, -1, 64).overflow);
+        assertEquals(Long.MIN_VALUE, (long) Longs.checkedDiv(Long.MIN_VALUE, -1, 64).value);
+        assertTrue(Longs.checkedRem(-128, -1, 8).overflow);
+        assertEquals(0L, (long) Longs.checkedRem(-128, -1, 8).value);
+    }
+
+    @Test
+    public void testAgainstBigIntegerBitVector() {
+        for (int bitwidth : BITWIDTHS) {
+            for (int i = 0; i < 1000; i++) {
+                long a = sample(bitwidth);
+                long b = sample(bitwidth);
+                LongBitVector x = LongBitVector.of(a, bitwidth);
+                LongBitVector y = LongBitVector.of(b, bitwidth);
+                BigIntegerBitVector bigX = BigIntegerBitVector.of(BigInteger.valueOf(a), bitwidth);
+                BigIntegerBitVector bigY = BigIntegerBitVector.of(BigInteger.valueOf(b), bitwidth);
+                IntToken distance = IntToken.of(random.nextInt(2 * bitwidth + 2) - bitwidth - 1);
+
+                assertEquals(bigX.add(bigY).unsignedValue(), x.add(y).unsignedValue());
+                assertEquals(bigX.mul(bigY).unsignedValue(), x.mul(y).unsignedValue());
+                assertEquals(bigX.and(bigY).unsignedValue(), x.and(y).unsignedValue());
+                assertEquals(bigX.xor(bigY).unsignedValue(), x.xor(y).unsignedValue());
+                assertEquals(bigX.shl(distance).unsignedValue(), x.shl(distance).unsignedValue());
+                assertEquals(bigX.ashr(distance).unsignedValue(), x.ashr(distance).unsignedValue());
+                assertEquals(bigX.lshr(distance).unsignedValue(), x.lshr(distance).unsignedValue());
+                assertEquals(bigX.ult(bigY), x.ult(y));
+                assertEquals(bigX.sle(bigY), x.sle(y));
+                assertEquals(bigX.eq(bigY), x.eq(y));
+                if (b != 0) {
+                    assertEquals(bigX.udiv(bigY).unsignedValue(), x.udiv(y).unsignedValue());
+                    assertEquals(bigX.urem(bigY).unsignedValue(), x.urem(y).unsignedValue());
+                }
+                assertEquals(bigX.extract(0, bitwidth).unsignedValue(), x.extract(0, bitwidth).unsignedValue());
+            }
+        }
+    }
+
+    private void checkSigned(OverflowArithmeticResult<Long> result, BinaryOperator<BigInteger> operation,
+                             long a, long b, int bitwidth) {
+        BigInteger expected = operation.apply(BigInteger.valueOf(a), BigInteger.valueOf(b));
+        BigInteger min = BigInteger.ONE.shiftLeft(bitwidth - 1).negate();
+        BigInteger max = BigInteger.ONE.shiftLeft(bitwidth - 1).subtract(BigInteger.ONE);
+        assertEquals(Longs.signExtend(expected.longValue(), bitwidth), (long) result.value);
+        assertEquals(expected.compareTo(min) < 0 || expected.compareTo(max) > 0, result.overflow);
+    }
+
+    private void checkUnsigned(OverflowArithmeticResult<Long> result, BinaryOperator<BigInteger> operation,
+                               long a, long b, int bitwidth) {
+        BigInteger expected = operation.apply(unsigned(a, bitwidth), unsigned(b, bitwidth));
+        BigInteger max = BigInteger.ONE.shiftLeft(bitwidth).subtract(BigInteger.ONE);
+        assertEquals(Longs.signExtend(expected.longValue(), bitwidth), (long) result.value);
+        assertEquals(expected.signum() < 0 || expected.compareTo(max) > 0, result.overflow);
+    }
+
+    private static BigInteger unsigned(long value, int bitwidth) {
+        return BigInteger.valueOf(value).and(BigInteger.ONE.shiftLeft(bitwidth).subtract(BigInteger.ONE));
+    }
+
+    /**
+     * Returns a random sign-extended value of the given bit width, biased towards the extremes of the range.
+     */
+    private long sample(int bitwidth) {
+        long value;
+        switch (random.nextInt(4)) {
+        case 0:
+            value = -1L << (bitwidth - 1);
+            break;
+        case 1:
+            value = random.nextInt(5) - 2;
+            break;
+        default:
+            value = random.nextLong();
+        }
+        return Longs.signExtend(value + (random.nextBoolean() ? 0 : random.nextInt(3) - 1), bitwidth);
+    }
+}
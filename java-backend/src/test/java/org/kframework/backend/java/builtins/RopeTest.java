@@ -0,0 +1,68 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RopeTest {
+
+    @Test
+    public void testAgainstString() {
+        Random random = new Random(0);
+        Rope rope = Rope.of("");
+        String string = "";
+        for (int step = 0; step < 2000; step++) {
+            if (random.nextInt(3) < 2) {
+                StringBuilder sb = new StringBuilder();
+                int length = random.nextInt(random.nextBoolean() ? 10 : 1000);
+                for (int i = 0; i < length; i++) {
+                    sb.appendCodePoint(random.nextInt(8) == 0 ? 0x1F600 : 'a' + random.nextInt(26));
+                }
+                if (random.nextBoolean()) {
+                    rope = Rope.concat(rope, Rope.of(sb.toString()));
+                    string = string + sb;
+                } else {
+                    rope = Rope.concat(Rope.of(sb.toString()), rope);
+                    string = sb + string;
+                }
+            } else {
+                int codePointCount = string.codePointCount(0, string.length());
+                int begin = random.nextInt(codePointCount + 1);
+                int end = begin + random.nextInt(codePointCount - begin + 1);
+                rope = rope.substring(begin, end);
+                string = string.substring(string.offsetByCodePoints(0, begin), string.offsetByCodePoints(0, end));
+            }
+            assertEquals(string, rope.toString());
+            assertEquals(string.hashCode(), rope.stringHashCode());
+            assertEquals(string.codePointCount(0, string.length()), rope.codePointCount);
+            if (rope.codePointCount > 0) {
+                int index = random.nextInt(rope.codePointCount);
+                assertEquals(string.codePointAt(string.offsetByCodePoints(0, index)), rope.codePointAt(index));
+            }
+        }
+    }
+
+    @Test
+    public void testSurrogatePairAcrossChunks() {
+        String pair = new String(Character.toChars(0x1F600));
+        Rope rope = Rope.concat(Rope.of(repeat('a', Rope.CHUNK_SIZE) + pair.charAt(0)), Rope.of(pair.charAt(1) + repeat('b', Rope.CHUNK_SIZE)));
+        assertEquals(2 * Rope.CHUNK_SIZE + 1, rope.codePointCount);
+        assertEquals(0x1F600, rope.codePointAt(Rope.CHUNK_SIZE));
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void testSubstringBeginAfterEnd() {
+        Rope.of("abc").substring(2, 1);
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
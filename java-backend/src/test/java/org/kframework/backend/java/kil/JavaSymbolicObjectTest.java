@@ -1,13 +1,24 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.kil;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.rewritemachine.GenerateRHSInstructions;
+import org.kframework.backend.java.util.RewriteEngineUtils;
+import org.kframework.builtin.KLabels;
+import org.kframework.kil.Attribute;
 import org.kframework.kil.Attributes;
+import org.kframework.main.GlobalOptions;
 import org.kframework.utils.BaseTestCase;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.options.SMTOptions;
 import org.mockito.Mock;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.Assert.*;
@@ -18,11 +29,22 @@ public class JavaSymbolicObjectTest extends BaseTestCase {
     @Mock
     Definition definition;
 
+    @Mock
+    Rule anywhereRule;
+
+    private final Multimap<KLabelConstant, Rule> anywhereRules = ArrayListMultimap.create();
+
     @Before
     public void setUp() {
+        when(definition.kLabelAttributesOf(anyString())).thenReturn(new Attributes());
+        when(definition.anywhereRules()).thenReturn(anywhereRules);
+        when(definition.functionRules()).thenReturn(ArrayListMultimap.create());
         when(definition.signaturesOf("foo")).thenReturn(Collections.emptySet());
         when(definition.allSorts()).thenReturn(Collections.singleton(Sort.of("Foo@FOO")));
         when(definition.kLabelAttributesOf("foo")).thenReturn(new Attributes());
+        Attributes metaBinder = new Attributes();
+        metaBinder.add(Attribute.of("metabinder", ""));
+        when(definition.kLabelAttributesOf("lambda")).thenReturn(metaBinder);
     }
 
     @Test
@@ -90,4 +112,171 @@ public class JavaSymbolicObjectTest extends BaseTestCase {
         assertTrue(k2.kLabel().isNormal());
         assertTrue(k2.kList().isNormal());
     }
+
+    private GlobalContext global() {
+        GlobalContext global = new GlobalContext(null, false, new GlobalOptions(), null, null, new SMTOptions(), null, FileUtil.testFileUtil(), null);
+        global.setDefinition(definition);
+        return global;
+    }
+
+    private Term construct(Term rightHandSide, Variable variable, Term value, TermContext context) {
+        GenerateRHSInstructions generator = new GenerateRHSInstructions();
+        rightHandSide.accept(generator);
+        return RewriteEngineUtils.construct(generator.getInstructions(), Collections.singletonMap(variable, value), context);
+    }
+
+    @Test
+    public void testConstructInitializesFlags() {
+        GlobalContext global = global();
+        TermContext context = TermContext.builder(global).build();
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        Variable x = new Variable("X", Sort.KITEM);
+        Term rightHandSide = KItem.of(foo, KList.concatenate(x, KItem.of(foo, KList.concatenate(IntToken.of(2)), global)), global);
+
+        Term known = KItem.of(foo, KList.concatenate(IntToken.of(1)), global);
+        assertTrue(known.isNormal());
+        assertTrue(known.isGround());
+        Term result = construct(rightHandSide, x, known, context);
+        assertEquals(KItem.of(foo, KList.concatenate(known, KItem.of(foo, KList.concatenate(IntToken.of(2)), global)), global), result);
+        assertEquals(Boolean.TRUE, result.isNormal);
+        assertEquals(Boolean.TRUE, result.isGround);
+        assertEquals(Boolean.TRUE, ((KItem) result).kList().isNormal);
+        assertEquals(Boolean.TRUE, ((KItem) result).kList().isGround);
+
+        /* the flags of a new subterm are not known yet, so they are left to be computed lazily */
+        Term unknown = KItem.of(foo, KList.concatenate(IntToken.of(3)), global);
+        result = construct(rightHandSide, x, unknown, context);
+        assertNull(result.isNormal);
+        assertNull(result.isGround);
+        assertTrue(result.isNormal());
+        assertTrue(result.isGround());
+
+        /* a function is not normal, nor anything containing it */
+        Term function = KItem.of(KLabelConstant.of("isFoo@FOO", definition), KList.EMPTY, global);
+        assertFalse(function.isNormal());
+        result = construct(rightHandSide, x, function, context);
+        assertNull(result.isNormal);
+        assertFalse(result.isNormal());
+    }
+
+    @Test
+    public void testEvaluateNormalizesEmptyKSequenceHead() {
+        GlobalContext global = global();
+        KLabelConstant kSeq = KLabelConstant.of(KLabels.KSEQ, definition);
+        Term dotK = KItem.of(KLabelConstant.of(KLabels.DOTK, definition), KList.EMPTY, global);
+
+        KItem sequence = KItem.of(kSeq, KList.concatenate(dotK, IntToken.of(1)), global);
+        assertTrue(sequence.isEmptyKSequenceHead());
+        assertFalse(KItem.of(kSeq, KList.concatenate(IntToken.of(0), IntToken.of(1)), global).isEmptyKSequenceHead());
+
+        /* the sequence is normal, but evaluation still normalizes it */
+        Term kList = KList.concatenate(dotK, IntToken.of(1));
+        assertTrue(kList.isNormal());
+        KItem rebuilt = KItem.of(kSeq, kList, global);
+        rebuilt.initializeFlagsFromChildren(Arrays.asList(kSeq, kList));
+        assertEquals(Boolean.TRUE, rebuilt.isNormal);
+        assertEquals(IntToken.of(1), rebuilt.evaluate(TermContext.builder(global).build()));
+    }
+
+    @Test
+    public void testAnywhereApplicableIsNormal() {
+        GlobalContext global = global();
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        KLabelConstant bar = KLabelConstant.of("bar", definition);
+        anywhereRules.put(bar, anywhereRule);
+
+        /* normality only depends on functions and patterns, whether or not [anywhere] rules apply */
+        KItem anywhere = KItem.of(bar, KList.concatenate(IntToken.of(1)), global);
+        assertTrue(anywhere.isAnywhereApplicable(TermContext.builder(global).build()));
+        assertTrue(anywhere.isNormal());
+        assertTrue(KItem.of(foo, KList.concatenate(anywhere), global).isNormal());
+
+        Term kList = KList.concatenate(IntToken.of(1));
+        assertTrue(kList.isNormal());
+        KItem rebuilt = KItem.of(bar, kList, global);
+        rebuilt.initializeFlagsFromChildren(Arrays.asList(bar, kList));
+        assertEquals(Boolean.TRUE, rebuilt.isNormal);
+    }
+
+    @Test
+    public void testVariableMaskSkipsUnrelatedSubstitution() {
+        GlobalContext global = global();
+        TermContext context = TermContext.builder(global).build();
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        Variable x = new Variable("X", Sort.KITEM);
+        Variable y = new Variable("Y", Sort.KITEM);
+        assertNotEquals(JavaSymbolicObject.variableMask(x), JavaSymbolicObject.variableMask(y));
+
+        Term term = KItem.of(foo, KList.concatenate(x, IntToken.of(1)), global);
+        assertEquals(JavaSymbolicObject.variableMask(x), term.variableMask());
+        assertFalse(term.canSubstituteAndEvaluate(Collections.singletonMap(y, IntToken.of(2))));
+        assertSame(term, term.substituteAndEvaluate(Collections.singletonMap(y, IntToken.of(2)), context));
+
+        assertTrue(term.canSubstituteAndEvaluate(Collections.singletonMap(x, IntToken.of(2))));
+        assertEquals(
+                KItem.of(foo, KList.concatenate(IntToken.of(2), IntToken.of(1)), global),
+                term.substituteAndEvaluate(Collections.singletonMap(x, IntToken.of(2)), context));
+    }
+
+    @Test
+    public void testVariableMaskSubstitutesUnderBinder() {
+        GlobalContext global = global();
+        TermContext context = TermContext.builder(global).build();
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        KLabelConstant lambda = KLabelConstant.of("lambda", definition);
+        assertTrue(lambda.isMetaBinder());
+        Variable x = new Variable("X", Sort.KITEM);
+        Variable y = new Variable("Y", Sort.KITEM);
+
+        /* the bound variable is renamed, and the free one is still substituted */
+        Term term = KItem.of(lambda, KList.concatenate(x, KItem.of(foo, KList.concatenate(x, y), global)), global);
+        assertEquals(JavaSymbolicObject.variableMask(x) | JavaSymbolicObject.variableMask(y), term.variableMask());
+        KItem result = (KItem) term.substituteAndEvaluate(Collections.singletonMap(y, IntToken.of(1)), context);
+        Term boundVariable = ((KList) result.kList()).get(0);
+        assertTrue(boundVariable instanceof Variable);
+        assertEquals(
+                KItem.of(lambda, KList.concatenate(boundVariable, KItem.of(foo, KList.concatenate(boundVariable, IntToken.of(1)), global)), global),
+                result);
+    }
+
+    @Test
+    public void testVariableMaskFromChildren() {
+        GlobalContext global = global();
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        Variable x = new Variable("X", Sort.KITEM);
+        Variable y = new Variable("Y", Sort.KITEM);
+
+        Term lazy = KItem.of(foo, KList.concatenate(x, KItem.of(foo, KList.concatenate(y, IntToken.of(1)), global)), global);
+        long mask = lazy.variableMask();
+        assertEquals(JavaSymbolicObject.variableMask(x) | JavaSymbolicObject.variableMask(y), mask);
+
+        Term child = KItem.of(foo, KList.concatenate(y, IntToken.of(1)), global);
+        KList kList = (KList) KList.concatenate(x, child);
+        kList.initializeFlagsFromChildren(kList.getContents());
+        /* the mask of a child is not known yet, so it is left to be computed lazily */
+        assertFalse(kList.hasVariableMask);
+        assertEquals(JavaSymbolicObject.variableMask(y), child.variableMask());
+        kList.initializeFlagsFromChildren(kList.getContents());
+        assertTrue(kList.hasVariableMask);
+        KItem built = KItem.of(foo, kList, global);
+        built.initializeFlagsFromChildren(Arrays.asList(foo, kList));
+        assertTrue(built.hasVariableMask);
+        assertEquals(mask, built.variableMask);
+    }
+
+    @Test
+    public void testIsGroundFromVariableMask() {
+        GlobalContext global = global();
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        Variable x = new Variable("X", Sort.KITEM);
+
+        for (Term argument : Arrays.asList(IntToken.of(1), x, KItem.of(foo, KList.concatenate(x, IntToken.of(1)), global))) {
+            Term fromMask = KItem.of(foo, KList.concatenate(argument, IntToken.of(2)), global);
+            Term fromVisitor = KItem.of(foo, KList.concatenate(argument, IntToken.of(2)), global);
+            fromMask.variableMask();
+            assertNull(fromMask.isGround);
+            assertEquals(fromVisitor.isGround(), fromMask.isGround());
+            assertEquals(argument.isGround(), fromMask.isGround());
+        }
+    }
 }
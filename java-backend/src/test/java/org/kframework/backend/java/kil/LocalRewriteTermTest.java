@@ -0,0 +1,86 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.junit.Test;
+import org.kframework.backend.java.builtins.IntToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LocalRewriteTermTest {
+
+    private static LocalRewriteTerm rewrite(int... positions) {
+        long[] path = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            path[i] = LocalRewriteTerm.step(positions[i], positions[i] + 1);
+        }
+        return new LocalRewriteTerm(path, IntToken.of(0));
+    }
+
+    @Test
+    public void testStep() {
+        int[] positions = {0, 1, 2, 255, 65536, Integer.MAX_VALUE - 1};
+        for (int begin : positions) {
+            for (int end : positions) {
+                long step = LocalRewriteTerm.step(begin, end);
+                assertEquals(begin, LocalRewriteTerm.begin(step));
+                assertEquals(end, LocalRewriteTerm.end(step));
+            }
+        }
+        assertEquals(LocalRewriteTerm.step(3, 4), LocalRewriteTerm.step(3, 4));
+        assertNotEquals(LocalRewriteTerm.step(3, 4), LocalRewriteTerm.step(3, 5));
+        assertNotEquals(LocalRewriteTerm.step(3, 4), LocalRewriteTerm.step(4, 3));
+    }
+
+    @Test
+    public void testStepOrder() {
+        /* steps are ordered by their first position, then by their last one */
+        assertTrue(LocalRewriteTerm.step(0, 5) < LocalRewriteTerm.step(1, 2));
+        assertTrue(LocalRewriteTerm.step(1, 2) < LocalRewriteTerm.step(1, 3));
+        assertTrue(LocalRewriteTerm.step(1, 3) < LocalRewriteTerm.step(2, 3));
+        assertTrue(LocalRewriteTerm.step(65535, 65536) < LocalRewriteTerm.step(65536, 65537));
+    }
+
+    @Test
+    public void testPathOrder() {
+        List<LocalRewriteTerm> sorted = Arrays.asList(
+                rewrite(),
+                rewrite(0),
+                rewrite(0, 0),
+                rewrite(0, 0, 7),
+                rewrite(0, 1),
+                rewrite(1),
+                rewrite(1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0),
+                rewrite(1, 1),
+                rewrite(2));
+        List<LocalRewriteTerm> rewrites = new ArrayList<>(sorted);
+        Collections.reverse(rewrites);
+        rewrites.sort(LocalRewriteTerm.PATH_ORDER);
+        assertEquals(sorted, rewrites);
+    }
+
+    @Test
+    public void testPathOrderGroupsChildren() {
+        List<LocalRewriteTerm> rewrites = new ArrayList<>(Arrays.asList(
+                rewrite(1, 2), rewrite(0, 3), rewrite(1, 0, 4), rewrite(2), rewrite(0, 1, 1), rewrite(1, 1)));
+        rewrites.sort(LocalRewriteTerm.PATH_ORDER);
+        /* the rewrites under each child of the top are adjacent */
+        int[] heads = new int[rewrites.size()];
+        for (int i = 0; i < rewrites.size(); i++) {
+            heads[i] = LocalRewriteTerm.begin(rewrites.get(i).path[0]);
+        }
+        assertArrayEquals(new int[] {0, 0, 1, 1, 1, 2}, heads);
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(rewrite(0, 1, 2), rewrite(0, 1, 2));
+        assertEquals(rewrite(0, 1, 2).hashCode(), rewrite(0, 1, 2).hashCode());
+        assertNotEquals(rewrite(0, 1, 2), rewrite(0, 1));
+        assertNotEquals(rewrite(0, 1, 2), new LocalRewriteTerm(rewrite(0, 1, 2).path, IntToken.of(1)));
+    }
+}
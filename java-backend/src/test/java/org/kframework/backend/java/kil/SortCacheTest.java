@@ -0,0 +1,77 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.kil.Attributes;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SortCacheTest extends BaseTestCase {
+
+    @Mock
+    Definition definition;
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(Sort.of("Foo@FOO")));
+        when(definition.kLabelAttributesOf(anyString())).thenReturn(new Attributes());
+    }
+
+    private static KItem.CacheTableValue value(String sort) {
+        return new KItem.CacheTableValue(Sort.of(sort), true, Collections.singleton(Sort.of(sort)));
+    }
+
+    @Test
+    public void testCollision() {
+        // both keys have the same hash code, so they map to the same slot
+        int[] key1 = {0, 31};
+        int[] key2 = {1, 0};
+        assertEquals(Arrays.hashCode(key1), Arrays.hashCode(key2));
+
+        SortCache cache = new SortCache();
+        KItem.CacheTableValue value1 = value("Foo@FOO");
+        KItem.CacheTableValue value2 = value("Bar@FOO");
+        cache.put(key1, value1);
+        assertSame(value1, cache.get(key1));
+        assertNull("a colliding key does not see the other key's entry", cache.get(key2));
+
+        cache.put(key2, value2);
+        assertSame(value2, cache.get(key2));
+        assertNull("the colliding entry was replaced", cache.get(key1));
+        assertNull(cache.get(new int[] {0}));
+    }
+
+    @Test
+    public void testKeyIsComparedByValue() {
+        SortCache cache = new SortCache();
+        KItem.CacheTableValue value = value("Foo@FOO");
+        cache.put(new int[] {3, 4, 5}, value);
+        assertSame(value, cache.get(new int[] {3, 4, 5}));
+        assertNull(cache.get(new int[] {3, 4}));
+        assertNull(cache.get(new int[] {3, 4, 5, 0}));
+    }
+
+    @Test
+    public void testKey() {
+        KLabelConstant foo = KLabelConstant.of("foo", definition);
+        KLabelConstant bar = KLabelConstant.of("bar", definition);
+        Term exact = new KItem(bar, KList.EMPTY, Sort.of("Bar@FOO"), true);
+        Term inexact = new KItem(bar, KList.EMPTY, Sort.of("Bar@FOO"), false);
+        Term otherSort = new KItem(bar, KList.EMPTY, Sort.of("Baz@FOO"), true);
+
+        int[] exactKey = SortCache.key(foo, KList.singleton(exact));
+        assertArrayEquals(exactKey, SortCache.key(foo, KList.singleton(exact)));
+        assertFalse(Arrays.equals(exactKey, SortCache.key(foo, KList.singleton(inexact))));
+        assertFalse(Arrays.equals(exactKey, SortCache.key(foo, KList.singleton(otherSort))));
+        assertFalse(Arrays.equals(exactKey, SortCache.key(bar, KList.singleton(exact))));
+        assertFalse(Arrays.equals(exactKey, SortCache.key(foo, KList.EMPTY)));
+    }
+}
@@ -0,0 +1,163 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.Subsorts;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.options.SMTOptions;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PatternMatcherTest {
+
+    @Mock
+    Definition definition;
+
+    @Mock
+    Subsorts subsorts;
+
+    private TermContext termContext;
+
+    private final Variable k = new Variable("K", Sort.INT);
+    private final Variable v = new Variable("V", Sort.INT);
+    private final Variable x = new Variable("X", Sort.INT);
+    private final Variable frame = new Variable("M", Sort.MAP);
+
+    @Before
+    public void setUp() {
+        when(definition.subsorts()).thenReturn(subsorts);
+        when(subsorts.isSubsortedEq(any(Sort.class), any(Sort.class))).thenReturn(true);
+        GlobalContext global = new GlobalContext(null, false, new GlobalOptions(), null, null, new SMTOptions(), null, FileUtil.testFileUtil(), null);
+        global.setDefinition(definition);
+        termContext = TermContext.builder(global).build();
+    }
+
+    /**
+     * Builds a map from alternating keys and values, followed by {@code frame} if there is an odd number of terms.
+     */
+    private Term map(Term... terms) {
+        BuiltinMap.Builder builder = BuiltinMap.builder(termContext.global());
+        for (int i = 0; i + 1 < terms.length; i += 2) {
+            builder.put(terms[i], terms[i + 1]);
+        }
+        if (terms.length % 2 == 1) {
+            builder.concatenate(terms[terms.length - 1]);
+        }
+        return builder.build();
+    }
+
+    private static Map<Term, Term> entries(Term map) {
+        return map instanceof BuiltinMap ? ((BuiltinMap) map).getEntries() : null;
+    }
+
+    private List<Substitution<Variable, Term>> match(Term subject, Term pattern) {
+        PatternMatcher matcher = new PatternMatcher(false, true, termContext);
+        if (!matcher.patternMatch(subject, pattern)) {
+            return null;
+        }
+        return matcher.substitutions();
+    }
+
+    @Test
+    public void testGroundKeysWithFrame() {
+        List<Substitution<Variable, Term>> substitutions = match(
+                map(IntToken.of(1), IntToken.of(10), IntToken.of(2), IntToken.of(20), IntToken.of(3), IntToken.of(30)),
+                map(IntToken.of(1), x, IntToken.of(3), v, frame));
+        assertEquals(1, substitutions.size());
+        Substitution<Variable, Term> substitution = substitutions.get(0);
+        assertEquals(IntToken.of(10), substitution.get(x));
+        assertEquals(IntToken.of(30), substitution.get(v));
+        Map<Term, Term> expectedFrame = new HashMap<>();
+        expectedFrame.put(IntToken.of(2), IntToken.of(20));
+        assertEquals(expectedFrame, entries(substitution.get(frame)));
+    }
+
+    @Test
+    public void testMissingGroundKey() {
+        assertNull(match(
+                map(IntToken.of(1), IntToken.of(10), IntToken.of(2), IntToken.of(20)),
+                map(IntToken.of(3), x, frame)));
+    }
+
+    @Test
+    public void testKeyBoundByValue() {
+        // the ground key is matched first, which binds K, which is then looked up
+        List<Substitution<Variable, Term>> substitutions = match(
+                map(IntToken.of(1), IntToken.of(2), IntToken.of(2), IntToken.of(20), IntToken.of(3), IntToken.of(30)),
+                map(k, v, IntToken.of(1), k, frame));
+        assertEquals(1, substitutions.size());
+        Substitution<Variable, Term> substitution = substitutions.get(0);
+        assertEquals(IntToken.of(2), substitution.get(k));
+        assertEquals(IntToken.of(20), substitution.get(v));
+        assertEquals(1, entries(substitution.get(frame)).size());
+        assertEquals(IntToken.of(30), entries(substitution.get(frame)).get(IntToken.of(3)));
+    }
+
+    @Test
+    public void testBoundKeyMissing() {
+        assertNull(match(
+                map(IntToken.of(1), IntToken.of(5), IntToken.of(2), IntToken.of(20)),
+                map(k, v, IntToken.of(1), k, frame)));
+    }
+
+    @Test
+    public void testUnboundKeyMatchesEveryEntry() {
+        List<Substitution<Variable, Term>> substitutions = match(
+                map(IntToken.of(1), IntToken.of(10), IntToken.of(2), IntToken.of(10), IntToken.of(3), IntToken.of(30)),
+                map(k, IntToken.of(10), frame));
+        assertEquals(2, substitutions.size());
+        Set<Term> keys = new HashSet<>();
+        for (Substitution<Variable, Term> substitution : substitutions) {
+            keys.add(substitution.get(k));
+            assertEquals(2, entries(substitution.get(frame)).size());
+            assertFalse(entries(substitution.get(frame)).containsKey(substitution.get(k)));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(IntToken.of(1), IntToken.of(2))), keys);
+    }
+
+    @Test
+    public void testSymbolicSubjectKey() {
+        Variable symbolicKey = new Variable("A", Sort.INT);
+        List<Substitution<Variable, Term>> substitutions = match(
+                map(symbolicKey, IntToken.of(1), IntToken.of(2), IntToken.of(20)),
+                map(IntToken.of(2), x, frame));
+        assertEquals(1, substitutions.size());
+        assertEquals(IntToken.of(20), substitutions.get(0).get(x));
+        assertEquals(IntToken.of(1), entries(substitutions.get(0).get(frame)).get(symbolicKey));
+    }
+
+    @Test
+    public void testWithoutFrame() {
+        assertNull(match(
+                map(IntToken.of(1), IntToken.of(10), IntToken.of(2), IntToken.of(20)),
+                map(IntToken.of(1), x)));
+        List<Substitution<Variable, Term>> substitutions = match(
+                map(IntToken.of(1), IntToken.of(10), IntToken.of(2), IntToken.of(20)),
+                map(IntToken.of(2), v, IntToken.of(1), x));
+        assertEquals(1, substitutions.size());
+        assertEquals(IntToken.of(10), substitutions.get(0).get(x));
+        assertEquals(IntToken.of(20), substitutions.get(0).get(v));
+    }
+}
@@ -0,0 +1,147 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.SortSignature;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.utils.BaseTestCase;
+import org.kframework.utils.BitSet;
+import org.mockito.Mock;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RuleIndexTest extends BaseTestCase {
+
+    private static final Sort T_CELL = Sort.of("TCell@RULE-INDEX-TEST");
+    private static final Sort K_CELL = Sort.of("KCell@RULE-INDEX-TEST");
+    private static final Sort STATE_CELL = Sort.of("StateCell@RULE-INDEX-TEST");
+    private static final Sort FOO = Sort.of("Foo@RULE-INDEX-TEST");
+
+    @Mock
+    Definition definition;
+
+    private final Map<String, Attributes> kLabelAttributes = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(FOO));
+        when(definition.kLabelAttributesOf(anyString())).thenReturn(new Attributes());
+        when(definition.kLabelAttributes()).thenReturn(kLabelAttributes);
+        definition.ruleTable = new HashMap<>();
+    }
+
+    private void cell(String label, Sort sort, Sort... children) {
+        Attributes attributes = new Attributes();
+        attributes.add(Attribute.of(Attribute.CELL_KEY, ""));
+        kLabelAttributes.put(label, attributes);
+        when(definition.signaturesOf(label)).thenReturn(
+                Collections.singleton(new SortSignature(ImmutableList.copyOf(children), sort)));
+    }
+
+    private void configuration() {
+        // <T> <state> _ </state> <k> _ </k> </T>, with the <k> cell second
+        cell("<T>", T_CELL, STATE_CELL, K_CELL);
+        cell("<k>", K_CELL, Sort.KSEQUENCE);
+        cell("<state>", STATE_CELL, Sort.KITEM);
+    }
+
+    private KItem kItem(String label, Term... children) {
+        KList kList = children.length == 0 ? KList.EMPTY : children.length == 1
+                ? KList.singleton(children[0])
+                : (KList) KList.concatenate(children);
+        return new KItem(KLabelConstant.of(label, definition), kList, FOO, true);
+    }
+
+    private static Term kSequence(Term... items) {
+        KSequence.Builder builder = KSequence.builder();
+        for (Term item : items) {
+            builder.concatenate(item);
+        }
+        return builder.build();
+    }
+
+    private Term configuration(Term k) {
+        return kItem("<T>", kItem("<state>", new Variable("S", Sort.KITEM)), kItem("<k>", k));
+    }
+
+    private void rule(int index, Term leftHandSide) {
+        Rule rule = mock(Rule.class);
+        when(rule.leftHandSide()).thenReturn(leftHandSide);
+        definition.ruleTable.put(index, rule);
+    }
+
+    private RuleIndex ruleIndex(BitSet allRules) {
+        allRules.makeOnes(definition.ruleTable.size());
+        return new RuleIndex(definition, allRules);
+    }
+
+    private void rules() {
+        Variable rest = new Variable("K", Sort.KSEQUENCE);
+        rule(0, configuration(kSequence(kItem("foo"), rest)));
+        rule(1, configuration(kSequence(kItem("bar"), rest)));
+        rule(2, configuration(rest));
+        rule(3, configuration(kItem("foo")));
+    }
+
+    @Test
+    public void testMaskShrinks() {
+        configuration();
+        rules();
+        BitSet allRules = BitSet.apply(definition.ruleTable.size());
+        RuleIndex ruleIndex = ruleIndex(allRules);
+
+        BitSet fooMask = ruleIndex.ruleMask(configuration(kSequence(kItem("foo"), kItem("bar"))));
+        assertTrue(fooMask.get(0));
+        assertFalse(fooMask.get(1));
+        assertTrue(fooMask.get(2));
+        assertTrue(fooMask.get(3));
+        assertTrue(fooMask.cardinality() < allRules.cardinality());
+
+        BitSet barMask = ruleIndex.ruleMask(configuration(kItem("bar")));
+        assertFalse(barMask.get(0));
+        assertTrue(barMask.get(1));
+        assertTrue(barMask.get(2));
+        assertFalse(barMask.get(3));
+
+        BitSet bazMask = ruleIndex.ruleMask(configuration(kSequence(kItem("baz"), kItem("foo"))));
+        assertEquals(1, bazMask.cardinality());
+        assertTrue(bazMask.get(2));
+    }
+
+    @Test
+    public void testSymbolicTop() {
+        configuration();
+        rules();
+        BitSet allRules = BitSet.apply(definition.ruleTable.size());
+        RuleIndex ruleIndex = ruleIndex(allRules);
+        assertSame(allRules, ruleIndex.ruleMask(configuration(
+                kSequence(new Variable("X", Sort.KITEM), kItem("foo")))));
+        assertSame(allRules, ruleIndex.ruleMask(configuration(KSequence.EMPTY)));
+    }
+
+    @Test
+    public void testWithoutConfiguration() {
+        rules();
+        BitSet allRules = BitSet.apply(definition.ruleTable.size());
+        RuleIndex ruleIndex = ruleIndex(allRules);
+        assertSame(allRules, ruleIndex.ruleMask(configuration(kItem("foo"))));
+    }
+}
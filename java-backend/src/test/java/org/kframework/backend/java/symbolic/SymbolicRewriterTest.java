@@ -0,0 +1,227 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kframework.attributes.Att;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.LocalRewriteTerm;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.SortSignature;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.builtin.KLabels;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.krun.api.KRunState;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.options.SMTOptions;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests building the right-hand side of a rule from the paths to its inner rewrites, and rewriting steps which
+ * do not need the matcher.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SymbolicRewriterTest {
+
+    @Mock
+    Definition definition;
+
+    private TermContext termContext;
+    private final Substitution<Variable, Term> substitution = ImmutableMapSubstitution.empty();
+    private final Map<String, Attributes> cells = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(Sort.of("Foo@SYMBOLIC-REWRITER-TEST")));
+        when(definition.kLabelAttributesOf(anyString())).thenReturn(new Attributes());
+        when(definition.anywhereRules()).thenReturn(ArrayListMultimap.create());
+        when(definition.functionRules()).thenReturn(ArrayListMultimap.create());
+        GlobalContext global = new GlobalContext(null, false, new GlobalOptions(), null, null, new SMTOptions(), null, FileUtil.testFileUtil(), null);
+        global.setDefinition(definition);
+        termContext = TermContext.builder(global).build();
+    }
+
+    private Term kItem(String label, Term... children) {
+        return KItem.of(KLabelConstant.of(label + "@SYMBOLIC-REWRITER-TEST", definition), KList.concatenate(children),
+                termContext.global());
+    }
+
+    /**
+     * Returns the rewrite of the term at the given positions into {@code rhs}.
+     */
+    private static LocalRewriteTerm rewrite(Term rhs, int... positions) {
+        long[] path = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            path[i] = LocalRewriteTerm.step(positions[i], positions[i] + 1);
+        }
+        return new LocalRewriteTerm(path, rhs);
+    }
+
+    private Term buildRHS(Term subject, LocalRewriteTerm... rewrites) {
+        List<LocalRewriteTerm> sorted = new ArrayList<>(Arrays.asList(rewrites));
+        sorted.sort(LocalRewriteTerm.PATH_ORDER);
+        return SymbolicRewriter.buildRHS(subject, substitution, sorted, 0, sorted.size(), 0, termContext);
+    }
+
+    /**
+     * Returns {@code depth} nested applications of {@code s} to {@code term}.
+     */
+    private Term nest(int depth, Term term) {
+        for (int i = 0; i < depth; i++) {
+            term = kItem("s", term);
+        }
+        return term;
+    }
+
+    private static int[] zeros(int length) {
+        return new int[length];
+    }
+
+    @Test
+    public void testTopRewrite() {
+        Term subject = kItem("f", IntToken.of(1));
+        assertEquals(IntToken.of(2),
+                SymbolicRewriter.buildRHS(subject, substitution, rewrite(IntToken.of(2)), 0, termContext));
+        assertEquals(IntToken.of(2), buildRHS(subject, rewrite(IntToken.of(2))));
+    }
+
+    @Test
+    public void testDeepRewrite() {
+        /* deeper than the initial path stack of the matcher */
+        int depth = 40;
+        Term subject = nest(depth, kItem("z"));
+        Term expected = nest(depth, kItem("o"));
+        assertEquals(expected,
+                SymbolicRewriter.buildRHS(subject, substitution, rewrite(kItem("o"), zeros(depth)), 0, termContext));
+        assertEquals(expected, buildRHS(subject, rewrite(kItem("o"), zeros(depth))));
+    }
+
+    @Test
+    public void testAdjacentRewrites() {
+        Term subject = kItem("f", IntToken.of(0), IntToken.of(1), IntToken.of(2), IntToken.of(3));
+        assertEquals(kItem("f", IntToken.of(0), IntToken.of(10), IntToken.of(20), IntToken.of(3)),
+                buildRHS(subject, rewrite(IntToken.of(20), 2), rewrite(IntToken.of(10), 1)));
+        assertEquals(kItem("f", IntToken.of(0), IntToken.of(1), IntToken.of(2), IntToken.of(30)),
+                buildRHS(subject, rewrite(IntToken.of(30), 3)));
+    }
+
+    @Test
+    public void testRewritesUnderSharedPrefix() {
+        /* f(g(h(1, 2), 3), 4, g(5)) */
+        Term subject = kItem("f",
+                kItem("g", kItem("h", IntToken.of(1), IntToken.of(2)), IntToken.of(3)),
+                IntToken.of(4),
+                kItem("g", IntToken.of(5)));
+        Term expected = kItem("f",
+                kItem("g", kItem("h", IntToken.of(10), IntToken.of(20)), IntToken.of(3)),
+                IntToken.of(40),
+                kItem("g", IntToken.of(50)));
+        assertEquals(expected, buildRHS(subject,
+                rewrite(IntToken.of(50), 2, 0),
+                rewrite(IntToken.of(20), 0, 0, 1),
+                rewrite(IntToken.of(40), 1),
+                rewrite(IntToken.of(10), 0, 0, 0)));
+    }
+
+    @Test
+    public void testDeepAndShallowRewrites() {
+        int depth = 20;
+        Term subject = kItem("f", nest(depth, kItem("z")), kItem("z"), nest(depth, kItem("z")));
+        Term expected = kItem("f", nest(depth, kItem("o")), kItem("o"), nest(depth, kItem("z")));
+        int[] deepPath = new int[depth + 1];
+        assertEquals(expected, buildRHS(subject, rewrite(kItem("o"), 1), rewrite(kItem("o"), deepPath)));
+    }
+
+    @Test
+    public void testRebuiltFlags() {
+        Term subject = kItem("f", kItem("g", IntToken.of(1)), IntToken.of(2));
+        Term result = buildRHS(subject, rewrite(IntToken.of(10), 0, 0));
+        assertEquals(kItem("f", kItem("g", IntToken.of(10)), IntToken.of(2)), result);
+        assertTrue(result.isNormal());
+        assertTrue(result.isGround());
+    }
+
+    @Test
+    public void testRebuildNormalizesSequences() {
+        /* rewriting the head of a sequence into .K leaves its tail */
+        Term dotK = KItem.of(KLabelConstant.of(KLabels.DOTK, definition), KList.EMPTY, termContext.global());
+        Term subject = kItem("f", KItem.of(KLabelConstant.of(KLabels.KSEQ, definition),
+                KList.concatenate(IntToken.of(1), IntToken.of(2)), termContext.global()));
+        Term result = buildRHS(subject, rewrite(dotK, 0, 0));
+        assertEquals(kItem("f", IntToken.of(2)), result);
+        assertTrue(result.isNormal());
+    }
+
+    private void cell(String label, Sort sort, Sort... children) {
+        Attributes attributes = new Attributes();
+        attributes.add(Attribute.of(Attribute.CELL_KEY, ""));
+        cells.put(label, attributes);
+        when(definition.signaturesOf(label)).thenReturn(
+                Collections.singleton(new SortSignature(ImmutableList.copyOf(children), sort)));
+    }
+
+    private Term cellItem(String label, Term... children) {
+        return KItem.of(KLabelConstant.of(label, definition), KList.concatenate(children), termContext.global());
+    }
+
+    @Test
+    public void testStuckWithoutIndexedRules() {
+        Sort tCell = Sort.of("TCell@SYMBOLIC-REWRITER-TEST");
+        Sort kCell = Sort.of("KCell@SYMBOLIC-REWRITER-TEST");
+        Sort sCell = Sort.of("SCell@SYMBOLIC-REWRITER-TEST");
+        cell("<T>", tCell, kCell, sCell);
+        cell("<k>", kCell, Sort.KSEQUENCE);
+        cell("<s>", sCell, Sort.KSEQUENCE);
+        when(definition.kLabelAttributes()).thenReturn(cells);
+
+        /* the only rule has foo at the top of the <k> cell, so no rule is indexed for bar */
+        Rule rule = mock(Rule.class);
+        when(rule.leftHandSide()).thenReturn(
+                cellItem("<T>", cellItem("<k>", kItem("foo")), new Variable("S", Sort.KSEQUENCE)));
+        definition.ruleTable = new HashMap<>();
+        definition.ruleTable.put(0, rule);
+        definition.automaton = mock(Rule.class);
+
+        GlobalContext global = termContext.global();
+        SymbolicRewriter rewriter = new SymbolicRewriter(global, Collections.emptyList(), new KRunState.Counter(),
+                new KOREtoBackendKIL(null, definition, global, false));
+        Term go = kItem("go");
+        Term bar = cellItem("<k>", kItem("bar"));
+        List<ConstrainedTerm> results = rewriter.fastComputeRewriteStep(
+                new ConstrainedTerm(cellItem("<T>", bar, cellItem("<s>", go)), termContext), false, false, false);
+
+        Term stuck = KItem.of(KLabelConstant.of(Att.stuck(), definition), KList.EMPTY, global);
+        Term stuckStrategy = BuiltinList.kSequenceBuilder(global).add(stuck).add(go).build();
+        assertEquals(1, results.size());
+        assertEquals(cellItem("<T>", bar, cellItem("<s>", stuckStrategy)), results.get(0).term());
+        assertTrue(rewriter.fastComputeRewriteStep(results.get(0), false, false, false).isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.attributes.Location;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.krun.KRunOptions;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CoverageTest extends BaseTestCase {
+
+    @Mock
+    Definition definition;
+
+    @Mock
+    Rule rule0, rule1, rule2;
+
+    private final String location0 = Source.apply("a.k") + ":" + Location.apply(1, 1, 1, 10);
+    private final String location1 = Source.apply("a.k") + ":" + Location.apply(2, 1, 2, 10);
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        when(rule0.getSource()).thenReturn(Source.apply("a.k"));
+        when(rule0.getLocation()).thenReturn(Location.apply(1, 1, 1, 10));
+        when(rule1.getSource()).thenReturn(Source.apply("a.k"));
+        when(rule1.getLocation()).thenReturn(Location.apply(2, 1, 2, 10));
+        /* rule2 has no location, so it is not reported */
+        definition.ruleTable = new HashMap<>();
+        definition.ruleTable.put(0, rule0);
+        definition.ruleTable.put(1, rule1);
+        definition.ruleTable.put(2, rule2);
+        file = File.createTempFile("coverage", null);
+        file.delete();
+        file.deleteOnExit();
+    }
+
+    private Coverage coverage() {
+        KRunOptions options = new KRunOptions();
+        options.experimental.coverage = file;
+        return Coverage.of(options);
+    }
+
+    private String report(boolean aggregate) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        Coverage.report(file, out, aggregate);
+        return bytes.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    @Test
+    public void testRecordAndReport() throws IOException {
+        Coverage coverage = coverage();
+        coverage.init(definition);
+        int[] rules = {0, 1, 2, 1, 1, 0};
+        for (int rule : rules) {
+            coverage.recordRule(rule);
+        }
+        coverage.close();
+
+        assertEquals(location0 + "\n"
+                + location1 + "\n"
+                + location1 + "\n"
+                + location1 + "\n"
+                + location0 + "\n", report(false));
+        assertEquals("2 " + location0 + "\n"
+                + "3 " + location1 + "\n", report(true));
+    }
+
+    @Test
+    public void testManyRecords() throws IOException {
+        /* more records than the ring of buffers holds */
+        int count = 100000;
+        Coverage coverage = coverage();
+        coverage.init(definition);
+        for (int i = 0; i < count; i++) {
+            coverage.recordRule(i % 3);
+        }
+        coverage.flush();
+        assertEquals((count + 2) / 3 + " " + location0 + "\n"
+                + (count + 1) / 3 + " " + location1 + "\n", report(true));
+        coverage.close();
+    }
+
+    @Test
+    public void testRunsAreAppended() throws IOException {
+        Coverage first = coverage();
+        first.init(definition);
+        first.recordRule(0);
+        first.close();
+
+        Coverage second = coverage();
+        second.init(definition);
+        second.recordRule(1);
+        second.recordRule(0);
+        second.close();
+
+        /* records after closing are dropped */
+        second.recordRule(1);
+        second.close();
+
+        assertEquals(location0 + "\n"
+                + location1 + "\n"
+                + location0 + "\n", report(false));
+        assertEquals("2 " + location0 + "\n"
+                + "1 " + location1 + "\n", report(true));
+    }
+
+    @Test
+    public void testEmptyRun() throws IOException {
+        Coverage coverage = coverage();
+        coverage.init(definition);
+        coverage.close();
+        assertEquals("", report(false));
+        assertEquals("", report(true));
+    }
+
+    @Test
+    public void testDisabled() {
+        Coverage coverage = Coverage.of(new KRunOptions());
+        assertFalse(coverage.isEnabled());
+        coverage.init(definition);
+        coverage.recordRule(0);
+        coverage.close();
+        assertFalse(file.exists());
+    }
+}
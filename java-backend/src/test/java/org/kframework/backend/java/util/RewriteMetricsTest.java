@@ -0,0 +1,69 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.kil.Attributes;
+import org.kframework.krun.KRunOptions;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RewriteMetricsTest extends BaseTestCase {
+
+    @Mock
+    Definition definition;
+
+    private RewriteMetrics metrics;
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(Sort.of("Foo@FOO")));
+        when(definition.kLabelAttributesOf(anyString())).thenReturn(new Attributes());
+        KRunOptions options = new KRunOptions();
+        options.experimental.statistics = true;
+        metrics = RewriteMetrics.of(options);
+    }
+
+    @Test
+    public void testNestedFunctionsAreTimedOnce() throws InterruptedException {
+        KLabelConstant f = KLabelConstant.of("f", definition);
+        KLabelConstant g = KLabelConstant.of("g", definition);
+
+        long wallStart = System.nanoTime();
+        long outer = metrics.startFunction(f);
+        Thread.sleep(5);
+        long recursive = metrics.startFunction(f);
+        long nested = metrics.startFunction(g);
+        Thread.sleep(5);
+        metrics.stopFunction(g, nested);
+        metrics.stopFunction(f, recursive);
+        metrics.stopFunction(f, outer);
+        long wall = System.nanoTime() - wallStart;
+
+        assertEquals(2, metrics.functionCalls(f));
+        assertEquals(1, metrics.functionCalls(g));
+        assertEquals(1, metrics.phaseCount(RewriteMetrics.Phase.EVALUATE));
+        assertTrue(metrics.phaseNanos(RewriteMetrics.Phase.EVALUATE) <= wall);
+        assertTrue(metrics.functionNanos(f) <= wall);
+        assertTrue(metrics.functionNanos(g) <= metrics.functionNanos(f));
+        assertTrue(metrics.functionNanos(g) > 0);
+    }
+
+    @Test
+    public void testSequentialCallsAddUp() {
+        KLabelConstant f = KLabelConstant.of("f", definition);
+        metrics.stopFunction(f, metrics.startFunction(f));
+        metrics.stopFunction(f, metrics.startFunction(f));
+        assertEquals(2, metrics.functionCalls(f));
+        assertEquals(2, metrics.phaseCount(RewriteMetrics.Phase.EVALUATE));
+    }
+}
@@ -0,0 +1,154 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.utils.BaseTestCase;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SubsortsTest extends BaseTestCase {
+
+    private static final int CHAIN_LENGTH = 10;
+
+    private final Sort top = sort("Top");
+    private final Sort a = sort("A");
+    private final Sort b = sort("B");
+    private final Sort c = sort("C");
+    private final Sort d = sort("D");
+    private final Sort[] chain = new Sort[CHAIN_LENGTH];
+
+    private Subsorts subsorts;
+
+    private static Sort sort(String name) {
+        return Sort.of(name + "@SUBSORTS-TEST");
+    }
+
+    @Before
+    public void setUp() {
+        //      Top
+        //     /   \
+        //    A     B     chain0 > chain1 > ... > chain9
+        //    | \ / |
+        //    |  X  |
+        //    | / \ |
+        //    C     D
+        Set<Sort> sorts = new HashSet<>(ImmutableSet.of(top, a, b, c, d));
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            chain[i] = sort("Chain" + i);
+            sorts.add(chain[i]);
+        }
+        Set<org.kframework.kil.Sort> frontEndSorts = new HashSet<>();
+        for (Sort sort : sorts) {
+            frontEndSorts.add(sort.toFrontEnd());
+        }
+        when(context.getAllSorts()).thenReturn(frontEndSorts);
+        when(context.isSubsorted(any(org.kframework.kil.Sort.class), any(org.kframework.kil.Sort.class)))
+                .thenAnswer(invocation -> isSubsorted(
+                        Sort.of((org.kframework.kil.Sort) invocation.getArguments()[0]),
+                        Sort.of((org.kframework.kil.Sort) invocation.getArguments()[1])));
+        subsorts = new Subsorts(context);
+    }
+
+    private boolean isSubsorted(Sort big, Sort small) {
+        if (big == top) {
+            return small == a || small == b || small == c || small == d;
+        }
+        if (big == a || big == b) {
+            return small == c || small == d;
+        }
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            for (int j = i + 1; j < CHAIN_LENGTH; j++) {
+                if (big == chain[i] && small == chain[j]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testRows() {
+        assertTrue(subsorts.isSubsorted(top, c));
+        assertTrue(subsorts.isSubsorted(a, d));
+        assertFalse(subsorts.isSubsorted(c, a));
+        assertFalse(subsorts.isSubsorted(a, b));
+        assertFalse(subsorts.isSubsorted(a, a));
+        assertTrue(subsorts.isSubsortedEq(a, a));
+        assertFalse(subsorts.isSubsorted(top, chain[0]));
+        for (Sort big : subsorts.allSorts()) {
+            for (Sort small : subsorts.allSorts()) {
+                assertEquals(big + " > " + small, isSubsorted(big, small), subsorts.isSubsorted(big, small));
+            }
+        }
+    }
+
+    @Test(expected = KEMException.class)
+    public void testUndefinedSort() {
+        subsorts.isSubsorted(top, sort("Undefined"));
+    }
+
+    @Test
+    public void testCommonSubsort() {
+        assertTrue(subsorts.hasCommonSubsort(a, b));
+        assertTrue(subsorts.hasCommonSubsort(c, c));
+        assertTrue(subsorts.hasCommonSubsort(top, c));
+        assertFalse(subsorts.hasCommonSubsort(c, d));
+        assertFalse(subsorts.hasCommonSubsort(a, chain[0]));
+    }
+
+    @Test
+    public void testBounds() {
+        assertEquals(ImmutableSet.of(c, d), subsorts.getLowerBounds(a, b));
+        assertEquals(ImmutableSet.of(top, a, b), subsorts.getUpperBounds(c, d));
+        assertEquals(ImmutableSet.of(a), subsorts.getLowerBounds(a));
+        assertEquals(Collections.emptySet(), subsorts.getLowerBounds(Collections.emptySet()));
+        assertEquals(Collections.emptySet(), subsorts.getUpperBounds(a, chain[0]));
+    }
+
+    @Test
+    public void testGLBAndLUB() {
+        assertNull(subsorts.getGLBSort(Collections.emptySet()));
+        assertNull(subsorts.getLUBSort(Collections.emptySet()));
+        assertEquals(a, subsorts.getGLBSort(a));
+        assertEquals(a, subsorts.getGLBSort(top, a));
+        assertEquals(a, subsorts.getLUBSort(a, c));
+        assertNull("C and D are both maximal lower bounds", subsorts.getGLBSort(a, b));
+        assertNull("A and B are both minimal upper bounds", subsorts.getLUBSort(c, d));
+        assertNull(subsorts.getLUBSort(a, chain[0]));
+    }
+
+    @Test
+    public void testCachedBoundsDependOnDirection() {
+        // the same set is cached once as a GLB key and once as a LUB key
+        for (int i = 0; i < 2; i++) {
+            assertEquals(c, subsorts.getGLBSort(top, c));
+            assertEquals(top, subsorts.getLUBSort(top, c));
+            assertEquals(c, subsorts.getGLBSort(Sets.newHashSet(c, top)));
+            assertEquals(top, subsorts.getLUBSort(Sets.newHashSet(c, top)));
+        }
+    }
+
+    @Test
+    public void testLargeSets() {
+        // more sorts than are memoized
+        Set<Sort> all = ImmutableSet.copyOf(chain);
+        assertEquals(chain[0], subsorts.getLUBSort(all));
+        assertEquals(chain[CHAIN_LENGTH - 1], subsorts.getGLBSort(all));
+        assertEquals(Collections.singleton(chain[0]), subsorts.getUpperBounds(all));
+
+        Set<Sort> mixed = new HashSet<>(all);
+        mixed.add(a);
+        assertNull(subsorts.getLUBSort(mixed));
+        assertNull(subsorts.getGLBSort(mixed));
+    }
+}
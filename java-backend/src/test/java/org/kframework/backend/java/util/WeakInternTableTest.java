@@ -0,0 +1,69 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class WeakInternTableTest {
+
+    @Test
+    public void testIntern() {
+        WeakInternTable<String, Object> table = new WeakInternTable<>();
+        Object a = table.intern("a", k -> new Object());
+        Object b = table.intern("b", k -> new Object());
+        assertNotSame(a, b);
+        assertSame(a, table.intern("a", k -> new Object()));
+        assertSame(b, table.get("b"));
+        assertEquals(2, table.misses());
+        assertEquals(1, table.hits());
+    }
+
+    @Test
+    public void testCollected() throws InterruptedException {
+        WeakInternTable<String, Object> table = new WeakInternTable<>();
+        ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        WeakReference<Object> value = new WeakReference<>(table.intern("a", k -> new Object()), queue);
+        assumeTrue("the value was not collected", awaitCollection(queue, value));
+
+        /* all weak references to the value are cleared at once, but the entry of the table is enqueued later */
+        assertNull(table.get("a"));
+        for (int i = 0; i < 1000 && table.size() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, table.size());
+        assertEquals(1, table.collected());
+    }
+
+    /**
+     * Returns true once {@code ref} has been enqueued in {@code queue}, i.e. its referent has been collected, or
+     * false if it is still reachable after a bounded number of collections.
+     */
+    private static boolean awaitCollection(ReferenceQueue<Object> queue, Reference<Object> ref) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            System.gc();
+            /* allocate some garbage, in case the request for a collection is ignored */
+            byte[][] garbage = new byte[64][];
+            for (int j = 0; j < garbage.length; j++) {
+                garbage[j] = new byte[1 << 16];
+            }
+            if (queue.remove(100) == ref) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testRetained() {
+        WeakInternTable<String, Object> table = new WeakInternTable<>(1);
+        table.intern("a", k -> new Object());
+        System.gc();
+        assertNotNull(table.get("a"));
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework;
+
+import com.google.common.collect.Iterables;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kframework.EquivChecker.Mark;
+import org.kframework.EquivChecker.SyncNode;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.Kompile;
+import org.kframework.utils.file.JarInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the equivalence of the programs of tests/equiv/test5 in the IMP definition there, exploring and matching
+ * their sync nodes on the calling thread and on several threads.
+ */
+public class EquivChecker_IT {
+
+    private static final File TEST_DIRECTORY = new File("tests/equiv/test5").getAbsoluteFile();
+
+    private static Kapi.Info info1;
+    private static Kapi.Info info2;
+    private static final List<ConjunctiveFormula> startEnsures = new ArrayList<>();
+    private static final List<ConjunctiveFormula> targetEnsures = new ArrayList<>();
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Kapi kapi = new Kapi();
+        List<File> lookupDirectories = Arrays.asList(Kompile.BUILTIN_DIRECTORY, TEST_DIRECTORY);
+        CompiledDefinition common = kapi.kompile(
+                FileUtils.readFileToString(new File(TEST_DIRECTORY, "common.k")), "COMMON", lookupDirectories);
+        CompiledDefinition imp = kapi.kompile(
+                FileUtils.readFileToString(new File(TEST_DIRECTORY, "imp.k")), "IMP", lookupDirectories);
+
+        String prelude = JarInfo.getKIncludeDir().resolve("z3/basic.smt2").toString();
+        info1 = Kapi.getInfo(imp, new File(TEST_DIRECTORY, "basic-imp-spec.k").getPath(), prelude);
+        info2 = Kapi.getInfo(imp, new File(TEST_DIRECTORY, "basic-imp2-spec.k").getPath(), prelude);
+
+        GlobalContext global = Kapi.getGlobal(common);
+        for (int i = 0; i < info1.startEnsures.size(); i++) {
+            startEnsures.add(Kapi.getConjunctiveFormula(info1.startEnsures.get(i), info2.startEnsures.get(i), global));
+            targetEnsures.add(Kapi.getConjunctiveFormula(info1.targetEnsures.get(i), info2.targetEnsures.get(i), global));
+        }
+    }
+
+    private static List<SyncNode> startSyncNodes(Kapi.Info info) {
+        List<SyncNode> syncNodes = new ArrayList<>();
+        for (int i = 0; i < info.startSyncNodes.size(); i++) {
+            if (!info.trusted.get(i)) {
+                syncNodes.add(new SyncNode(i, null, info.startSyncNodes.get(i), null));
+            }
+        }
+        return syncNodes;
+    }
+
+    /**
+     * Explores both programs from their start sync nodes to the next sync points, matches the nodes reached, and
+     * returns the sorted marks of the nodes of each program at each sync point.
+     */
+    private static List<List<Mark>> marks(Executor executor) {
+        List<Set<SyncNode>> syncNodes1 = EquivChecker.getNextSyncNodes(
+                startSyncNodes(info1), info1.targetSyncNodes, info1.rewriter, executor);
+        List<Set<SyncNode>> syncNodes2 = EquivChecker.getNextSyncNodes(
+                startSyncNodes(info2), info2.targetSyncNodes, info2.rewriter, executor);
+        assertNotNull(syncNodes1);
+        assertNotNull(syncNodes2);
+        EquivChecker.matchSyncNodes(syncNodes1, syncNodes2, startEnsures, targetEnsures, executor);
+
+        List<List<Mark>> marks = new ArrayList<>();
+        for (Set<SyncNode> nodes : Iterables.concat(syncNodes1, syncNodes2)) {
+            marks.add(nodes.stream().map(node -> node.mark).sorted().collect(Collectors.toList()));
+        }
+        return marks;
+    }
+
+    private static boolean equiv(Executor executor) {
+        return EquivChecker.equiv(
+                info1.startSyncNodes, info2.startSyncNodes,
+                info1.targetSyncNodes, info2.targetSyncNodes,
+                startEnsures, targetEnsures,
+                info1.trusted, info2.trusted,
+                info1.rewriter, info2.rewriter,
+                executor);
+    }
+
+    @Test
+    public void testSequentialAndParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<List<Mark>> sequential = marks(Runnable::run);
+            assertTrue(sequential.stream().anyMatch(marks -> marks.contains(Mark.BLACK)));
+            assertFalse(sequential.stream().anyMatch(marks -> marks.contains(Mark.RED)));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(sequential, marks(executor));
+            }
+
+            assertTrue(equiv(Runnable::run));
+            assertTrue(equiv(executor));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Test;
+import org.kframework.AbstractTest;
+import org.kframework.attributes.Source;
+import org.kframework.kore.K;
+import org.kframework.utils.KoreUtils;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that [anywhere] rules apply inside constructors of the initial configuration, which is evaluated
+ * before rewriting.
+ */
+public class AnywhereRules_IT extends AbstractTest {
+
+    private K run(KoreUtils utils, String program) throws Exception {
+        return utils.stepRewrite(utils.getParsed(program, Source.apply("generated by " + getClass().getSimpleName())),
+                Optional.empty());
+    }
+
+    @Test
+    public void testAnywhereRulesInConstructors() throws Exception {
+        KoreUtils utils = new KoreUtils("/convertor-tests/anywhere.k", "ANYWHERE", "ANYWHERE-SYNTAX", kem);
+
+        assertEquals(run(utils, "b"), run(utils, "a"));
+        assertEquals(run(utils, "wrap(b)"), run(utils, "wrap(a)"));
+        assertEquals(run(utils, "wrap(wrap(b))"), run(utils, "wrap(wrap(a))"));
+        assertEquals(run(utils, "pair(b, wrap(b))"), run(utils, "pair(a, wrap(a))"));
+        assertEquals(run(utils, "pair(wrap(b), b)"), run(utils, "pair(wrap(a), b)"));
+    }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.kframework.AbstractTest;
+import org.kframework.HookProvider;
+import org.kframework.attributes.Source;
+import org.kframework.builtin.BooleanUtils;
+import org.kframework.builtin.KLabels;
+import org.kframework.definition.Rule;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.kore.Assoc;
+import org.kframework.kore.K;
+import org.kframework.kore.KApply;
+import org.kframework.kore.KORE;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.rewriter.SearchType;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.file.FileUtil;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Searches a definition whose rules generate fresh constants with and without
+ * {@code --parallel-constraints}, which must not change the results.
+ */
+public class ParallelConstraints_IT extends AbstractTest {
+
+    @Test
+    public void testSearchWithFreshConstants() throws Exception {
+        KoreUtils utils = new KoreUtils("/convertor-tests/fresh_search.k", "FRESH-SEARCH", "FRESH-SEARCH-SYNTAX",
+                true, KORE.Sort("Pgm"), false, false, kem);
+        K parsed = utils.getParsed("start", Source.apply("generated by " + getClass().getSimpleName()));
+
+        Set<K> sequential = search(utils, parsed, false);
+        Set<K> parallel = search(utils, parsed, true);
+
+        assertEquals(3, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    private Set<K> search(KoreUtils utils, K parsed, boolean parallelConstraints) {
+        KRunOptions krunOptions = new KRunOptions();
+        krunOptions.search = true;
+        krunOptions.experimental.parallelConstraints = parallelConstraints;
+        FileUtil files = FileUtil.testFileUtil();
+        InitializeRewriter initializeRewriter = new InitializeRewriter(
+                new PortableFileSystem(kem, files),
+                new JavaExecutionOptions().deterministicFunctions,
+                krunOptions.global,
+                kem,
+                krunOptions.experimental.smt,
+                HookProvider.get(kem),
+                new KompileOptions().transition,
+                krunOptions,
+                files,
+                new InitializeRewriter.InitializeDefinition());
+        K result = initializeRewriter.apply(Pair.of(utils.compiledDef.executionModule(), null)).search(
+                parsed, Optional.empty(), Optional.empty(),
+                new Rule(KORE.KVariable("X"), BooleanUtils.TRUE, BooleanUtils.TRUE, KORE.Att()),
+                SearchType.FINAL, false);
+        return new HashSet<>(Assoc.flatten(
+                KORE.KLabel(KLabels.ML_OR), ((KApply) result).klist().items(), KORE.KLabel(KLabels.ML_FALSE)));
+    }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Test;
+import org.kframework.AbstractTest;
+import org.kframework.attributes.Source;
+import org.kframework.kore.K;
+import org.kframework.utils.KoreUtils;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs rules whose inner rewrites are deep in the subject, or under adjacent children of the same term.
+ */
+public class RewritePaths_IT extends AbstractTest {
+
+    private K run(KoreUtils utils, String program) throws Exception {
+        return utils.stepRewrite(utils.getParsed(program, Source.apply("generated by " + getClass().getSimpleName())),
+                Optional.empty());
+    }
+
+    private static String nest(int depth, String term) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("s(");
+        }
+        sb.append(term);
+        for (int i = 0; i < depth; i++) {
+            sb.append(")");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRewritePaths() throws Exception {
+        KoreUtils utils = new KoreUtils("/convertor-tests/rewrite_paths.k", "REWRITE-PATHS", "REWRITE-PATHS-SYNTAX", kem);
+
+        assertEquals(run(utils, nest(20, "o")), run(utils, nest(20, "z")));
+        assertNotEquals(run(utils, nest(19, "o")), run(utils, nest(19, "z")));
+
+        assertEquals(run(utils, "p(o, o, z)"), run(utils, "p(z, z, z)"));
+        assertEquals(run(utils, "p(o, o, s(z))"), run(utils, "p(z, z, s(z))"));
+        assertEquals(run(utils, "p(o, o, o)"), run(utils, "p(z, z, o)"));
+    }
+}
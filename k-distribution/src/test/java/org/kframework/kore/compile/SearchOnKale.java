@@ -0,0 +1,105 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.kore.compile;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.backend.Backends;
+import org.kframework.builtin.BooleanUtils;
+import org.kframework.builtin.KLabels;
+import org.kframework.builtin.Sorts;
+import org.kframework.definition.Rule;
+import org.kframework.kale.KaleBackend;
+import org.kframework.kale.KaleRewriter;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.Kompile;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.kore.Assoc;
+import org.kframework.kore.K;
+import org.kframework.kore.KApply;
+import org.kframework.main.GlobalOptions;
+import org.kframework.rewriter.SearchType;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.kframework.kore.KORE.*;
+
+/**
+ * Searches a small nondeterministic definition with the Kale backend, in which {@code start} rewrites to
+ * {@code a} and to {@code b}, which both rewrite to {@code c}, which rewrites to {@code done}.
+ */
+public class SearchOnKale {
+
+    private static CompiledDefinition compiledDef;
+    private static K input;
+
+    @BeforeClass
+    public static void kompile() throws Exception {
+        KExceptionManager kem = new KExceptionManager(new GlobalOptions());
+        KompileOptions kompileOptions = new KompileOptions();
+        kompileOptions.backend = Backends.KALE;
+        Kompile kompile = new Kompile(kompileOptions, FileUtil.testFileUtil(), kem, false);
+        File definitionFile = new File(SearchOnKale.class.getResource("/convertor-tests/kale_search.k").toURI());
+        compiledDef = kompile.run(definitionFile, "KALE-SEARCH", "KALE-SEARCH-SYNTAX",
+                new KaleBackend(kompileOptions, kem).steps());
+
+        K parsed = compiledDef.getProgramParser(kem).apply("start", Source.apply("generated by SearchOnKale"));
+        input = KApply(compiledDef.topCellInitializer,
+                KApply(KLabel("_|->_"), KToken("$PGM", Sorts.KConfigVar()), parsed));
+    }
+
+    private static List<K> search(boolean parallelSearch, Optional<Integer> depth, Optional<Integer> bound,
+                                  SearchType searchType, boolean resultsAsSubstitution) {
+        KaleRewriter rewriter = new KaleRewriter(compiledDef.executionModule(), parallelSearch);
+        K result = rewriter.search(input, depth, bound,
+                new Rule(KVariable("X"), BooleanUtils.TRUE, BooleanUtils.TRUE, Att()),
+                searchType, resultsAsSubstitution);
+        return Assoc.flatten(KLabel(KLabels.ML_OR), ((KApply) result).klist().items(), KLabel(KLabels.ML_FALSE));
+    }
+
+    private static List<K> search(Optional<Integer> depth, Optional<Integer> bound, SearchType searchType) {
+        return search(false, depth, bound, searchType, false);
+    }
+
+    @Test
+    public void testSearchTypes() {
+        assertEquals(2, search(Optional.empty(), Optional.empty(), SearchType.ONE).size());
+        assertEquals(4, search(Optional.empty(), Optional.empty(), SearchType.PLUS).size());
+        assertEquals(5, search(Optional.empty(), Optional.empty(), SearchType.STAR).size());
+
+        List<K> finalStates = search(Optional.empty(), Optional.empty(), SearchType.FINAL);
+        assertEquals("the final state is reached twice but found once", 1, finalStates.size());
+        K executed = new KaleRewriter(compiledDef.executionModule()).execute(input, Optional.empty()).k();
+        assertEquals(executed, finalStates.get(0));
+    }
+
+    @Test
+    public void testBounds() {
+        assertEquals(2, search(Optional.empty(), Optional.of(2), SearchType.STAR).size());
+        assertEquals(1, search(Optional.of(0), Optional.empty(), SearchType.STAR).size());
+        assertEquals("the states at the depth bound are final",
+                2, search(Optional.of(1), Optional.empty(), SearchType.FINAL).size());
+        assertEquals(1, search(Optional.of(2), Optional.empty(), SearchType.FINAL).size());
+    }
+
+    @Test
+    public void testSubstitutions() {
+        assertEquals(5, search(false, Optional.empty(), Optional.empty(), SearchType.STAR, true).size());
+    }
+
+    @Test
+    public void testParallelSearch() {
+        for (SearchType searchType : SearchType.values()) {
+            assertEquals(search(false, Optional.empty(), Optional.empty(), searchType, false),
+                    search(true, Optional.empty(), Optional.empty(), searchType, false));
+        }
+        assertEquals(search(false, Optional.empty(), Optional.of(3), SearchType.STAR, false),
+                search(true, Optional.empty(), Optional.of(3), SearchType.STAR, false));
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.kserver;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.kframework.AbstractTest;
+import org.kframework.HookProvider;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.kore.K;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs two krun requests with different options against one {@link DefinitionCache}, the way the K server does.
+ * Both requests share the loaded definition and the backend definition built from it.
+ */
+public class DefinitionCache_IT extends AbstractTest {
+
+    @Test
+    public void testRequestsWithDifferentOptions() throws Exception {
+        KoreUtils utils = new KoreUtils("/convertor-tests/kore_imp.k", "IMP", "IMP-SYNTAX", kem);
+        K parsed = utils.getParsed("int s, n; n = 10; while(0<=n) { s = s + n; n = n + -1; }",
+                Source.apply("generated by " + getClass().getSimpleName()));
+
+        FileUtil files = FileUtil.testFileUtil();
+        DefinitionCache cache = new DefinitionCache(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        KRunOptions plainOptions = new KRunOptions();
+        KRunOptions metricsOptions = new KRunOptions();
+        File metricsFile = File.createTempFile("metrics", ".json");
+        metricsFile.delete();
+        metricsFile.deleteOnExit();
+        metricsOptions.experimental.metricsFile = metricsFile;
+
+        List<Definition> definitions = new ArrayList<>();
+        K plainResult = run(cache, files, loads, definitions, utils, plainOptions, parsed);
+        assertFalse(metricsFile.exists());
+        K metricsResult = run(cache, files, loads, definitions, utils, metricsOptions, parsed);
+
+        assertEquals("the definition is loaded once", 1, loads.get());
+        assertSame("the backend definition is built once", definitions.get(0), definitions.get(1));
+        assertEquals(plainResult, metricsResult);
+        assertTrue("the second request uses its own options", metricsFile.exists());
+        assertTrue(FileUtils.readFileToString(metricsFile).contains("\"steps\""));
+    }
+
+    private K run(DefinitionCache cache, FileUtil files, AtomicInteger loads, List<Definition> definitions,
+                  KoreUtils utils, KRunOptions krunOptions, K parsed) {
+        DefinitionCache.LoadedDefinition loaded = cache.get(files, () -> {
+            loads.incrementAndGet();
+            return new DefinitionCache.LoadedDefinition(null, utils.compiledDef, null);
+        });
+        InitializeRewriter initializeRewriter = new InitializeRewriter(
+                new PortableFileSystem(kem, files),
+                new JavaExecutionOptions().deterministicFunctions,
+                krunOptions.global,
+                kem,
+                krunOptions.experimental.smt,
+                HookProvider.get(kem),
+                new KompileOptions().transition,
+                krunOptions,
+                files,
+                loaded.initializeDefinition);
+        InitializeRewriter.SymbolicRewriterGlue rewriter = (InitializeRewriter.SymbolicRewriterGlue)
+                initializeRewriter.apply(Pair.of(loaded.compiledDef.executionModule(), null));
+        definitions.add(rewriter.definition);
+        return rewriter.execute(parsed, Optional.empty()).k();
+    }
+}
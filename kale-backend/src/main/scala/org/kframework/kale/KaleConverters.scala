@@ -1,5 +1,8 @@
 package org.kframework.kale
 
+import java.util.concurrent.ConcurrentMap
+
+import com.google.common.collect.MapMaker
 import org.kframework.builtin.Sorts
 import org.kframework.definition.Module
 import org.kframework.kore
@@ -57,7 +60,47 @@ class KaleConverters(m: Module)(implicit val env: Environment) {
 
   def convert(klabel: KLabel): Label = label(klabelToLabelRename.getOrElse(klabel.name, klabel.name))
 
-  def convert(body: K): Term = body match {
+  /*
+   * Caches of the conversions in both directions, keyed by the identity of the converted nodes, so that converting
+   * a configuration which shares subterms with a previously converted one (or which was produced by convertBack)
+   * only converts the new subterms. Both keys and values are weak, so an entry lives only as long as both
+   * representations of the node are in use.
+   */
+  private val kaleOf: ConcurrentMap[K, Term] = new MapMaker().weakKeys().weakValues().makeMap()
+  private val koreOf: ConcurrentMap[Term, K] = new MapMaker().weakKeys().weakValues().makeMap()
+
+  @volatile private var cacheEnabled = false
+
+  /* the last configuration passed to retain, in both representations, kept alive so that its entries stay cached */
+  @volatile private var retained: (K, Term) = _
+
+  /**
+    * Enables the conversion caches. Terms converted before the function rules of the definition are set must not
+    * be cached, as converting a function application evaluates it.
+    */
+  def enableCache(): Unit = cacheEnabled = true
+
+  /**
+    * Keeps the conversions of the given configuration cached until the next call, e.g. while a debugger holds it.
+    */
+  def retain(k: K, term: Term): Unit = retained = (k, term)
+
+  def convert(body: K): Term =
+    if (!cacheEnabled)
+      convertNode(body)
+    else {
+      val cached = kaleOf.get(body)
+      if (cached != null)
+        cached
+      else {
+        val term = convertNode(body)
+        kaleOf.put(body, term)
+        koreOf.putIfAbsent(term, body)
+        term
+      }
+    }
+
+  private def convertNode(body: K): Term = body match {
     case Unapply.KToken(s, sort) => sort match {
       case Sorts.Bool => BOOLEAN(s.toBoolean)
       case Sorts.Int => INT(s.toInt)
@@ -79,7 +122,22 @@ class KaleConverters(m: Module)(implicit val env: Environment) {
 
   def convertBack(l: Label): KLabel = KORE.KLabel(labelToKLabelRename.getOrElse(l.name, l.name))
 
-  def convertBack(term: Term): K = term match {
+  def convertBack(term: Term): K =
+    if (!cacheEnabled)
+      convertBackNode(term)
+    else {
+      val cached = koreOf.get(term)
+      if (cached != null)
+        cached
+      else {
+        val k = convertBackNode(term)
+        koreOf.put(term, k)
+        kaleOf.putIfAbsent(k, term)
+        k
+      }
+    }
+
+  private def convertBackNode(term: Term): K = term match {
     case Variable(x) => KORE.KVariable(x)
     case emptyKSeq() => KORE.KSequence()
     case t@Node(`kseq`, _) => KORE.KSequence(kseq.asList(t).toList map convertBack: _*)
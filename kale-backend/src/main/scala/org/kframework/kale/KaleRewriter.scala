@@ -4,10 +4,12 @@ import java.util
 import java.util.Optional
 
 import org.kframework.attributes.Att
+import org.kframework.builtin.KLabels
 import org.kframework.definition._
 import org.kframework.kore.Unapply.KRewrite
 import org.kframework.kore._
 import org.kframework.rewriter.SearchType
+import org.kframework.utils.errorsystem.KEMException
 import org.kframework.{RewriterResult, kore}
 
 import scala.collection._
@@ -21,7 +23,13 @@ object KaleRewriter {
     att.contains(Att.assoc) || att.contains(Att.bag)
 }
 
-class KaleRewriter(m: Module) extends org.kframework.rewriter.Rewriter {
+/**
+  * @param parallelSearch whether search explores the states of each depth, and matches them against the pattern,
+  *                       in parallel; off by default
+  */
+class KaleRewriter(m: Module, parallelSearch: Boolean) extends org.kframework.rewriter.Rewriter {
+
+  def this(m: Module) = this(m, false)
 
   private val productionWithUniqueKLabel: Set[Sentence] = (m.sentences.collect({
     case p: Production if p.klabel.isDefined => p
@@ -155,10 +163,22 @@ class KaleRewriter(m: Module) extends org.kframework.rewriter.Rewriter {
     functionRules map { case (label, rewrites) => (label, rewrites map (rw => reconstruct(label)(rw).asInstanceOf[Rewrite])) } toMap
   }
 
-  val finalFunctionRules = Util.fixpoint(resolveFunctionRHS)(functionRules)
-  setFunctionRules(finalFunctionRules)
+  /**
+    * The function rules with the function applications in their right-hand sides resolved. Resolving them
+    * rebuilds every function rule until a fixpoint is reached, so it is done on first use rather than when the
+    * rewriter is created. Until then, conversions are not cached, as converting a function application evaluates
+    * it with the function rules set at the time.
+    */
+  lazy val finalFunctionRules: Map[Label, Set[Rewrite]] = {
+    val resolved = Util.fixpoint(resolveFunctionRHS)(functionRules)
+    setFunctionRules(resolved)
+    converters.enableCache()
+    resolved
+  }
+
+  private def resolveFunctionRules(): Unit = finalFunctionRules
 
-  val rules: Set[Rewrite] = m.rules collect {
+  lazy val rules: Set[Rewrite] = { resolveFunctionRules(); m.rules } collect {
     case rule@Rule(KRewrite(l@Unapply.KApply(klabel, _), r), requires, ensures, att)
       if !att.contains(Att.`macro`) && !m.attributesFor(klabel).contains(Att.`Function`) =>
       val rw = Rewrite(And(convert(l), Equality(convert(requires), BOOLEAN(true))), convert(r))
@@ -175,36 +195,128 @@ class KaleRewriter(m: Module) extends org.kframework.rewriter.Rewriter {
   //  println("\nRewriting rules\n")
   //  println(rules.mkString("\n"))
 
-  val rewrite = rewriterConstructor(rules)
+  lazy val rewrite = rewriterConstructor(rules)
 
   override def execute(k: K, depth: Optional[Integer]): RewriterResult = {
-    var i = 0
-    var term: Term = null
-    var next: Term = convert(k)
-    while (term != next && depth.map[Boolean](i == _).orElse(true)) {
-      term = next
-      next = rewrite.step(term).headOption.getOrElse(term)
-      i += 1
+    resolveFunctionRules()
+    val maxSteps = orElse(depth, Int.MaxValue)
+    var term: Term = convert(k)
+    var steps = 0
+    var done = false
+    while (!done && steps < maxSteps) {
+      rewrite.step(term).headOption match {
+        case Some(next) =>
+          term = next
+          steps += 1
+        case None =>
+          done = true
+      }
     }
-    term = next
-    new RewriterResult(Optional.of(0), convertBack(term))
+    val result = convertBack(term)
+    converters.retain(result, term)
+    new RewriterResult(Optional.of[Integer](steps), result)
   }
 
   override def `match`(k: K, rule: Rule): K = {
-    val kaleO = convert(k)
-    val kaleRule = rule match {
-      case rule@Rule(KRewrite(l@Unapply.KApply(klabel, _), r), requires, ensures, att) =>
-        val rw = Rewrite(And(convert(l), Equality(convert(requires), BOOLEAN(true))), convert(r))
-        rw
-    }
-    val res = matcher(kaleRule._1, kaleO)
+    resolveFunctionRules()
+    val res = matcher(convertPattern(rule), convert(k))
     convertBack(res)
   }
 
+  /**
+    * Converts the left-hand side of a rule (or its body, if it is not a rewrite) and its side condition to a
+    * Kale pattern.
+    */
+  private def convertPattern(rule: Rule): Term = {
+    val body = rule.body match {
+      case KRewrite(l, r) => l
+      case b => b
+    }
+    And(convert(body), Equality(convert(rule.requires), BOOLEAN(true)))
+  }
 
-  override def search(initialConfiguration: K, depth: Optional[Integer], bound: Optional[Integer], pattern: Rule, searchType: SearchType, resultsAsSubstitution: Boolean): K = ???
+  private def orElse(o: Optional[Integer], default: Int): Int = if (o.isPresent) o.get else default
+
+  private def mapInParallel[A, B](as: IndexedSeq[A])(f: A => B): IndexedSeq[B] =
+    if (parallelSearch && as.size > 1) as.par.map(f).seq.toIndexedSeq else as.map(f)
+
+  /**
+    * Explores the states reachable from the initial configuration breadth-first. With parallelSearch, the successors
+    * of the states of a depth, and their matches against the pattern, are computed in parallel, while the visited
+    * states and the results are collected in the order of the frontier, so that the results do not depend on the
+    * scheduling.
+    */
+  override def search(initialConfiguration: K, depth: Optional[Integer], bound: Optional[Integer], pattern: Rule, searchType: SearchType, resultsAsSubstitution: Boolean): K = {
+    resolveFunctionRules()
+    val maxDepth = if (searchType == SearchType.ONE) 1 else orElse(depth, Int.MaxValue)
+    val maxResults = orElse(bound, Int.MaxValue)
+    val kalePattern = convertPattern(pattern)
+    val results = mutable.ArrayBuffer[K]()
+
+    /* adds the states which match the pattern to the results; returns true when the bound is reached */
+    def addResults(states: IndexedSeq[Term]): Boolean = {
+      val matches = mapInParallel(states)(matcher(kalePattern, _))
+      for ((state, m) <- states zip matches if m != Bottom && results.size < maxResults) {
+        results += (if (resultsAsSubstitution) substitutionToK(m) else convertBack(state))
+      }
+      results.size >= maxResults
+    }
 
-  override def executeAndMatch(k: K, depth: Optional[Integer], rule: Rule): (RewriterResult, K) = ???
+    val initial = convert(initialConfiguration)
+    if (maxDepth == 0 || searchType == SearchType.STAR) {
+      if (addResults(IndexedSeq(initial)) || maxDepth == 0)
+        return disjunction(results)
+    }
+
+    val visited = mutable.HashSet[Term](initial)
+    var frontier = IndexedSeq(initial)
+    var currentDepth = 0
+    var done = false
+    while (!done && frontier.nonEmpty && currentDepth < maxDepth) {
+      val successors = mapInParallel(frontier)(rewrite.step(_).toIndexedSeq)
+      currentDepth += 1
+      val finalStates = mutable.ArrayBuffer[Term]()
+      val next = mutable.ArrayBuffer[Term]()
+      for ((state, stateSuccessors) <- frontier zip successors) {
+        if (stateSuccessors.isEmpty)
+          finalStates += state
+        next ++= stateSuccessors.filter(visited.add)
+      }
+      done = searchType match {
+        case SearchType.FINAL =>
+          /* the states at the depth bound are considered final */
+          addResults(finalStates) || currentDepth == maxDepth && addResults(next)
+        case _ => addResults(next)
+      }
+      frontier = next
+    }
+    disjunction(results)
+  }
+
+  private def disjunction(results: Seq[K]): K =
+    results.foldLeft(KORE.KApply(KORE.KLabel(KLabels.ML_FALSE)): K)((x, y) => KORE.KApply(KORE.KLabel(KLabels.ML_OR), x, y))
+
+  /**
+    * Converts a substitution returned by the matcher to the matching logic connectives used by the other backends.
+    */
+  private def substitutionToK(t: Term): K = t match {
+    case Node(And, children) =>
+      children.foldLeft(KORE.KApply(KORE.KLabel(KLabels.ML_TRUE)): K)((x, y) => KORE.KApply(KORE.KLabel(KLabels.ML_AND), x, substitutionToK(y)))
+    case Node(Or, children) =>
+      disjunction(children.map(substitutionToK).toSeq)
+    case Node(Equality, children) =>
+      KORE.KApply(KORE.KLabel(KLabels.EQUALS), (children map convertBack).toSeq: _*)
+    case Top =>
+      KORE.KApply(KORE.KLabel(KLabels.ML_TRUE))
+    case _ =>
+      convertBack(t)
+  }
+
+  override def executeAndMatch(k: K, depth: Optional[Integer], rule: Rule): (RewriterResult, K) = {
+    val res = execute(k, depth)
+    (res, `match`(res.k, rule))
+  }
 
-  override def prove(rules: util.List[Rule]): util.List[K] = ???
+  override def prove(rules: util.List[Rule]): util.List[K] =
+    throw KEMException.criticalError("The Kale backend does not support proving reachability claims.")
 }
@@ -0,0 +1,165 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.debugger;
+
+import org.kframework.kore.K;
+import org.kframework.parser.binary.BinaryParser;
+import org.kframework.unparser.ToBinary;
+
+import java.util.Arrays;
+
+/**
+ * The checkpoints of a {@link DebuggerState}, from the first one up to the last one.
+ * <p>
+ * A history is immutable: adding a checkpoint returns a new history which shares the previous checkpoints, so a
+ * state and its copies share their common history. Each checkpoint stores its configuration in the KAST binary
+ * format as the bytes which differ from the previous checkpoint, compressed. Every {@link #KEYFRAME_INTERVAL}
+ * checkpoints, or when most of the bytes differ, the whole configuration is stored instead, so restoring a
+ * configuration only applies a bounded number of deltas. Only the last checkpoint of a history keeps its
+ * configuration in memory, as the bytes the next checkpoint is compared with; the configurations of the other
+ * checkpoints are restored from the store when they are needed.
+ */
+public final class CheckpointHistory {
+
+    static final int KEYFRAME_INTERVAL = 32;
+
+    private final CheckpointStore store;
+    private final CheckpointHistory previous;
+    private final int stepNum;
+    private final int firstStepNum;
+    /* the number of deltas since the last whole configuration, 0 if this checkpoint stores one */
+    private final int deltaDepth;
+    /* the length of the prefix and of the suffix shared with the configuration of the previous checkpoint */
+    private final int prefixLength;
+    private final int suffixLength;
+    private final CheckpointStore.Entry entry;
+
+    /* the configuration in the KAST binary format while this is the last checkpoint, or null */
+    private byte[] serialized;
+
+    private CheckpointHistory(
+            CheckpointStore store,
+            CheckpointHistory previous,
+            int stepNum,
+            int firstStepNum,
+            int deltaDepth,
+            int prefixLength,
+            int suffixLength,
+            CheckpointStore.Entry entry,
+            byte[] serialized) {
+        this.store = store;
+        this.previous = previous;
+        this.stepNum = stepNum;
+        this.firstStepNum = firstStepNum;
+        this.deltaDepth = deltaDepth;
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+        this.entry = entry;
+        this.serialized = serialized;
+    }
+
+    /**
+     * Returns a history consisting of a single checkpoint.
+     */
+    static CheckpointHistory of(int stepNum, K k, CheckpointStore store) {
+        byte[] bytes = ToBinary.apply(k);
+        return new CheckpointHistory(store, null, stepNum, stepNum, 0, 0, 0, store.put(bytes), bytes);
+    }
+
+    /**
+     * Returns this history followed by a checkpoint of configuration {@code k} at step {@code stepNum}.
+     */
+    public CheckpointHistory add(int stepNum, K k) {
+        assert stepNum > this.stepNum;
+        byte[] bytes = ToBinary.apply(k);
+        byte[] previousBytes = serialized();
+
+        int maxLength = Math.min(bytes.length, previousBytes.length);
+        int prefix = 0;
+        while (prefix < maxLength && bytes[prefix] == previousBytes[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < maxLength - prefix
+                && bytes[bytes.length - 1 - suffix] == previousBytes[previousBytes.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        /* the new checkpoint is the last one now, so this one no longer keeps its configuration */
+        serialized = null;
+
+        int deltaLength = bytes.length - prefix - suffix;
+        if (deltaDepth + 1 >= KEYFRAME_INTERVAL || deltaLength > bytes.length / 2) {
+            return new CheckpointHistory(store, this, stepNum, firstStepNum, 0, 0, 0, store.put(bytes), bytes);
+        }
+        return new CheckpointHistory(store, this, stepNum, firstStepNum, deltaDepth + 1, prefix, suffix,
+                store.put(Arrays.copyOfRange(bytes, prefix, bytes.length - suffix)), bytes);
+    }
+
+    /**
+     * The step of the last checkpoint.
+     */
+    public int stepNum() {
+        return stepNum;
+    }
+
+    /**
+     * The step of the first checkpoint.
+     */
+    public int firstStepNum() {
+        return firstStepNum;
+    }
+
+    /**
+     * Returns the history up to the last checkpoint at or before step {@code stepNum}, or null if there is none.
+     */
+    public CheckpointHistory floor(int stepNum) {
+        CheckpointHistory history = this;
+        while (history != null && history.stepNum > stepNum) {
+            history = history.previous;
+        }
+        return history;
+    }
+
+    /**
+     * The configuration of the last checkpoint.
+     */
+    public K k() {
+        return BinaryParser.parse(serialized());
+    }
+
+    /**
+     * The number of deltas applied to the last whole configuration to restore the configuration of the last
+     * checkpoint.
+     */
+    int deltaDepth() {
+        return deltaDepth;
+    }
+
+    /**
+     * Drops the configurations kept in memory by the checkpoints of this history, so that they are restored from
+     * the store.
+     */
+    void dropCaches() {
+        for (CheckpointHistory history = this; history != null; history = history.previous) {
+            history.serialized = null;
+        }
+    }
+
+    private byte[] serialized() {
+        byte[] bytes = serialized;
+        if (bytes == null) {
+            byte[] data = store.get(entry);
+            if (deltaDepth == 0) {
+                bytes = data;
+            } else {
+                byte[] previousBytes = previous.serialized();
+                bytes = new byte[prefixLength + data.length + suffixLength];
+                System.arraycopy(previousBytes, 0, bytes, 0, prefixLength);
+                System.arraycopy(data, 0, bytes, prefixLength, data.length);
+                System.arraycopy(previousBytes, previousBytes.length - suffixLength,
+                        bytes, prefixLength + data.length, suffixLength);
+            }
+        }
+        return bytes;
+    }
+}
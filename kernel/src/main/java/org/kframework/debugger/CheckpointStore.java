@@ -0,0 +1,136 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.debugger;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores the data of the checkpoints of a debugger session compressed, either in memory or, if it is given a file,
+ * appended to that file, so that only the position of each checkpoint is kept in memory. Closing the store closes
+ * the file, which is opened again if more checkpoints are stored or restored.
+ */
+final class CheckpointStore implements AutoCloseable {
+
+    static final class Entry {
+        /* the compressed data, or null if it is stored in the file */
+        private final byte[] data;
+        private final long offset;
+        private final int compressedLength;
+        private final int length;
+
+        private Entry(byte[] data, long offset, int compressedLength, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+        }
+    }
+
+    private final File file;
+    private RandomAccessFile out;
+
+    CheckpointStore() {
+        this(null);
+    }
+
+    CheckpointStore(File file) {
+        this.file = file;
+    }
+
+    Entry put(byte[] bytes) {
+        byte[] compressed = compress(bytes);
+        if (file == null) {
+            return new Entry(compressed, -1, compressed.length, bytes.length);
+        }
+        synchronized (this) {
+            try {
+                RandomAccessFile out = out();
+                long offset = out.length();
+                out.seek(offset);
+                out.write(compressed);
+                return new Entry(null, offset, compressed.length, bytes.length);
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not write debugger checkpoint to " + file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    byte[] get(Entry entry) {
+        byte[] compressed = entry.data;
+        if (compressed == null) {
+            compressed = new byte[entry.compressedLength];
+            synchronized (this) {
+                try {
+                    RandomAccessFile out = out();
+                    out.seek(entry.offset);
+                    out.readFully(compressed);
+                } catch (IOException e) {
+                    throw KEMException.criticalError("Could not read debugger checkpoint from " + file.getAbsolutePath(), e);
+                }
+            }
+        }
+        return decompress(compressed, entry.length);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw KEMException.criticalError(
+                        "Could not close debugger checkpoints file " + file.getAbsolutePath(), e);
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    private RandomAccessFile out() throws IOException {
+        if (out == null) {
+            file.getParentFile().mkdirs();
+            out = new RandomAccessFile(file, "rw");
+        }
+        return out;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] compressed, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                read += inflater.inflate(bytes, read, length - read);
+            }
+            return bytes;
+        } catch (DataFormatException e) {
+            throw KEMException.criticalError("Corrupted debugger checkpoint", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
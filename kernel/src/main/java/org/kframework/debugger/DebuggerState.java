@@ -1,14 +1,11 @@
 // Copyright (c) 2015-2016 K Team. All Rights Reserved.
 package org.kframework.debugger;
 
-import com.google.common.collect.Maps;
 import org.kframework.kore.K;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 
 /**
  * Created by Manasvi on 6/15/15.
@@ -24,7 +21,7 @@ import java.util.TreeMap;
  */
 public class DebuggerState {
 
-    private final NavigableMap<Integer, K> checkpointMap;
+    private final CheckpointHistory checkpoints;
 
     private final List<DebuggerMatchResult> watchList;
 
@@ -32,15 +29,15 @@ public class DebuggerState {
 
     private final int stepNum;
 
-    public DebuggerState(K currentK, int stepNum, NavigableMap<Integer, K> checkpointMap, List<DebuggerMatchResult> watchList) {
-        this.checkpointMap = new TreeMap<>(checkpointMap);
+    public DebuggerState(K currentK, int stepNum, CheckpointHistory checkpoints, List<DebuggerMatchResult> watchList) {
+        this.checkpoints = checkpoints;
         this.watchList = new ArrayList<>(watchList);
         this.currentK = currentK;
         this.stepNum = stepNum;
     }
 
     public DebuggerState(DebuggerState copyState) {
-        this.checkpointMap = new TreeMap<>(copyState.getCheckpointMap());
+        this.checkpoints = copyState.getCheckpoints();
         this.watchList = new ArrayList<>(copyState.getWatchList());
         this.currentK = copyState.getCurrentK();
         this.stepNum = copyState.getStepNum();
@@ -55,20 +52,23 @@ public class DebuggerState {
     }
 
     /**
-     * Get the last checkpoint from the Map.
+     * Get the last checkpoint from the history.
      * The last checkpoint may not have the most recent K.
      *
-     * @return The most recent checkpoint element in the Map
+     * @return The step of the most recent checkpoint in the history
      */
     public int getlastMapCheckpoint() {
-        return checkpointMap.lastKey();
+        return checkpoints.stepNum();
     }
 
     public List<DebuggerMatchResult> getWatchList() {
         return Collections.unmodifiableList(watchList);
     }
 
-    public NavigableMap<Integer, K> getCheckpointMap() {
-        return Maps.unmodifiableNavigableMap(checkpointMap);
+    /**
+     * The checkpoints are immutable, so they are shared with the copies of this state.
+     */
+    public CheckpointHistory getCheckpoints() {
+        return checkpoints;
     }
 }
@@ -18,22 +18,31 @@ import scala.Tuple2;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
  * Kore Based Debugger Implementation.
  */
-public class KoreKDebug implements KDebug {
+public class KoreKDebug implements KDebug, AutoCloseable {
 
     private final int DEFAULT_ID = 0;
+
+    /*
+     * Until the checkpoint interval is set explicitly, it is adapted to the speed of the rewriter, so that going
+     * back to any step replays about TARGET_REPLAY_NANOS worth of steps from the checkpoint before it.
+     */
+    private static final long TARGET_REPLAY_NANOS = 250_000_000L;
+    private static final int MIN_CHECKPOINT_INTERVAL = 16;
+    private static final int MAX_CHECKPOINT_INTERVAL = 1 << 20;
+
     private List<DebuggerState> stateList;
     private int activeStateIndex;
     private Rewriter rewriter;
     private int checkpointInterval;
+    private boolean adaptiveCheckpointInterval = true;
+    private double nanosPerStep = 0;
+    private final CheckpointStore checkpointStore;
     private FileUtil files;
     private final KExceptionManager kem;
     private KRunOptions options;
@@ -59,17 +68,28 @@ public class KoreKDebug implements KDebug {
         this.kem = kem;
         this.options = options;
         this.compiledDef = compiledDef;
-        NavigableMap<Integer, K> checkpointMap = new TreeMap<>();
-        checkpointMap.put(DEFAULT_ID, initialK);
+        this.checkpointStore = options.experimental.debuggerSpillCheckpoints
+                ? new CheckpointStore(files.resolveTemp("debugger-checkpoints"))
+                : new CheckpointStore();
+        CheckpointHistory checkpoints = CheckpointHistory.of(DEFAULT_ID, initialK, checkpointStore);
         List<DebuggerMatchResult> watchList = new ArrayList<>();
-        DebuggerState initialState = new DebuggerState(initialK, DEFAULT_ID, checkpointMap, watchList);
+        DebuggerState initialState = new DebuggerState(initialK, DEFAULT_ID, checkpoints, watchList);
         stateList.add(initialState);
         activeStateIndex = DEFAULT_ID;
     }
 
+    /**
+     * Closes the file the checkpoints are spilled to, if any.
+     */
+    @Override
+    public void close() {
+        checkpointStore.close();
+    }
+
     @Override
     public void setCheckpointInterval(int checkpointInterval) {
         this.checkpointInterval = checkpointInterval;
+        this.adaptiveCheckpointInterval = false;
     }
 
     @Override
@@ -78,29 +98,30 @@ public class KoreKDebug implements KDebug {
         K currentK = currentState.getCurrentK();
         int activeStateCheckpoint = currentState.getStepNum();
         RewriterResult result;
-        NavigableMap<Integer, K> checkpointMap = new TreeMap<>(currentState.getCheckpointMap());
+        CheckpointHistory checkpoints = currentState.getCheckpoints();
         List<DebuggerMatchResult> origWatchList = currentState.getWatchList();
-        while (steps >= checkpointInterval) {
-            result = rewriter.execute(currentK, Optional.of(checkpointInterval));
-            if (isFinalState(checkpointInterval, result)) {
+        int interval;
+        while (steps >= (interval = checkpointInterval)) {
+            result = execute(currentK, interval);
+            if (isFinalState(interval, result)) {
                 return processStateData(result.k(),
                         activeStateCheckpoint + result.rewriteSteps().get(),
                         currentStateIndex,
-                        checkpointMap,
+                        checkpoints,
                         origWatchList
                 );
             }
-            steps -= checkpointInterval;
-            activeStateCheckpoint += checkpointInterval;
-            checkpointMap.put(activeStateCheckpoint, result.k());
+            steps -= interval;
+            activeStateCheckpoint += interval;
+            checkpoints = checkpoints.add(activeStateCheckpoint, result.k());
             currentK = result.k();
         }
-        result = rewriter.execute(currentK, Optional.of(steps));
+        result = execute(currentK, steps);
         if (isFinalState(steps, result)) {
             return processStateData(result.k(),
                     activeStateCheckpoint + result.rewriteSteps().get(),
                     currentStateIndex,
-                    checkpointMap,
+                    checkpoints,
                     origWatchList
             );
 
@@ -109,19 +130,35 @@ public class KoreKDebug implements KDebug {
         return processStateData(result.k(),
                 activeStateCheckpoint,
                 currentStateIndex,
-                checkpointMap,
+                checkpoints,
                 origWatchList
         );
     }
 
+    /* Executes the given number of steps, and adapts the checkpoint interval to the time they took */
+    private RewriterResult execute(K k, int steps) {
+        long start = System.nanoTime();
+        RewriterResult result = rewriter.execute(k, Optional.of(steps));
+        int stepsTaken = result.rewriteSteps().orElse(steps);
+        if (stepsTaken > 0) {
+            double sample = (double) (System.nanoTime() - start) / stepsTaken;
+            nanosPerStep = nanosPerStep == 0 ? sample : 0.75 * nanosPerStep + 0.25 * sample;
+            if (adaptiveCheckpointInterval) {
+                checkpointInterval = (int) Math.max(MIN_CHECKPOINT_INTERVAL,
+                        Math.min(MAX_CHECKPOINT_INTERVAL, TARGET_REPLAY_NANOS / nanosPerStep));
+            }
+        }
+        return result;
+    }
+
     /* Private Helper function to do make a new state with the requested data */
-    private DebuggerState processStateData(K finalK, int stepNum, int stateNum, NavigableMap<Integer, K> checkpointMap, List<DebuggerMatchResult> watchList) {
+    private DebuggerState processStateData(K finalK, int stepNum, int stateNum, CheckpointHistory checkpoints, List<DebuggerMatchResult> watchList) {
         List<DebuggerMatchResult> updatedWatchList = updateWatchList(watchList, finalK);
         stateList.remove(stateNum);
         DebuggerState nextState = new DebuggerState(
                 finalK,
                 stepNum,
-                checkpointMap,
+                checkpoints,
                 updatedWatchList
         );
         stateList.add(stateNum, nextState);
@@ -154,27 +191,26 @@ public class KoreKDebug implements KDebug {
         DebuggerState currentState = stateList.get(initialStateNum);
         int currentCheckpoint = currentState.getStepNum();
         int target = currentCheckpoint - steps;
-        NavigableMap<Integer, K> currMap = new TreeMap<>(currentState.getCheckpointMap());
-        Map.Entry<Integer, K> relevantEntry = currMap.floorEntry(target);
-        if (relevantEntry == null) {
+        CheckpointHistory relevantCheckpoints = currentState.getCheckpoints().floor(target);
+        if (relevantCheckpoints == null) {
             /* Invalid Operation, no need to change the state */
             return null;
         }
 
-        int floorKey = relevantEntry.getKey();
-        processStateData(relevantEntry.getValue(),
+        int floorKey = relevantCheckpoints.stepNum();
+        K floorK = relevantCheckpoints.k();
+        processStateData(floorK,
                 floorKey,
                 initialStateNum,
-                currMap.headMap(floorKey, true),
-                updateWatchList(currentState.getWatchList(), relevantEntry.getValue()));
+                relevantCheckpoints,
+                updateWatchList(currentState.getWatchList(), floorK));
         return step(initialStateNum, target - floorKey);
     }
 
     @Override
     public DebuggerState jumpTo(int initialStateNum, int configurationNum) {
         DebuggerState currentState = stateList.get(initialStateNum);
-        NavigableMap<Integer, K> checkpointMap = new TreeMap<>(currentState.getCheckpointMap());
-        int firstKey = checkpointMap.firstKey();
+        int firstKey = currentState.getCheckpoints().firstStepNum();
         if (configurationNum < firstKey) {
             return null;
         }
@@ -194,11 +230,13 @@ public class KoreKDebug implements KDebug {
     public DebuggerState resume() {
         DebuggerState activeState = stateList.get(activeStateIndex);
         DebuggerState steppedState = activeState;
+        int interval;
         do {
             activeState = steppedState;
-            steppedState = step(activeStateIndex, checkpointInterval);
+            interval = checkpointInterval;
+            steppedState = step(activeStateIndex, interval);
         }
-        while (steppedState.getStepNum() - activeState.getStepNum() >= checkpointInterval && !isFinalConfiguration(steppedState.getCurrentK()));
+        while (steppedState.getStepNum() - activeState.getStepNum() >= interval && !isFinalConfiguration(steppedState.getCurrentK()));
         return steppedState;
     }
 
@@ -259,7 +297,7 @@ public class KoreKDebug implements KDebug {
         DebuggerState nextState = new DebuggerState(
                 activeState.getCurrentK(),
                 activeState.getStepNum(),
-                new TreeMap<>(activeState.getCheckpointMap()),
+                activeState.getCheckpoints(),
                 watchList);
         stateList.add(activeStateIndex, nextState);
     }
@@ -278,7 +316,7 @@ public class KoreKDebug implements KDebug {
                 new DebuggerState(
                         currActiveState.getCurrentK(),
                         currActiveState.getStepNum(),
-                        new TreeMap<>(currActiveState.getCheckpointMap()),
+                        currActiveState.getCheckpoints(),
                         updatedList)
 
         );
@@ -100,7 +100,14 @@ public class KRun {
 
         //Todo: This is probably problematic. The first module in the definition is not guaranteed to be the main module.
         Rewriter rewriter = rewriterGenerator.apply(Pair.of(compiledDef.executionModule(), processedDefinition.definition));
+        try {
+            return run(program, rewriter, compiledDef, options, executionMode);
+        } finally {
+            rewriter.close();
+        }
+    }
 
+    private int run(K program, Rewriter rewriter, CompiledDefinition compiledDef, KRunOptions options, ExecutionMode executionMode) {
         Object result = executionMode.execute(program, rewriter, compiledDef);
 
 
@@ -241,6 +241,15 @@ public final class KRunOptions {
                 converter=OnOffConverter.class)
         public boolean statistics = false;
 
+        @Parameter(names="--metrics-file", description="Write per-rule, per-function, SMT and phase timing metrics of the rewrite engine to the given file as JSON.")
+        public File metricsFile = null;
+
+        @Parameter(names="--metrics-jmx", description="Expose rewrite engine metrics through JMX as org.kframework:type=RewriteMetrics.")
+        public boolean metricsJmx = false;
+
+        @Parameter(names="--parallel-constraints", description="Evaluate the side conditions of the rules that may apply in a search or proof step in parallel.")
+        public boolean parallelConstraints = false;
+
         @Parameter(names="--debugger", description="Run an execution in debug mode.")
         private boolean debugger = false;
 
@@ -251,6 +260,9 @@ public final class KRunOptions {
             return debugger;
         }
 
+        @Parameter(names="--debugger-spill-checkpoints", description="Store the checkpoints of the debugger in a temporary file instead of in memory.")
+        public boolean debuggerSpillCheckpoints = false;
+
         @Parameter(names="--ltlmc", description="Specify the formula for model checking at the commandline.")
         public String ltlmc;
 
@@ -270,7 +282,7 @@ public final class KRunOptions {
         @Parameter(names="--trace", description="Print a trace of every rule applied.")
         public boolean trace = false;
 
-        @Parameter(names="--coverage-file", description="Record a trace of locations of all rules and terms applied.")
+        @Parameter(names="--coverage-file", description="Append a trace of all rules applied to the given binary file. Print it with org.kframework.backend.java.util.Coverage.")
         public File coverage = null;
 
         @Parameter(names="--native-libraries", description="Native libraries to link the rewrite engine against. Useful in defining rewriter plugins.",
@@ -13,4 +13,7 @@ public class KServerOptions {
 
     @Parameter(names={"--port", "-p"}, description="The port to start the server on.")
     public int port = 2113;
+
+    @Parameter(names="--definition-cache-size", description="The number of kompiled definitions to keep loaded between krun invocations.")
+    public int definitionCacheSize = 8;
 }
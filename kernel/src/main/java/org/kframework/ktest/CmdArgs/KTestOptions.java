@@ -8,6 +8,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.kframework.krun.ColorOptions;
 import org.kframework.krun.ColorSetting;
 import org.kframework.ktest.IgnoringStringMatcher;
+import org.kframework.ktest.InProcessLauncher;
 import org.kframework.ktest.KTestStep;
 import org.kframework.ktest.StringMatcher;
 import org.kframework.main.GlobalOptions;
@@ -180,6 +181,18 @@ public class KTestOptions {
                 "command to be executed without actual execution.")
     public boolean dry = false;
 
+    /**
+     * Run krun steps inside the ktest JVM.
+     */
+    @Parameter(names="--in-process", description="Run krun steps inside the ktest process, loading each " +
+                "kompiled definition once, instead of spawning a krun process per program.")
+    private boolean inProcess = false;
+
+    /**
+     * Launcher used to run krun steps when {@link #inProcess} is set. Provided by the tool entry point.
+     */
+    private transient InProcessLauncher inProcessLauncher;
+
     /**
      * Enable debugging. When enabled, KTest passes --debug to spawned processes.
      */
@@ -216,6 +229,8 @@ public class KTestOptions {
         this.ignoreWS = obj.ignoreWS;
         this.ignoreBalancedParens = obj.ignoreBalancedParens;
         this.dry = obj.dry;
+        this.inProcess = obj.inProcess;
+        this.inProcessLauncher = obj.inProcessLauncher;
         this.debug = obj.debug;
         this.warnings2errors = obj.warnings2errors;
     }
@@ -329,6 +344,21 @@ public class KTestOptions {
         return threads;
     }
 
+    public boolean getInProcess() {
+        return inProcess;
+    }
+
+    /**
+     * @return the launcher to run krun steps with, or {@code null} if they should run as separate processes.
+     */
+    public InProcessLauncher getInProcessLauncher() {
+        return inProcess ? inProcessLauncher : null;
+    }
+
+    public void setInProcessLauncher(InProcessLauncher inProcessLauncher) {
+        this.inProcessLauncher = inProcessLauncher;
+    }
+
     public boolean isWarnings2errors() {
         return warnings2errors;
     }
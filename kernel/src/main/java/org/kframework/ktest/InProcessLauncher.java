@@ -0,0 +1,155 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.ktest;
+
+import com.martiansoftware.nailgun.ThreadLocalInputStream;
+import com.martiansoftware.nailgun.ThreadLocalPrintStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs K tools inside the ktest JVM instead of spawning a process per invocation, so that the JVM startup
+ * and the loading of kompiled definitions are paid once per test suite rather than once per program.
+ * <p>
+ * Each invocation gets its own stdin, stdout and stderr: {@code System.in}, {@code System.out} and
+ * {@code System.err} are replaced by thread-local streams the first time a launcher is created, and every
+ * invocation runs on a thread of a fixed-size pool with streams bound to in-memory buffers.
+ * <p>
+ * A tool which times out is interrupted, but the rewriter does not check for interruption, so it may keep running.
+ * If it has not stopped shortly after the interruption, the launcher is disabled, and {@link #isEnabled()} tells the
+ * caller to run the remaining invocations as separate processes, which can be killed.
+ */
+public class InProcessLauncher {
+
+    /**
+     * Runs the tool {@code tool} (e.g. {@code -krun}) with the given arguments and returns its exit code.
+     */
+    public interface ToolRunner {
+        int run(String tool, String[] args, File workingDir, Map<String, String> env);
+    }
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final long DEFAULT_STOP_TIMEOUT = 5000;
+
+    private final ToolRunner runner;
+
+    private final ExecutorService executor;
+
+    /* the time in milliseconds a timed out tool is given to stop after being interrupted */
+    private final long stopTimeout;
+
+    private volatile boolean enabled = true;
+
+    /**
+     * @param threads the maximum number of tools running at the same time
+     */
+    public InProcessLauncher(ToolRunner runner, int threads) {
+        this(runner, threads, DEFAULT_STOP_TIMEOUT);
+    }
+
+    InProcessLauncher(ToolRunner runner, int threads, long stopTimeout) {
+        this.runner = runner;
+        this.stopTimeout = stopTimeout;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ktest-in-process");
+            t.setDaemon(true);
+            return t;
+        });
+        installThreadLocalStreams();
+    }
+
+    /**
+     * Returns false once a tool failed to stop after timing out. It keeps a thread of the pool busy, so tools should
+     * not be launched in process anymore.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static synchronized void installThreadLocalStreams() {
+        if (!(System.in instanceof ThreadLocalInputStream)) {
+            System.setIn(new ThreadLocalInputStream(System.in));
+        }
+        if (!(System.out instanceof ThreadLocalPrintStream)) {
+            System.setOut(new ThreadLocalPrintStream(System.out));
+        }
+        if (!(System.err instanceof ThreadLocalPrintStream)) {
+            System.setErr(new ThreadLocalPrintStream(System.err));
+        }
+    }
+
+    /**
+     * Runs {@code tool} and collects its output.
+     *
+     * @param input   the contents of the tool's stdin; {@code null} for an empty stdin
+     * @param timeout time limit in milliseconds; on timeout the tool is interrupted and whatever output
+     *                it produced so far is returned
+     */
+    ProcOutput launch(String tool, String[] args, File workingDir, Map<String, String> env, String input, int timeout)
+            throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        AtomicBoolean started = new AtomicBoolean();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Future<Integer> result = executor.submit(() -> {
+            started.set(true);
+            ThreadLocalInputStream systemIn = (ThreadLocalInputStream) System.in;
+            ThreadLocalPrintStream systemOut = (ThreadLocalPrintStream) System.out;
+            ThreadLocalPrintStream systemErr = (ThreadLocalPrintStream) System.err;
+            PrintStream outStream = new PrintStream(out, true, ENCODING);
+            PrintStream errStream = new PrintStream(err, true, ENCODING);
+            systemIn.init(new ByteArrayInputStream(input == null ? new byte[0] : input.getBytes(ENCODING)));
+            systemOut.init(outStream);
+            systemErr.init(errStream);
+            try {
+                return runner.run(tool, args, workingDir, env);
+            // DISABLE EXCEPTION CHECKSTYLE
+            } catch (RuntimeException e) {
+            // ENABLE EXCEPTION CHECKSTYLE
+                // an uncaught exception terminates a krun process with exit code 1
+                e.printStackTrace(errStream);
+                return 1;
+            } finally {
+                outStream.flush();
+                errStream.flush();
+                systemIn.init(null);
+                systemOut.init(null);
+                systemErr.init(null);
+                stopped.countDown();
+            }
+        });
+        try {
+            int returnCode = result.get(timeout, TimeUnit.MILLISECONDS);
+            return new ProcOutput(toString(out), toString(err), returnCode, false);
+        } catch (TimeoutException e) {
+            // a task cancelled before it started never runs
+            if (result.cancel(true) && started.get() && !stopped.await(stopTimeout, TimeUnit.MILLISECONDS)) {
+                enabled = false;
+            }
+            return new ProcOutput(toString(out), toString(err), -1, true);
+        } catch (ExecutionException e) {
+            return new ProcOutput(toString(out), toString(err) + e.getCause(), 1, false);
+        }
+    }
+
+    private static String toString(ByteArrayOutputStream stream) {
+        try {
+            return stream.toString(ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -172,90 +172,116 @@ public class Proc<T> implements Runnable {
             warningsArgs = Arrays.copyOf(args, args.length + 1);
             warningsArgs[args.length] = "--warnings-to-errors";
         }
+        if (options.dry) {
+            if (options.getDebug()) {
+                printDryRun(withDebug(warningsArgs));
+            }
+            if (!options.getDebug() || expectedErr != null) {
+                printDryRun(warningsArgs);
+            }
+            return;
+        }
+        ProcOutput output;
+        ProcOutput debugOutput = null;
         if (options.getDebug()) {
-            String[] debugArgs = Arrays.copyOf(warningsArgs, warningsArgs.length + 1);
-            debugArgs[warningsArgs.length] = "--debug";
+            String[] debugArgs = withDebug(warningsArgs);
             if (expectedErr != null) {
                 // We want to use --debug and compare error outputs too. In this case we need to
                 // make two runs:
                 // 1) We pass --debug and collect output with stack trace.
                 // 2) We don't pass --debug and use output for comparison.
-                ProcOutput debugOutput = runProc(debugArgs);
-                procOutput = runProc(warningsArgs);
-                if (!options.dry) {
-                    handlePgmResult(procOutput, debugOutput);
-                }
+                debugOutput = runProc(debugArgs);
+                output = debugOutput == null ? null : runProc(warningsArgs);
             } else {
                 // Make one run with --debug
-                procOutput = runProc(debugArgs);
-                if (!options.dry) {
-                    handlePgmResult(procOutput, null);
-                }
+                output = runProc(debugArgs);
             }
         } else {
-            procOutput = runProc(warningsArgs);
-            if (!options.dry) {
-                handlePgmResult(procOutput, null);
-            }
+            output = runProc(warningsArgs);
+        }
+        if (output != null) {
+            procOutput = output;
+            handlePgmResult(output, debugOutput);
         }
     }
 
+    private static String[] withDebug(String[] args) {
+        String[] debugArgs = Arrays.copyOf(args, args.length + 1);
+        debugArgs[args.length] = "--debug";
+        return debugArgs;
+    }
+
+    private void printDryRun(String[] args) {
+        StringBuilder dryStr = new StringBuilder();
+        dryStr.append(toLogString(args));
+        if (options.getUpdateOut() && outputFile != null)
+            dryStr.append(" >").append(outputFile);
+        else if (options.getGenerateOut() && newOutputFile != null)
+            dryStr.append(" >").append(newOutputFile);
+        if (inputFile != null)
+            dryStr.append(" <").append(inputFile);
+        System.out.println(dryStr.toString());
+    }
+
+    /**
+     * @return the output of the process, or null if it could not be run, in which case the
+     *         reason of failure is reported
+     */
     private ProcOutput runProc(String[] args) {
-        if (options.dry) {
-            StringBuilder dryStr = new StringBuilder();
-            dryStr.append(toLogString(args));
-            if (options.getUpdateOut() && outputFile != null)
-                dryStr.append(" >").append(outputFile);
-            else if (options.getGenerateOut() && newOutputFile != null)
-                dryStr.append(" >").append(newOutputFile);
-            if (inputFile != null)
-                dryStr.append(" <").append(inputFile);
-            System.out.println(dryStr.toString());
+        InProcessLauncher launcher = options.getInProcessLauncher();
+        try {
+            printRunningMsg(toLogString(args));
+            long startTime = System.currentTimeMillis();
+            ProcOutput output;
+            if (launcher != null && launcher.isEnabled() && args[0].equals(ExecNames.getKrun())) {
+                output = launcher.launch("-krun",
+                        Arrays.copyOfRange(args, 1, args.length), workingDir, env, procInput, options.getTimeout());
+            } else {
+                output = runProcess(args);
+            }
+            timeDelta += System.currentTimeMillis() - startTime;
+            return output;
+        } catch (IOException | InterruptedException e) {
+            kem.registerInternalWarning(e.getMessage(), e);
+            reportErr("program failed with exception: " + e.getMessage());
             return null;
-        } else {
-            ProcessBuilder pb = new ProcessBuilder(args).directory(workingDir);
-            pb.environment().clear();
-            pb.environment().putAll(env);
-            pb.environment().put("kompile", ExecNames.getKompile());
-            pb.environment().put("krun", ExecNames.getKrun());
-            pb.environment().put("kast", ExecNames.getKast());
-
-            try {
-                printRunningMsg(toLogString(args));
-                long startTime = System.currentTimeMillis();
-                Process proc = pb.start();
-
-                // I'm using a different naming convention because this is more intuitive for me
-                InputStream errorStream = proc.getErrorStream(); // program's error stream
-                InputStream outStream = proc.getInputStream(); // program's output stream
-                OutputStream inStream = proc.getOutputStream(); // program's input stream
-
-                // pass input to process
-                IOUtils.write(procInput, inStream);
-                inStream.close();
-
-                // asynchronously read outputs
-                final ExecutorService service = Executors.newFixedThreadPool(2);
-                final Future<String> outputGobbler = service.submit(new StreamGobbler(outStream));
-                final Future<String> errorGobbler = service.submit(new StreamGobbler(errorStream));
-
-                ProcStatus procStatus = wait(proc);
-                timeDelta += System.currentTimeMillis() - startTime;
+        }
+    }
 
-                try {
-                    return new ProcOutput(outputGobbler.get(), errorGobbler.get(),
-                            procStatus.returnCode, procStatus.timeout);
-                } catch (ExecutionException e) {
-                    // program was killed before producing output,
-                    // set pgmOut and pgmErr null manually, in case one of the outputs is produced
-                    // but other is not (not sure if that's possible, just to make sure..)
-                    return new ProcOutput(null, null, procStatus.returnCode, procStatus.timeout);
-                }
-            } catch (IOException | InterruptedException e) {
-                kem.registerInternalWarning(e.getMessage(), e);
-                reportErr("program failed with exception: " + e.getMessage());
-            }
-            return null; // unreachable
+    private ProcOutput runProcess(String[] args) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(args).directory(workingDir);
+        pb.environment().clear();
+        pb.environment().putAll(env);
+        pb.environment().put("kompile", ExecNames.getKompile());
+        pb.environment().put("krun", ExecNames.getKrun());
+        pb.environment().put("kast", ExecNames.getKast());
+
+        Process proc = pb.start();
+
+        // I'm using a different naming convention because this is more intuitive for me
+        InputStream errorStream = proc.getErrorStream(); // program's error stream
+        InputStream outStream = proc.getInputStream(); // program's output stream
+        OutputStream inStream = proc.getOutputStream(); // program's input stream
+
+        // pass input to process
+        IOUtils.write(procInput, inStream);
+        inStream.close();
+
+        // asynchronously read outputs
+        final ExecutorService service = Executors.newFixedThreadPool(2);
+        final Future<String> outputGobbler = service.submit(new StreamGobbler(outStream));
+        final Future<String> errorGobbler = service.submit(new StreamGobbler(errorStream));
+
+        ProcStatus procStatus = wait(proc);
+
+        try {
+            return new ProcOutput(outputGobbler.get(), errorGobbler.get(),
+                    procStatus.returnCode, procStatus.timeout);
+        } catch (ExecutionException e) {
+            // program was killed before producing output,
+            // set pgmOut and pgmErr null manually, in case one of the outputs is produced
+            // but other is not (not sure if that's possible, just to make sure..)
+            return new ProcOutput(null, null, procStatus.returnCode, procStatus.timeout);
         }
     }
 
@@ -27,8 +27,11 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -112,80 +115,127 @@ public class ParserUtils {
         return kilToKore.apply(def).getModule(mainModule).get();
     }
 
+    /**
+     * Outer-parses {@code definitionText} and every file it transitively requires, and returns their modules in
+     * depth-first order of the requires. Each file is loaded at most once, even if it is required several times.
+     * <p>
+     * The files required by a file are outer-parsed in parallel as soon as the requiring file is parsed, while
+     * the files themselves are traversed in order on the calling thread, so the result does not depend on the
+     * order in which the parses complete. The parsed items are owned by the caller: nothing is shared between
+     * invocations, since later stages of the front end modify the KIL modules they are given.
+     */
     public List<org.kframework.kil.Module> slurp(
             String definitionText,
             Source source,
             List<File> lookupDirectories) {
-        return slurp(definitionText, source, lookupDirectories, new ArrayDeque<>());
+        File sourceFile = canonicalFile(new File(source.source()));
+        Deque<File> parents = new ArrayDeque<>();
+        parents.push(sourceFile);
+        Set<File> loaded = new HashSet<>();
+        loaded.add(sourceFile);
+        return slurp(outerParse(source, definitionText), source, lookupDirectories, parents, loaded, new HashMap<>());
     }
 
+    /**
+     * @param parents the canonical files on the path from the root file to the file being slurped, innermost first
+     * @param loaded  the canonical files slurped so far
+     * @param parses  the pending outer parses of the required files, keyed by canonical file
+     */
     private List<org.kframework.kil.Module> slurp(
-            String definitionText,
+            List<DefinitionItem> items,
             Source source,
             List<File> lookupDirectories,
-            Deque<File> parents) {
-        List<DefinitionItem> items = Outer.parse(source, definitionText, null);
+            Deque<File> parents,
+            Set<File> loaded,
+            Map<File, CompletableFuture<List<DefinitionItem>>> parses) {
         if (options.verbose) {
             System.out.println("Importing: " + source);
         }
-        List<org.kframework.kil.Module> results = new ArrayList<>();
 
+        Map<Require, File> requiredFiles = new HashMap<>();
+        for (DefinitionItem di : items) {
+            if (di instanceof Require) {
+                File definitionFile = resolveRequire((Require) di, lookupDirectories);
+                requiredFiles.put((Require) di, definitionFile);
+                File canonicalFile = canonicalFile(definitionFile);
+                if (!loaded.contains(canonicalFile) && !parses.containsKey(canonicalFile)) {
+                    parses.put(canonicalFile, CompletableFuture.supplyAsync(() -> outerParse(
+                            Source.apply(definitionFile.getAbsolutePath()), loadDefinitionText(definitionFile))));
+                }
+            }
+        }
+
+        List<org.kframework.kil.Module> results = new ArrayList<>();
         for (DefinitionItem di : items) {
             if (di instanceof org.kframework.kil.Module) {
                 results.add((org.kframework.kil.Module) di);
             } else if (di instanceof Require) {
-                // resolve location of the new file
-
-                String definitionFileName = ((Require) di).getValue();
-
-                Optional<File> definitionFile = lookupDirectories.stream()
-                        .map(lookupDirectory -> {
-                            if (new File(definitionFileName).isAbsolute()) {
-                                return new File(definitionFileName);
-                            } else {
-                                return new File(lookupDirectory, definitionFileName);
-                            }
-                        })
-                        .filter(file -> file.exists()).findFirst();
+                File definitionFile = requiredFiles.get(di);
+                File canonicalFile = canonicalFile(definitionFile);
+                if (parents.contains(canonicalFile)) {
+                    List<String> dependencyChain = new ArrayList<>();
+                    parents.descendingIterator().forEachRemaining(parent -> dependencyChain.add(parent.getName()));
+                    dependencyChain.add(canonicalFile.getName());
+                    throw KExceptionManager.criticalError("Dependency cycle detected: "
+                            + String.join(" -> ", dependencyChain), di);
+                }
+                if (!loaded.add(canonicalFile)) {
+                    continue;
+                }
 
                 ArrayList<File> allLookupDirectories = new ArrayList<>(lookupDirectories);
-                allLookupDirectories.add(0, definitionFile.get().getParentFile());
-
-                if (definitionFile.isPresent()) {
-                    // Look for dependency cycle
-                    if (parents.stream().
-                            anyMatch(parent -> {
-                                try {
-                                    File sourceFile = new File(source.source());
-                                    return parent.getCanonicalFile().equals(sourceFile.getCanonicalFile());
-                                } catch (IOException e) {
-                                    // Catch exceptions from getCanonicalFile
-                                    return false;
-                                }
-                            })) {
-                        String dependencyChain = (new File(source.source())).getName() + " -> "
-                                + parents.stream().map(File::getName).collect(Collectors.joining(" -> "));
-                        throw KExceptionManager.criticalError("Dependency cycle detected: " + dependencyChain, di);
-                    } else {
-                        parents.push(new File(source.source()));
-                    }
-
-                    results.addAll(slurp(loadDefinitionText(definitionFile.get()),
-                            Source.apply(definitionFile.get().getAbsolutePath()),
-                            allLookupDirectories,
-                            parents));
+                allLookupDirectories.add(0, definitionFile.getParentFile());
+                parents.push(canonicalFile);
+                results.addAll(slurp(join(parses.remove(canonicalFile)),
+                        Source.apply(definitionFile.getAbsolutePath()),
+                        allLookupDirectories,
+                        parents, loaded, parses));
+                parents.pop();
+            }
+        }
+        return results;
+    }
+
+    private static File resolveRequire(Require require, List<File> lookupDirectories) {
+        String definitionFileName = require.getValue();
+        if (new File(definitionFileName).isAbsolute()) {
+            File definitionFile = new File(definitionFileName);
+            if (definitionFile.exists()) {
+                return definitionFile;
+            }
+        } else {
+            for (File lookupDirectory : lookupDirectories) {
+                File definitionFile = new File(lookupDirectory, definitionFileName);
+                if (definitionFile.exists()) {
+                    return definitionFile;
                 }
-                else
-                    throw KExceptionManager.criticalError("Could not find file: " +
-                            definitionFileName + "\nLookup directories:" + allLookupDirectories, di);
             }
         }
+        throw KExceptionManager.criticalError("Could not find file: " +
+                definitionFileName + "\nLookup directories:" + lookupDirectories, require);
+    }
+
+    private static File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
 
-        if (!parents.isEmpty()) {
-            File p = parents.pop();
+    private static List<DefinitionItem> join(CompletableFuture<List<DefinitionItem>> parse) {
+        try {
+            return parse.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
+    }
 
-        return results;
+    private static List<DefinitionItem> outerParse(Source source, String definitionText) {
+        return Outer.parse(source, definitionText, null);
     }
 
     private String loadDefinitionText(File definitionFile) {
@@ -0,0 +1,96 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.debugger;
+
+import org.junit.Test;
+import org.kframework.kore.K;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+import static org.kframework.kore.KORE.*;
+
+public class CheckpointHistoryTest {
+
+    /* the configurations differ in one token only, so each one is stored as a delta, except for the keyframes */
+    private K configuration(int i) {
+        return KApply(KLabel("<T>"),
+                KApply(KLabel("<k>"), KSequence(KToken(Integer.toString(i), Sort("Int")), KApply(KLabel("foo")))),
+                KApply(KLabel("<state>"), KApply(KLabel("_|->_"), KToken("x", Sort("Id")), KToken("-1", Sort("Int")))));
+    }
+
+    private CheckpointHistory history(CheckpointStore store, int size) {
+        CheckpointHistory history = CheckpointHistory.of(0, configuration(0), store);
+        for (int i = 1; i < size; i++) {
+            history = history.add(10 * i, configuration(i));
+        }
+        return history;
+    }
+
+    @Test
+    public void testRestore() {
+        int size = 3 * CheckpointHistory.KEYFRAME_INTERVAL;
+        CheckpointHistory history = history(new CheckpointStore(), size);
+        assertEquals(0, history.firstStepNum());
+        assertEquals(10 * (size - 1), history.stepNum());
+        for (int i = 0; i < size; i++) {
+            CheckpointHistory floor = history.floor(10 * i + 5);
+            assertEquals(10 * i, floor.stepNum());
+            assertEquals(configuration(i), floor.k());
+        }
+        assertNull(history.floor(-1));
+    }
+
+    @Test
+    public void testSharedHistory() {
+        CheckpointHistory history = history(new CheckpointStore(), 5);
+        CheckpointHistory branch1 = history.add(100, configuration(100));
+        CheckpointHistory branch2 = history.add(100, configuration(200));
+        assertEquals(configuration(100), branch1.k());
+        assertEquals(configuration(200), branch2.k());
+        assertSame(branch1.floor(40), branch2.floor(40));
+    }
+
+    /* drops the cached configurations, and checks each checkpoint is restored from the store */
+    private void assertRestores(CheckpointHistory history, int size) {
+        history.dropCaches();
+        for (int i = 0; i < size; i++) {
+            assertEquals(configuration(i), history.floor(10 * i).k());
+        }
+    }
+
+    @Test
+    public void testRestoreThroughDeltas() {
+        int size = 2 * CheckpointHistory.KEYFRAME_INTERVAL + 3;
+        CheckpointHistory history = history(new CheckpointStore(), size);
+        assertEquals(0, history.floor(0).deltaDepth());
+        assertEquals(CheckpointHistory.KEYFRAME_INTERVAL - 1,
+                history.floor(10 * (CheckpointHistory.KEYFRAME_INTERVAL - 1)).deltaDepth());
+        assertEquals(0, history.floor(10 * CheckpointHistory.KEYFRAME_INTERVAL).deltaDepth());
+        assertEquals(2, history.deltaDepth());
+        assertRestores(history, size);
+
+        /* the next checkpoint is compared with the configuration restored from the store */
+        history = history.add(10 * size, configuration(size));
+        assertEquals(3, history.deltaDepth());
+        assertRestores(history, size + 1);
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        File file = File.createTempFile("checkpoints", null);
+        file.deleteOnExit();
+        int size = 2 * CheckpointHistory.KEYFRAME_INTERVAL;
+        try (CheckpointStore store = new CheckpointStore(file)) {
+            CheckpointHistory history = history(store, size);
+            assertTrue(file.length() > 0);
+            assertTrue(history.deltaDepth() > 0);
+            assertRestores(history, size);
+
+            /* the file is opened again after the store is closed */
+            store.close();
+            assertRestores(history, size);
+            history = history.add(10 * size, configuration(size));
+            assertRestores(history, size + 1);
+        }
+    }
+}
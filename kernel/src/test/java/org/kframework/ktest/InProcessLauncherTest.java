@@ -0,0 +1,107 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.ktest;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InProcessLauncherTest {
+
+    private static final File WORKING_DIR = new File(".");
+
+    private ProcOutput launch(InProcessLauncher launcher, String input, int timeout) throws InterruptedException {
+        return launcher.launch("-krun", new String[0], WORKING_DIR, Collections.emptyMap(), input, timeout);
+    }
+
+    @Test
+    public void testOutput() throws InterruptedException {
+        InProcessLauncher launcher = new InProcessLauncher((tool, args, workingDir, env) -> {
+            try {
+                System.out.print(tool + " " + IOUtils.toString(System.in));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            System.err.print("err");
+            return 3;
+        }, 1);
+        ProcOutput output = launch(launcher, "input", 10000);
+        assertEquals("-krun input", output.stdout);
+        assertEquals("err", output.stderr);
+        assertEquals(3, output.returnCode);
+        assertFalse(output.timeout);
+    }
+
+    @Test
+    public void testInterruptedTimeout() throws InterruptedException {
+        InProcessLauncher launcher = new InProcessLauncher((tool, args, workingDir, env) -> {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                // stop like a tool which checks for interruption
+            }
+            return 0;
+        }, 1, 10000);
+        ProcOutput output = launch(launcher, null, 50);
+        assertTrue(output.timeout);
+        assertTrue(launcher.isEnabled());
+    }
+
+    @Test
+    public void testStuckTimeout() throws InterruptedException {
+        AtomicInteger release = new AtomicInteger();
+        InProcessLauncher launcher = new InProcessLauncher((tool, args, workingDir, env) -> {
+            // ignores interruption, like the rewriter
+            while (release.get() == 0) {
+                Thread.yield();
+            }
+            return 0;
+        }, 1, 50);
+        try {
+            ProcOutput output = launch(launcher, null, 50);
+            assertTrue(output.timeout);
+            assertFalse(launcher.isEnabled());
+        } finally {
+            release.set(1);
+        }
+    }
+
+    @Test
+    public void testBoundedThreads() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        InProcessLauncher launcher = new InProcessLauncher((tool, args, workingDir, env) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            running.decrementAndGet();
+            return 0;
+        }, 2);
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<ProcOutput>> outputs = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                outputs.add(callers.submit(() -> launch(launcher, null, 10000)));
+            }
+            for (Future<ProcOutput> output : outputs) {
+                assertEquals(0, output.get().returnCode);
+            }
+        } finally {
+            callers.shutdown();
+        }
+        assertTrue(maxRunning.get() <= 2);
+    }
+}
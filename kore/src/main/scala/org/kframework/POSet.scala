@@ -3,6 +3,7 @@ package org.kframework
 
 import java.util
 import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
 import collection._
 import collection.JavaConverters._
 
@@ -17,21 +18,84 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
   private val directRelationsMap: Map[T, Set[T]] = directRelations groupBy { _._1 } mapValues { _ map { _._2 } toSet } map identity
 
   /**
-   * Internal private method. Computes the transitive closer of the initial relations.
-   * It also checks for cycles during construction and throws an exception if it finds any.
+   * All the elements in some relation, indexed by their position in this sequence.
+   */
+  private val elements: IndexedSeq[T] = (directRelations.toSeq flatMap { case (x, y) => Seq(x, y) }).distinct.toIndexedSeq
+
+  private val indexOf: Map[T, Int] = elements.zipWithIndex.toMap
+
+  /**
+   * `successors(indexOf(x)).get(indexOf(y))` iff x < y.
    *
-   * The implementation is simple. It links each element to the successors of its successors.
-   * TODO: there may be a more efficient algorithm (low priority)
-   */
-  private def transitiveClosure(relations: Map[T, Set[T]]): Map[T, Set[T]] = {
-    val newRelations = relations map {
-      case (start, succ) =>
-        val newSucc = succ flatMap { relations.getOrElse(_, Set()) }
-        if (newSucc.contains(start))
-          constructAndThrowCycleException(start, start, Seq())
-        (start, succ | newSucc)
+   * The transitive closure is computed by a depth-first traversal which closes each element after all its
+   * successors, so the successors of an element are the union of its direct successors and of their (already
+   * closed) successors. Reaching an element still on the traversal stack means the relation has a cycle.
+   */
+  private val successors: Array[util.BitSet] = transitiveClosure()
+
+  /**
+   * `predecessors(indexOf(x)).get(indexOf(y))` iff y < x.
+   */
+  private val predecessors: Array[util.BitSet] = {
+    val result = Array.fill(elements.size)(new util.BitSet(elements.size))
+    for (i <- elements.indices) {
+      val succ = successors(i)
+      var j = succ.nextSetBit(0)
+      while (j >= 0) {
+        result(j).set(i)
+        j = succ.nextSetBit(j + 1)
+      }
     }
-    if (relations != newRelations) transitiveClosure(newRelations) else relations
+    result
+  }
+
+  private def transitiveClosure(): Array[util.BitSet] = {
+    val closure = new Array[util.BitSet](elements.size)
+    val onStack = new Array[Boolean](elements.size)
+
+    def visit(i: Int): Unit = {
+      onStack(i) = true
+      val succ = new util.BitSet(elements.size)
+      for (y <- directRelationsMap.getOrElse(elements(i), Set())) {
+        val j = indexOf(y)
+        if (onStack(j))
+          throwCycleException()
+        if (closure(j) == null)
+          visit(j)
+        succ.set(j)
+        succ.or(closure(j))
+      }
+      onStack(i) = false
+      closure(i) = succ
+    }
+
+    for (i <- elements.indices if closure(i) == null)
+      visit(i)
+    closure
+  }
+
+  /**
+   * Finds the first element on a cycle and throws the exception describing that cycle.
+   */
+  private def throwCycleException(): Nothing = {
+    def reaches(from: T, to: T): Boolean = {
+      val visited = mutable.Set[T]()
+      var stack = List(from)
+      while (stack.nonEmpty) {
+        val current = stack.head
+        stack = stack.tail
+        if (current == to)
+          return true
+        if (visited.add(current))
+          stack = directRelationsMap.getOrElse(current, Set()).toList ++ stack
+      }
+      false
+    }
+
+    directRelationsMap.keys find { x => directRelationsMap(x) exists { reaches(_, x) } } foreach { x =>
+      constructAndThrowCycleException(x, x, Seq(), mutable.Set())
+    }
+    throw new AssertionError("Found a cycle in the direct relations but could not construct it.")
   }
 
   /**
@@ -40,24 +104,40 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
    * @param start (or tail) element to look for when constructing the cycle
    * @param current element
    * @param path so far
+   * @param visited elements already explored
    */
-  private def constructAndThrowCycleException(start: T, current: T, path: Seq[T]) {
+  private def constructAndThrowCycleException(start: T, current: T, path: Seq[T], visited: mutable.Set[T]) {
     val currentPath = path :+ current
     val succs = directRelationsMap.getOrElse(current, Set())
     if (succs.contains(start))
       throw new CircularityException(currentPath :+ start)
 
-    succs foreach { constructAndThrowCycleException(start, _, currentPath) }
+    succs foreach { s => if (visited.add(s)) constructAndThrowCycleException(start, s, currentPath, visited) }
+  }
+
+  private def toSet(bits: util.BitSet): Set[T] = {
+    val result = Set.newBuilder[T]
+    var i = bits.nextSetBit(0)
+    while (i >= 0) {
+      result += elements(i)
+      i = bits.nextSetBit(i + 1)
+    }
+    result.result()
   }
 
   /**
    * All the relations of the POSet, including the transitive ones.
    */
-  val relations = transitiveClosure(directRelationsMap)
+  lazy val relations: Map[T, Set[T]] =
+    (elements.indices collect { case i if !successors(i).isEmpty => (elements(i), toSet(successors(i))) }).toMap
 
-  def <(x: T, y: T): Boolean = relations.get(x).exists(_.contains(y))
+  def <(x: T, y: T): Boolean = {
+    val i = indexOf.getOrElse(x, -1)
+    val j = indexOf.getOrElse(y, -1)
+    i >= 0 && j >= 0 && successors(i).get(j)
+  }
   def <=(x: T, y: T): Boolean = <(x, y) || x == y
-  def >(x: T, y: T): Boolean = relations.get(y).exists(_.contains(x))
+  def >(x: T, y: T): Boolean = <(y, x)
   def >=(x: T, y: T): Boolean = >(x, y) || x == y
   def ~(x: T, y: T) = <(x, y) || <(y, x)
 
@@ -88,24 +168,95 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
   }
 
   lazy val lub: Option[T] = {
-    val candidates = relations.values reduce { (a, b) => a & b }
-
-    if (candidates.size == 0)
-      None
-    else if (candidates.size == 1)
-      Some(candidates.head)
-    else {
-      val allPairs = for (a <- candidates; b <- candidates) yield { (a, b) }
-      if (allPairs exists { case (a, b) => ! ~(a, b) })
-        None
-      else
-        Some(
-          candidates.min(new Ordering[T]() {
-            def compare(x: T, y: T) = if (x < y) -1 else if (x > y) 1 else 0
-          }))
+    val candidates = new util.BitSet(elements.size)
+    candidates.set(0, elements.size)
+    successors filterNot { _.isEmpty } foreach { candidates.and(_) }
+    least(candidates, successors)
+  }
+
+  /**
+   * The element of `candidates` which is related by `relation` to all the other candidates, if any.
+   */
+  private def least(candidates: util.BitSet, relation: Array[util.BitSet]): Option[T] = {
+    var i = candidates.nextSetBit(0)
+    while (i >= 0) {
+      val others = candidates.clone().asInstanceOf[util.BitSet]
+      others.andNot(relation(i))
+      others.clear(i)
+      if (others.isEmpty)
+        return Some(elements(i))
+      i = candidates.nextSetBit(i + 1)
     }
+    None
   }
 
+  /**
+   * The indices of the elements related by `relation` or equal to each of `xs`. If some element of `xs` is in no
+   * relation, the bounds are computed directly: that element if it is the only one, and none otherwise.
+   */
+  private def bounds(xs: Iterable[T], relation: Array[util.BitSet]): Either[Set[T], util.BitSet] = {
+    val result = new util.BitSet(elements.size)
+    result.set(0, elements.size)
+    val it = xs.iterator
+    while (it.hasNext) {
+      val x = it.next()
+      val i = indexOf.getOrElse(x, -1)
+      if (i < 0)
+        return Left(if (xs forall { _ == x }) Set(x) else Set())
+      val boundsOfX = relation(i).clone().asInstanceOf[util.BitSet]
+      boundsOfX.set(i)
+      result.and(boundsOfX)
+    }
+    Right(result)
+  }
+
+  @transient private lazy val upperBoundsCache = new ConcurrentHashMap[Set[T], Set[T]]()
+  @transient private lazy val lowerBoundsCache = new ConcurrentHashMap[Set[T], Set[T]]()
+  @transient private lazy val maximalCache = new ConcurrentHashMap[Set[T], Set[T]]()
+  @transient private lazy val minimalCache = new ConcurrentHashMap[Set[T], Set[T]]()
+  @transient private lazy val lubCache = new ConcurrentHashMap[Set[T], Option[T]]()
+  @transient private lazy val glbCache = new ConcurrentHashMap[Set[T], Option[T]]()
+
+  /**
+   * The elements greater than or equal to all of `xs`.
+   */
+  def upperBounds(xs: Iterable[T]): Set[T] =
+    upperBoundsCache.computeIfAbsent(xs.toSet, (s: Set[T]) => bounds(s, successors) match {
+      case Left(bs) => bs
+      case Right(bs) => toSet(bs)
+    })
+
+  def upperBounds(xs: util.Collection[T]): util.Set[T] = upperBounds(xs.asScala).asJava
+
+  /**
+   * The elements less than or equal to all of `xs`.
+   */
+  def lowerBounds(xs: Iterable[T]): Set[T] =
+    lowerBoundsCache.computeIfAbsent(xs.toSet, (s: Set[T]) => bounds(s, predecessors) match {
+      case Left(bs) => bs
+      case Right(bs) => toSet(bs)
+    })
+
+  def lowerBounds(xs: util.Collection[T]): util.Set[T] = lowerBounds(xs.asScala).asJava
+
+  /**
+   * The least upper bound of `xs`, if any.
+   */
+  def lubOf(xs: Iterable[T]): Option[T] =
+    lubCache.computeIfAbsent(xs.toSet, (s: Set[T]) => bounds(s, successors) match {
+      case Left(bs) => bs.headOption
+      case Right(bs) => least(bs, successors)
+    })
+
+  /**
+   * The greatest lower bound of `xs`, if any.
+   */
+  def glbOf(xs: Iterable[T]): Option[T] =
+    glbCache.computeIfAbsent(xs.toSet, (s: Set[T]) => bounds(s, predecessors) match {
+      case Left(bs) => bs.headOption
+      case Right(bs) => least(bs, predecessors)
+    })
+
   lazy val asOrdering: Ordering[T] = (x: T, y: T) => if (lessThanEq(x, y)) -1 else if (lessThanEq(y, x)) 1 else 0
 
   /**
@@ -113,7 +264,7 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
     * less than any other item.
     */
   def maximal(sorts: Iterable[T]): Set[T] =
-    sorts.filter(s1 => !sorts.exists(s2 => lessThan(s1, s2))).toSet
+    maximalCache.computeIfAbsent(sorts.toSet, (s: Set[T]) => extremal(s, successors))
 
   def maximal(sorts: util.Collection[T]): util.Set[T] = {
     maximal(sorts.asScala).asJava
@@ -124,10 +275,19 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
     * greater than any other item.
     */
   def minimal(sorts: Iterable[T]): Set[T] =
-    sorts.filter(s1 => !sorts.exists(s2 => >(s1, s2))).toSet
+    minimalCache.computeIfAbsent(sorts.toSet, (s: Set[T]) => extremal(s, predecessors))
 
   def minimal(sorts: util.Collection[T]): util.Set[T] = {
-    maximal(sorts.asScala).asJava
+    minimal(sorts.asScala).asJava
+  }
+
+  /**
+   * The elements of `sorts` not related by `relation` to any element of `sorts`.
+   */
+  private def extremal(sorts: Set[T], relation: Array[util.BitSet]): Set[T] = {
+    val indices = new util.BitSet(elements.size)
+    sorts foreach { s => indexOf.get(s) foreach { indices.set(_) } }
+    sorts filter { s => indexOf.get(s) forall { i => !relation(i).intersects(indices) } }
   }
 
   override def toString() = {
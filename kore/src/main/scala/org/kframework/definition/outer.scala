@@ -40,17 +40,17 @@ case class Definition(
                        att: Att = Att())
   extends DefinitionToString with OuterKORE {
 
-  private def allModules(m: Module): Set[Module] = m.imports | (m.imports flatMap allModules) + m
+  val modules = entryModules flatMap { m => m.importedModules + m }
 
-  val modules = entryModules flatMap allModules
-
-  for (m1 <- modules; m2 <- modules if m1.name == m2.name && m1 != m2) {
-    throw new AssertionError("In definition, found different modules with the same name: " + m1.name)
+  Module.findNameClash(modules) foreach { name =>
+    throw new AssertionError("In definition, found different modules with the same name: " + name)
   }
 
   assert(modules.contains(mainModule))
 
-  def getModule(name: String): Option[Module] = modules find { case m: Module => m.name == name; case _ => false }
+  @transient private lazy val modulesByName: Map[String, Module] = modules.map(m => m.name -> m).toMap
+
+  def getModule(name: String): Option[Module] = modulesByName.get(name)
 
   override def hashCode = mainModule.hashCode
 
@@ -93,6 +93,24 @@ object Module {
   def apply(name: String, unresolvedLocalSentences: Set[Sentence]): Module = {
     new Module(name, Set(), unresolvedLocalSentences, Att())
   }
+
+  /**
+    * The name of two different modules in `modules` with the same name, if any.
+    */
+  def findNameClash(modules: Set[Module]): Option[String] =
+    modules.groupBy(_.name) collectFirst { case (name, ms) if ms.size > 1 => name }
+
+  /**
+    * The union of `sets`, built by adding the smaller sets to the largest one. Immutable sets share structure
+    * with the sets they are built from, so the sentences of the largest import are not copied.
+    */
+  private def unionIntoLargest[T](sets: Seq[Set[T]]): Set[T] =
+    if (sets.isEmpty)
+      Set()
+    else {
+      val sorted = sets.sortBy(-_.size)
+      sorted.tail.foldLeft(sorted.head)(_ ++ _)
+    }
 }
 
 case class Module(val name: String, val imports: Set[Module], unresolvedLocalSentences: Set[Sentence], @(Nonnull@param) val att: Att = Att())
@@ -175,21 +193,19 @@ case class Module(val name: String, val imports: Set[Module], unresolvedLocalSen
 
   val afterResolvingSorts = localSyntaxSentences ++ localSemanticSentences
 
-  private val importedSentences = imports flatMap {_.sentences}
+  private val importedSentences: Set[Sentence] = Module.unionIntoLargest(imports.toSeq map {_.sentences})
 
   val listProductions = computeFromSentences(afterResolvingSorts | importedSentences).diff(importedSentences)
 
   val localSentences = afterResolvingSorts | listProductions
 
-  val sentences: Set[Sentence] = localSentences | importedSentences
+  val sentences: Set[Sentence] = importedSentences ++ localSentences
 
-  /** All the imported modules, calculated recursively. */
-  lazy val importedModules: Set[Module] = imports | (imports flatMap {
-    _.importedModules
-  })
+  /** All the imported modules, calculated recursively from the (memoized) imported modules of each import. */
+  lazy val importedModules: Set[Module] = Module.unionIntoLargest((imports.toSeq map {_.importedModules}) :+ imports)
 
-  for (m1 <- importedModules; m2 <- importedModules if m1.name == m2.name && m1 != m2) {
-    throw new AssertionError("While creating module " + name + " found different modules with the same name: " + m1.name)
+  Module.findNameClash(importedModules) foreach { m =>
+    throw new AssertionError("While creating module " + name + " found different modules with the same name: " + m)
   }
 
   val productions: Set[Production] = sentences collect { case p: Production => p }
@@ -353,8 +369,12 @@ case class Module(val name: String, val imports: Set[Module], unresolvedLocalSen
 
   override lazy val hashCode: Int = name.hashCode
 
+  @transient private lazy val sentencesHashCode: Int = sentences.hashCode
+
   override def equals(that: Any) = that match {
-    case m: Module => m.name == name && m.sentences == sentences
+    case m: Module => (m eq this) ||
+      m.name == name && m.sentencesHashCode == sentencesHashCode && m.sentences == sentences
+    case _ => false
   }
 }
 
@@ -41,11 +41,20 @@ object ADT {
 
   class KSequence private(val elements: List[K], val att: Att = Att()) extends kore.KSequence {
     val items: java.util.List[K] = elements.asJava
-    val size: Int = elements.size
+    lazy val size: Int = elements.size
     val asIterable: java.lang.Iterable[K] = new org.kframework.List(elements)
-    lazy val kApply: kore.KApply = items.asScala reduceRightOption { (a, b) => KLabelLookup(KLabels.KSEQ)(a, b) } getOrElse {KLabelLookup(KLabels.DOTK)()} match {
-      case k: kore.KApply => k
-      case x => KLabelLookup(KLabels.KSEQ)(x, KLabelLookup(KLabels.DOTK)())
+
+    /**
+      * The right-nested `~>` view of this sequence, built on first use by a single pass from the last item.
+      */
+    lazy val kApply: kore.KApply = elements.reverse match {
+      case Nil => KLabelLookup(KLabels.DOTK)()
+      case (k: kore.KApply) :: Nil => k
+      case k :: Nil => KLabelLookup(KLabels.KSEQ)(k, KLabelLookup(KLabels.DOTK)())
+      case last :: init =>
+        init.tail.foldLeft[kore.KApply](KLabelLookup(KLabels.KSEQ)(init.head, last)) {
+          (tail, k) => KLabelLookup(KLabels.KSEQ)(k, tail)
+        }
     }
 
     def iterator: Iterator[K] = elements.iterator
@@ -62,11 +71,33 @@ object ADT {
     def raw(elements: scala.collection.immutable.List[K]): KSequence =
       new KSequence(elements, emptyAtt)
 
-    def apply(elements: List[K], att: Att = Att()): KSequence =
-      new KSequence(elements.foldLeft(List[K]()) {
-        case (sum, s: KSequence) => sum ++ s.items.asScala
-        case (sum, t) => sum :+ t
-      }, att)
+    def apply(elements: List[K], att: Att = Att()): KSequence = {
+      val builder = newBuilder(att)
+      elements.foreach(builder += _)
+      builder.result()
+    }
+
+    def newBuilder(att: Att = Att()): Builder = new Builder(att)
+
+    /**
+      * Builds a flat KSequence in time linear in the total number of items: nested KSequences are spliced in
+      * as they are added instead of being concatenated to the items collected so far.
+      */
+    class Builder private[KSequence](att: Att) extends scala.collection.mutable.Builder[K, KSequence] {
+      private val buffer = scala.collection.mutable.ListBuffer[K]()
+
+      def +=(k: K): this.type = {
+        k match {
+          case s: KSequence => buffer ++= s.elements
+          case _ => buffer += k
+        }
+        this
+      }
+
+      def clear(): Unit = buffer.clear()
+
+      def result(): KSequence = new KSequence(buffer.toList, att)
+    }
   }
 
   case class KVariable(name: String, att: Att = Att()) extends kore.KVariable {
@@ -51,8 +51,11 @@ object KORE extends Constructors[K] with ScalaSugared[K] {
 
   override def KApply(klabel: KLabel, klist: KList, att: Att): KApply = ADT.KApply(klabel, klist, att)
 
-  override def KSequence[KK <: K](items: java.util.List[KK], att: Att): KSequence = ADT.KSequence(items.asScala
-    .toList, att)
+  override def KSequence[KK <: K](items: java.util.List[KK], att: Att): KSequence = {
+    val builder = ADT.KSequence.newBuilder(att)
+    items.asScala foreach { builder += _ }
+    builder.result()
+  }
 
   override def KVariable(name: String, att: Att): KVariable = ADT.KVariable(name, att)
 
@@ -28,7 +28,7 @@ object TreeNodesToKORE {
     case t: kore.KToken => t
 
     case t@KApply(KLabel("#KSequence"), items) =>
-      KSequence(downList(items).asJava, t.att)
+      downKSequence(t)
     case KApply(KLabel("#EmptyK"), items) if items.isEmpty =>
       KSequence(List.empty[K].asJava, t.att)
 
@@ -63,6 +63,21 @@ object TreeNodesToKORE {
     items map down _
   }
 
+  /**
+    * Flattens a tree of `#KSequence` nodes into a single KSequence in one pass, rather than flattening
+    * the already converted sequence of every subtree again at each level.
+    */
+  def downKSequence(t: kore.KApply): KSequence = {
+    val builder = ADT.KSequence.newBuilder(t.att)
+    def flatten(k: K): Unit = k match {
+      case KApply(KLabel("#KSequence"), items) => items foreach flatten
+      case KApply(KLabel("#EmptyK"), items) if items.isEmpty =>
+      case _ => builder += down(k)
+    }
+    t.klist.items.asScala foreach flatten
+    builder.result()
+  }
+
   def downKLabel(t: K): KLabel = t match {
     case t@KToken(s, sort) if sort == Sorts.KVariable =>
       KVariable(s.trim, t.att)
@@ -39,4 +39,10 @@ trait Rewriter {
   def executeAndMatch(k: kore.K, depth: Optional[Integer], rule: Rule): Tuple2[RewriterResult, kore.K]
 
   def prove(rules: java.util.List[Rule]): java.util.List[kore.K]
+
+  /**
+   * Releases the resources held by this rewriter, e.g. open output files. Called when the krun request
+   * using it is over.
+   */
+  def close(): Unit = {}
 }
@@ -46,4 +46,14 @@ class POSetTest {
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b4 -> b5).lub)
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b2 -> b4).lub)
   }
+
+  @Test def bounds() {
+    val p = POSet(b1 -> b3, b2 -> b3, b3 -> b4, b1 -> b5)
+    assertEquals(Set(b3, b4), p.upperBounds(Set(b1, b2)))
+    assertEquals(Some(b3), p.lubOf(Set(b1, b2)))
+    assertEquals(None, p.lubOf(Set(b4, b5)))
+    assertEquals(Some(b1), p.glbOf(Set(b4, b5)))
+    assertEquals(Set(b4, b5), p.maximal(Set(b1, b3, b4, b5)))
+    assertEquals(Set(b1, b2), p.minimal(Set(b1, b2, b3)))
+  }
 }
@@ -0,0 +1,26 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.kore
+
+import org.junit.{Assert, Test}
+import org.kframework.builtin.KLabels
+
+class KSequenceTest {
+  import org.kframework.kore.KORE._
+
+  val a = KApply(KLabel("a"))
+  val b = KApply(KLabel("b"))
+  val c = KApply(KLabel("c"))
+
+  @Test def testFlattening {
+    val nested = ADT.KSequence(List(a, ADT.KSequence(List(b, ADT.KSequence(List())), Att()), c))
+    Assert.assertEquals(List(a, b, c), nested.elements)
+    Assert.assertEquals(3, nested.size)
+  }
+
+  @Test def testKApply {
+    val seq = ADT.KSequence(List(a, b, c))
+    Assert.assertEquals(KApply(KLabel(KLabels.KSEQ), a, KApply(KLabel(KLabels.KSEQ), b, c)), seq.kApply)
+    Assert.assertEquals(a, ADT.KSequence(List(a)).kApply)
+    Assert.assertEquals(KApply(KLabel(KLabels.DOTK)), ADT.KSequence(List()).kApply)
+  }
+}
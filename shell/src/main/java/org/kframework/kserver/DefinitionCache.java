@@ -0,0 +1,94 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.kserver;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.definition.ProcessedDefinition;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.KompileMetaInfo;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * An LRU cache of kompiled definitions kept warm by the K server, so that consecutive krun invocations on the
+ * same definition do not reload it from disk.
+ * <p>
+ * Only the parts of the definition which do not depend on the options of a request are cached. The backend
+ * definition of the Java rewriter is built once per entry, by its {@link InitializeRewriter.InitializeDefinition},
+ * and each request binds it to its own {@code GlobalContext}, which holds the options, exception manager, files
+ * and metrics of the request.
+ * <p>
+ * Entries are keyed by the canonical path of the kompiled directory together with the modification time of
+ * the files krun loads from it, so re-kompiling a definition invalidates its entry.
+ */
+public class DefinitionCache {
+
+    /**
+     * The parts of a kompiled definition that krun loads.
+     */
+    public static class LoadedDefinition {
+        public final KompileMetaInfo kompileMetaInfo;
+        public final CompiledDefinition compiledDef;
+        public final ProcessedDefinition processedDefinition;
+        /** Builds and keeps the Java backend definition shared by the requests on this definition. */
+        public final InitializeRewriter.InitializeDefinition initializeDefinition;
+
+        public LoadedDefinition(KompileMetaInfo kompileMetaInfo, CompiledDefinition compiledDef, ProcessedDefinition processedDefinition) {
+            this.kompileMetaInfo = kompileMetaInfo;
+            this.compiledDef = compiledDef;
+            this.processedDefinition = processedDefinition;
+            this.initializeDefinition = new InitializeRewriter.InitializeDefinition();
+        }
+    }
+
+    private final Map<Pair<File, Long>, LoadedDefinition> cache;
+
+    public DefinitionCache(int size) {
+        this.cache = new LinkedHashMap<Pair<File, Long>, LoadedDefinition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Pair<File, Long>, LoadedDefinition> eldest) {
+                return this.size() > size;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached definition in {@code files.resolveKompiled(".")}, loading it with {@code loader} if it is
+     * not cached or has been re-kompiled since it was cached.
+     * <p>
+     * Definitions are loaded outside the lock, so concurrent requests on different definitions do not wait
+     * for each other; two concurrent requests on the same uncached definition may both load it.
+     */
+    public LoadedDefinition get(FileUtil files, Supplier<LoadedDefinition> loader) {
+        Pair<File, Long> key = key(files);
+        synchronized (cache) {
+            LoadedDefinition loaded = cache.get(key);
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+        LoadedDefinition loaded = loader.get();
+        synchronized (cache) {
+            LoadedDefinition existing = cache.putIfAbsent(key, loaded);
+            return existing != null ? existing : loaded;
+        }
+    }
+
+    private static Pair<File, Long> key(FileUtil files) {
+        File kompiledDir = files.resolveKompiled(".");
+        try {
+            kompiledDir = kompiledDir.getCanonicalFile();
+        } catch (IOException e) {
+            kompiledDir = kompiledDir.getAbsoluteFile();
+        }
+        long timestamp = Math.max(files.resolveKompiled(FileUtil.KORE_TXT).lastModified(),
+                Math.max(files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN).lastModified(),
+                        files.resolveKompiled(FileUtil.PARSED_DEFINITION_BIN).lastModified()));
+        return Pair.of(kompiledDir, timestamp);
+    }
+}
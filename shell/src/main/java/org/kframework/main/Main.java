@@ -36,9 +36,11 @@ import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
 import org.kframework.krun.modes.DebugMode.DebugExecutionMode;
 import org.kframework.krun.modes.ExecutionMode;
 import org.kframework.krun.modes.KRunExecutionMode;
+import org.kframework.kserver.DefinitionCache;
 import org.kframework.kserver.KServerFrontEnd;
 import org.kframework.kserver.KServerOptions;
 import org.kframework.ktest.CmdArgs.KTestOptions;
+import org.kframework.ktest.InProcessLauncher;
 import org.kframework.ktest.KTestFrontEnd;
 import org.kframework.minikore.implementation.MiniKore;
 import org.kframework.rewriter.Rewriter;
@@ -59,7 +61,9 @@ import java.lang.invoke.MethodHandle;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Main {
 
@@ -76,20 +80,26 @@ public class Main {
             System.exit(result);
         }
         AnsiConsole.systemUninstall();
-        invalidJarArguments();
+        System.exit(invalidJarArguments());
     }
 
-    public static void usage(GlobalOptions globalOptions, String usage, String experimentalUsage, JarInfo jarInfo) {
+    /**
+     * Prints the usage, the experimental usage or the version message if requested by {@code globalOptions}.
+     *
+     * @return true if one was printed, in which case the tool should exit with code 0 without running
+     */
+    public static boolean usage(GlobalOptions globalOptions, String usage, String experimentalUsage, JarInfo jarInfo) {
         if (globalOptions.help) {
             System.out.print(usage);
-            System.exit(0);
+            return true;
         } else if (globalOptions.helpExperimental) {
             System.out.print(experimentalUsage);
-            System.exit(0);
+            return true;
         } else if (globalOptions.version) {
             jarInfo.printVersionMessage();
-            System.exit(0);
+            return true;
         }
+        return false;
     }
 
     public static int runApplication(String toolName, String[] args, File workingDir, Map<String, String> env) {
@@ -111,7 +121,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kompileOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(kompileOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             // directories
             File tempDir = CommonModule.tempDir(workingDir, tool);
@@ -147,7 +159,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kDocOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(kDocOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             return 0;
             /* TODO: complete implementation
@@ -179,7 +193,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kDepOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(kDepOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             // directories
             File tempDir = CommonModule.tempDir(workingDir, tool);
@@ -213,7 +229,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kRunOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(kRunOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             // directories
             File tempDir = CommonModule.tempDir(workingDir, tool);
@@ -224,9 +242,20 @@ public class Main {
 
             // loading kompiled definition
             Context context = null; // DefinitionLoadingModule.context(loader, kRunOptions.configurationCreation.definitionLoading, kRunOptions.global, sw, kem, files, kRunOptions); // TODO: check if 'context.bin' exists
-            KompileMetaInfo kompileMetaInfo = DefinitionLoadingModule.kompilemetaInfo(files);
-            CompiledDefinition compiledDef = DefinitionLoadingModule.koreDefinition(loader, files);
-            ProcessedDefinition processedDefinition = DefinitionLoadingModule.miniKoreDefinition(loader, files);
+            Supplier<DefinitionCache.LoadedDefinition> loadDefinition = () -> new DefinitionCache.LoadedDefinition(
+                    DefinitionLoadingModule.kompilemetaInfo(files),
+                    DefinitionLoadingModule.koreDefinition(loader, files),
+                    DefinitionLoadingModule.miniKoreDefinition(loader, files));
+            // under the K server or in-process ktest, keep definitions loaded between krun invocations
+            DefinitionCache definitionCache = isNailgun && KServerFrontEnd.instance() != null
+                    ? KServerFrontEnd.instance().definitionCache()
+                    : inProcessDefinitionCache;
+            DefinitionCache.LoadedDefinition loadedDefinition = definitionCache != null
+                    ? definitionCache.get(files, loadDefinition)
+                    : loadDefinition.get();
+            KompileMetaInfo kompileMetaInfo = loadedDefinition.kompileMetaInfo;
+            CompiledDefinition compiledDef = loadedDefinition.compiledDef;
+            ProcessedDefinition processedDefinition = loadedDefinition.processedDefinition;
             KompileOptions kompileOptions = DefinitionLoadingModule.kompileOptions(context, compiledDef, files);
 
             // krun
@@ -236,10 +265,9 @@ public class Main {
             if (kompileOptions.backend.equals(Backends.JAVA)) {
                 //
                 Map<String, MethodHandle> hookProvider = HookProvider.get(kem);
-                InitializeRewriter.InitializeDefinition initializeDefinition = new InitializeRewriter.InitializeDefinition();
                 intializeMiniKoreRewriter = new InitializeRewriter(fs, javaExecutionOptions.deterministicFunctions,
                         kRunOptions.global, kem, kRunOptions.experimental.smt, hookProvider, kompileOptions.transition,
-                        kRunOptions, files, initializeDefinition);
+                        kRunOptions, files, loadedDefinition.initializeDefinition);
             } else if (kompileOptions.backend.equals(Backends.KALE)) {
                 initializeRewriter = KaleRewriter::apply;
                 intializeMiniKoreRewriter = null;
@@ -281,7 +309,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kastOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(kastOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             // directories
             File tempDir = CommonModule.tempDir(workingDir, tool);
@@ -311,7 +341,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kServerOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(kServerOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             // directories
             File tempDir = CommonModule.tempDir(workingDir, tool);
@@ -339,7 +371,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(kTestOptions.getGlobal(), usage, experimentalUsage, jarInfo);
+            if (usage(kTestOptions.getGlobal(), usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             // directories
             File tempDir = CommonModule.tempDir(workingDir, tool);
@@ -347,6 +381,11 @@ public class Main {
             File kompiledDir = null;
             FileUtil files = new FileUtil(tempDir, definitionDir, workingDir, kompiledDir, kTestOptions.getGlobal(), env);
 
+            if (kTestOptions.getInProcess()) {
+                inProcessDefinitionCache = new DefinitionCache(IN_PROCESS_DEFINITION_CACHE_SIZE);
+                kTestOptions.setInProcessLauncher(new InProcessLauncher(Main::runApplication, kTestOptions.getThreads()));
+            }
+
             KTestFrontEnd frontEnd = new KTestFrontEnd(kTestOptions, kem, kTestOptions.getGlobal(), env, files);
 
             return runApplication(frontEnd, kem);
@@ -386,7 +425,9 @@ public class Main {
             JCommander jc = JCommanderModule.jcommander(args, tool, options, experimentalOptions, kem, sw);
             String usage = JCommanderModule.usage(jc);
             String experimentalUsage = JCommanderModule.experimentalUsage(jc);
-            usage(keqOptions.global, usage, experimentalUsage, jarInfo);
+            if (usage(keqOptions.global, usage, experimentalUsage, jarInfo)) {
+                return 0;
+            }
 
             File def0File = FileUtil.resolveWorkingDirectory(new File(keqOptions.def0), workingDir);
             File def1File = FileUtil.resolveWorkingDirectory(new File(keqOptions.def1), workingDir);
@@ -407,23 +448,37 @@ public class Main {
             return 0;
         }
 
-        invalidJarArguments();
-        return 1; // not reached
+        return invalidJarArguments();
     }
 
+    /**
+     * The uncaught exception handler is JVM-wide, so it is installed by the first tool run in this JVM only, and not
+     * replaced by each of the tools which ktest --in-process or kserver run in it.
+     */
+    private static final AtomicBoolean uncaughtExceptionHandlerInstalled = new AtomicBoolean();
+
     public static int runApplication(FrontEnd frontEnd, KExceptionManager kem) {
-        kem.installForUncaughtExceptions();
+        if (uncaughtExceptionHandlerInstalled.compareAndSet(false, true)) {
+            kem.installForUncaughtExceptions();
+        }
         int retval = frontEnd.main();
         return retval;
     }
 
-    private static void invalidJarArguments() {
+    private static int invalidJarArguments() {
         System.err.println("The first argument of K3 not recognized. Try -kompile, -kast, -krun, -ktest, -kserver, or -kpp.");
-        System.exit(1);
+        return 1;
     }
 
     private static volatile boolean isNailgun;
 
+    private static final int IN_PROCESS_DEFINITION_CACHE_SIZE = 8;
+
+    /**
+     * Definitions shared by the krun steps that ktest --in-process runs inside this JVM.
+     */
+    private static volatile DefinitionCache inProcessDefinitionCache;
+
     public static boolean isNailgun() {
         return isNailgun;
     }
@@ -437,7 +492,7 @@ public class Main {
             System.exit(result);
             return;
         }
-        invalidJarArguments();
+        System.exit(invalidJarArguments());
     }
 
 }